@@ -0,0 +1,88 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.mletkin.jemforth.engine.f83.BlockBuffer;
+import io.github.mletkin.jemforth.engine.f83.Forth83Engine;
+
+/**
+ * Block buffer access and interpretation of a block.
+ * <p>
+ * Uses a temporary mass storage file. Block 1 contains a short program, the
+ * other blocks are empty.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockBenchmark {
+
+    private static final String PROGRAM = "1 2 + DROP 10 0 DO I DROP LOOP";
+    private static final int BLOCK_COUNT = 32;
+
+    private Path storage;
+    private Forth83Engine engine;
+
+    /**
+     * Engine using a given mass storage file.
+     */
+    static class BlockEngine extends Forth83Engine {
+        BlockEngine(Path storage) {
+            blockBuffer = new BlockBuffer(storage.toString());
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] content = new byte[BlockBuffer.BLOCK_SIZE * BLOCK_COUNT];
+        Arrays.fill(content, (byte) ' ');
+        byte[] program = PROGRAM.getBytes();
+        System.arraycopy(program, 0, content, 0, program.length);
+        storage = Files.createTempFile("jemforth", ".blk");
+        Files.write(storage, content);
+        engine = Engines.silence(new BlockEngine(storage));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(storage);
+    }
+
+    @Benchmark
+    public void blockHit() {
+        engine.process("1 BLOCK DROP");
+    }
+
+    @Benchmark
+    public void blockCycle() {
+        engine.process("1 BLOCK DROP 2 BLOCK DROP 3 BLOCK DROP 4 BLOCK DROP EMPTY-BUFFERS");
+    }
+
+    @Benchmark
+    public void load() {
+        engine.process("1 LOAD");
+    }
+}
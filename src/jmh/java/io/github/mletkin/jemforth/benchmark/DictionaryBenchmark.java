@@ -0,0 +1,82 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.mletkin.jemforth.engine.f83.Forth83Engine;
+import io.github.mletkin.jemforth.engine.words.Word;
+
+/**
+ * Dictionary search and memory access.
+ * <p>
+ * {@code FIND} is measured with {@code WORD} in front, since the counted
+ * string must be in the word buffer. The oldest word is found after searching
+ * all later definitions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryBenchmark {
+
+    private static final int WORD_COUNT = 2000;
+
+    private Forth83Engine engine;
+    private Runnable variableAccess;
+    private Runnable bufferAccess;
+
+    @Setup
+    public void setup() {
+        engine = Engines.quiet();
+        engine.process(": FIRST-WORD ;");
+        for (int n = 0; n < WORD_COUNT; n++) {
+            engine.process(": FILLER-" + n + " ;");
+        }
+
+        engine.process("VARIABLE V CREATE BUF 64 ALLOT");
+        variableAccess = Engines.compile(engine, ": BENCH-VAR V @ 1+ V ! ;");
+        bufferAccess = Engines.compile(engine, ": BENCH-BUF BUF C@ 1+ BUF C! BUF 4 + @ BUF 4 + ! ;");
+    }
+
+    @Benchmark
+    public Word javaFind() {
+        return engine.getDictionary().find("FIRST-WORD");
+    }
+
+    @Benchmark
+    public void findOldestWord() {
+        engine.process("BL WORD FIRST-WORD FIND 2DROP");
+    }
+
+    @Benchmark
+    public void findMissingWord() {
+        engine.process("BL WORD MISSING FIND 2DROP");
+    }
+
+    @Benchmark
+    public void fetchStoreVariable() {
+        variableAccess.run();
+    }
+
+    @Benchmark
+    public void fetchStoreCreatedBuffer() {
+        bufferAccess.run();
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.mletkin.jemforth.engine.EngineImage;
+import io.github.mletkin.jemforth.engine.f83.Forth83Engine;
+
+/**
+ * Creation of an engine including the bootstrapping of the dictionary.
+ * <p>
+ * Compares compilation from source with restoring a saved image and restoring
+ * the shared base image, which is read only once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    private byte[] image;
+
+    @Setup
+    public void setup() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EngineImage.save(new Forth83Engine(), out);
+        image = out.toByteArray();
+    }
+
+    @Benchmark
+    public Forth83Engine construction() {
+        return new Forth83Engine();
+    }
+
+    @Benchmark
+    public Forth83Engine restoreFromImage() throws IOException {
+        return new Forth83Engine(EngineImage.read(new ByteArrayInputStream(image)));
+    }
+
+    @Benchmark
+    public Forth83Engine restoreFromBaseImage() {
+        return new Forth83Engine(Forth83Engine.baseImage());
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.benchmark;
+
+import io.github.mletkin.jemforth.engine.f83.Forth83Engine;
+
+/**
+ * Utility methods for the benchmarks.
+ */
+final class Engines {
+
+    private Engines() {
+        // prevent instantiation
+    }
+
+    /**
+     * Creates an engine that discards all output.
+     *
+     * @return the engine
+     */
+    static Forth83Engine quiet() {
+        return silence(new Forth83Engine());
+    }
+
+    /**
+     * Discards all output of an engine.
+     *
+     * @param <T>
+     *                   type of the engine
+     * @param engine
+     *                   the engine to silence
+     * @return the engine
+     */
+    static <T extends Forth83Engine> T silence(T engine) {
+        engine.setStringPrinter(s -> {});
+        engine.setCharPrinter(c -> {});
+        return engine;
+    }
+
+    /**
+     * Defines a word and executes it in the inner interpreter.
+     *
+     * @param engine
+     *                       the engine to use
+     * @param definition
+     *                       definition of the word to execute
+     * @return runnable executing the word without outer interpreter overhead
+     */
+    static Runnable compile(Forth83Engine engine, String definition) {
+        engine.process(definition);
+        var word = engine.getDictionary().getCurrentWord();
+        return () -> engine.execute(word);
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.mletkin.jemforth.engine.f83.Forth83Engine;
+
+/**
+ * Interpretation of a source file with {@code INCLUDE}.
+ * <p>
+ * Uses a temporary source file with a few thousand lines of comments and
+ * arithmetic, with the colon definition and the native outer interpreter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncludeBenchmark {
+
+    private static final int LINES = 5000;
+
+    @Param({ "false", "true" })
+    public boolean nativeInterpreter;
+
+    private Path source;
+    private Forth83Engine engine;
+
+    @Setup
+    public void setup() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int n = 0; n < LINES; n++) {
+            content.append("( line ").append(n).append(" )  1 2 + DROP\n");
+        }
+        source = Files.createTempFile("jemforth", ".fth");
+        Files.writeString(source, content);
+        engine = Engines.silence(new Forth83Engine());
+        engine.useNativeInterpreter(nativeInterpreter);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(source);
+    }
+
+    @Benchmark
+    public void include() {
+        engine.process("INCLUDE " + source);
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.mletkin.jemforth.engine.Jit;
+import io.github.mletkin.jemforth.engine.Superinstructions;
+import io.github.mletkin.jemforth.engine.f83.Forth83Engine;
+
+/**
+ * Loops and nested calls executed by the inner interpreter.
+ * <p>
+ * The words are compiled once and executed directly, so the outer interpreter
+ * does not take part in the measurement. {@code process} measures the same
+ * loop including the outer interpreter. The words are measured with and
+ * without superinstructions and with the JIT off or in either mode.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InnerInterpreterBenchmark {
+
+    @Param({ "true", "false" })
+    private boolean superinstructions;
+
+    @Param({ "OFF", "BYTECODE", "METHOD_HANDLES" })
+    private String jit;
+
+    private Forth83Engine engine;
+    private Runnable doLoop;
+    private Runnable callDepth;
+
+    @Setup
+    public void setup() {
+        engine = Engines.quiet();
+        engine.useSuperinstructions(superinstructions ? Superinstructions.standard() : null);
+        engine.useJit("OFF".equals(jit) ? null : Jit.standard().mode(Jit.Mode.valueOf(jit)));
+        doLoop = Engines.compile(engine, ": BENCH-LOOP 0 1000 0 DO I + LOOP DROP ;");
+        engine.process(": D1 1 + ; : D2 D1 D1 ; : D3 D2 D2 ; : D4 D3 D3 ; : D5 D4 D4 ;");
+        engine.process(": D6 D5 D5 ; : D7 D6 D6 ; : D8 D7 D7 ;");
+        callDepth = Engines.compile(engine, ": BENCH-CALL 0 D8 DROP ;");
+    }
+
+    @Benchmark
+    public void doLoop() {
+        doLoop.run();
+    }
+
+    @Benchmark
+    public void processDoLoop() {
+        engine.process("BENCH-LOOP");
+    }
+
+    @Benchmark
+    public void callDepth() {
+        callDepth.run();
+    }
+}
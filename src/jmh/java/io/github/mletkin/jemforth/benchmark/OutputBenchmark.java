@@ -0,0 +1,59 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pictured number output and string output, the output itself is discarded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputBenchmark {
+
+    private Runnable doubleDot;
+    private Runnable dot;
+    private Runnable type;
+
+    @Setup
+    public void setup() {
+        var engine = Engines.quiet();
+        doubleDot = Engines.compile(engine, ": BENCH-DDOT -1 1000 D. ;");
+        dot = Engines.compile(engine, ": BENCH-DOT -123456 . ;");
+        engine.process("CREATE BENCH-TEXT 1000 ALLOT BENCH-TEXT 1000 65 FILL");
+        type = Engines.compile(engine, ": BENCH-TYPE BENCH-TEXT 1000 TYPE ;");
+    }
+
+    @Benchmark
+    public void doubleDot() {
+        doubleDot.run();
+    }
+
+    @Benchmark
+    public void dot() {
+        dot.run();
+    }
+
+    @Benchmark
+    public void type() {
+        type.run();
+    }
+}
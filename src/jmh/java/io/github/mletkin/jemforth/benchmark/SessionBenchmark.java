@@ -0,0 +1,68 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.mletkin.jemforth.engine.session.Session;
+import io.github.mletkin.jemforth.engine.session.SessionManager;
+
+/**
+ * Concurrent sessions, each one is opened, runs a short script and ends.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionBenchmark {
+
+    private static final String SCRIPT = ": SUM 0 1000 0 DO I + LOOP ; SUM . SUM . SUM .\nBYE\n";
+
+    @Param({ "1", "16", "256" })
+    int sessions;
+
+    private SessionManager manager;
+
+    @Setup
+    public void setup() {
+        manager = new SessionManager();
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.close();
+    }
+
+    @Benchmark
+    public void sessions() throws InterruptedException {
+        List<Session> running = new ArrayList<>(sessions);
+        for (int n = 0; n < sessions; n++) {
+            Session session = manager.open(s -> {});
+            session.send(SCRIPT);
+            running.add(session);
+        }
+        for (Session session : running) {
+            session.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+}
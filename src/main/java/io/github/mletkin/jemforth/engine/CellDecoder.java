@@ -0,0 +1,226 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine;
+
+import static io.github.mletkin.jemforth.engine.MemoryMapper.CELL_SIZE;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import io.github.mletkin.jemforth.engine.words.ColonWord;
+import io.github.mletkin.jemforth.engine.words.Dictionary;
+import io.github.mletkin.jemforth.engine.words.Word;
+
+/**
+ * Description of the cells of a colon definition.
+ * <p>
+ * A cell holds the xt of a word or an operand of the word in front of it, like
+ * the value of {@code (LITERAL)} or the target of {@code BRANCH}. The decoder
+ * knows the number of operand cells of each word and the effect of the words
+ * on the return stack, it reads the cells of a definition and maps branch
+ * targets to cell indexes. It is shared by the passes over compiled code -- the
+ * {@link Superinstructions}, the {@link Inliner}, the {@link Jit} and the
+ * {@link StackChecker} -- so they all read the cells the same way. A word
+ * missing from the table would make them read an operand cell as an xt.
+ */
+public final class CellDecoder {
+
+    /**
+     * Number of operand cells by word name.
+     */
+    private final Map<String, Integer> operands = new HashMap<>();
+
+    /**
+     * Return stack effect by word name: cells needed and cells left.
+     */
+    private final Map<String, int[]> returnStack = new HashMap<>();
+
+    /**
+     * Creates the decoder for the words of the Forth engines.
+     *
+     * @return a new decoder
+     */
+    public static CellDecoder standard() {
+        return new CellDecoder() //
+                .operand("(LITERAL)", 1) //
+                .operand("(STRLITERAL)", 1) //
+                .operand("BRANCH", 1) //
+                .operand("?BRANCH", 1) //
+                .operand("COMPILE", 1) //
+                .operand("(DO)", 1) //
+                .operand("(?DO)", 1) //
+                .operand("(LOOP)", 1) //
+                .operand("(+LOOP)", 1) //
+                .returnStack(">R", 0, 1) //
+                .returnStack("R>", 1, 0) //
+                .returnStack("R@", 1, 1) //
+                .returnStack("RDROP", 1, 0);
+    }
+
+    /**
+     * Declares the number of operand cells following a word.
+     *
+     * @param name
+     *                  name of the word
+     * @param count
+     *                  number of operand cells
+     * @return the decoder
+     */
+    public CellDecoder operand(String name, int count) {
+        operands.put(name, count);
+        return this;
+    }
+
+    /**
+     * Declares the return stack effect of a word.
+     *
+     * @param name
+     *                    name of the word
+     * @param needed
+     *                    number of cells the word takes from the return stack
+     * @param left
+     *                    number of cells the word leaves on the return stack
+     * @return the decoder
+     */
+    public CellDecoder returnStack(String name, int needed, int left) {
+        returnStack.put(name, new int[] { needed, left });
+        return this;
+    }
+
+    /**
+     * Resolves the word names of the decoder.
+     * <p>
+     * Unknown names are ignored.
+     *
+     * @param dictionary
+     *                       dictionary to look up the words
+     * @return the decoder bound to the dictionary
+     */
+    Decoder resolve(Dictionary dictionary) {
+        return new Decoder(dictionary);
+    }
+
+    /**
+     * The decoder bound to the words of a dictionary.
+     */
+    final class Decoder {
+
+        private final Dictionary dictionary;
+        private final Map<Integer, Integer> operandsByXt = new HashMap<>();
+        private final Map<Integer, int[]> returnStackByXt = new HashMap<>();
+
+        private Decoder(Dictionary dictionary) {
+            this.dictionary = dictionary;
+            operands.forEach((name, count) -> {
+                Word word = dictionary.find(name);
+                if (word != null) {
+                    operandsByXt.put(word.xt(), count);
+                }
+            });
+            returnStack.forEach((name, effect) -> {
+                Word word = dictionary.find(name);
+                if (word != null) {
+                    returnStackByXt.put(word.xt(), effect);
+                }
+            });
+        }
+
+        /**
+         * Gets the xts of the named words.
+         *
+         * @param names
+         *                  names of the words, unknown names are ignored
+         * @return the xts of the words found
+         */
+        Set<Integer> xts(Collection<String> names) {
+            return names.stream() //
+                    .map(dictionary::find) //
+                    .filter(w -> w != null) //
+                    .map(Word::xt) //
+                    .collect(Collectors.toSet());
+        }
+
+        /**
+         * Gets the cells of a colon definition.
+         *
+         * @param word
+         *                 the colon definition
+         * @return the content of the cells, empty cells are zero
+         */
+        int[] cells(ColonWord word) {
+            return word.getDataArea().mapToInt(i -> i != null ? i : 0).toArray();
+        }
+
+        /**
+         * Converts an absolute address into the index of a cell of a colon
+         * definition.
+         *
+         * @param word
+         *                    the colon definition
+         * @param address
+         *                    the address, e.g. the target of a branch
+         * @return the index or -1 if the address is outside the body
+         */
+        int index(ColonWord word, int address) {
+            int offset = address - word.xt() - CELL_SIZE;
+            int index = offset / CELL_SIZE;
+            return offset >= 0 && offset % CELL_SIZE == 0 && index < word.cellCount() ? index : -1;
+        }
+
+        /**
+         * Gets the number of operand cells following a word.
+         *
+         * @param xt
+         *               xt of the word
+         * @return the number of operand cells, zero for most words
+         */
+        int operands(int xt) {
+            return operandsByXt.getOrDefault(xt, 0);
+        }
+
+        /**
+         * Gets the return stack effect of a word.
+         *
+         * @param xt
+         *               xt of the word
+         * @return cells needed and cells left or {@code null} if the word does
+         *         not use the return stack
+         */
+        int[] returnStack(int xt) {
+            return returnStackByXt.get(xt);
+        }
+
+        /**
+         * Follows the return stack through a sequence of cells.
+         * <p>
+         * Branches are not followed, the cells are read in order.
+         *
+         * @param cells
+         *                   the cells of a colon definition
+         * @param length
+         *                   number of cells to read
+         * @return the number of cells left on the return stack or -1 if a word
+         *         takes cells that were not pushed
+         */
+        int returnDepth(int[] cells, int length) {
+            int depth = 0;
+            for (int n = 0; n < length; n++) {
+                int[] effect = returnStack(cells[n]);
+                if (effect != null) {
+                    if (depth < effect[0]) {
+                        return -1;
+                    }
+                    depth += effect[1] - effect[0];
+                }
+                n += operands(cells[n]);
+            }
+            return depth;
+        }
+    }
+}
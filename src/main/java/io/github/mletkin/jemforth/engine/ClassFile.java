@@ -0,0 +1,404 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal writer for class files used by the {@link Jit}.
+ * <p>
+ * Writes class files of version 49, which are verified by type inference and
+ * need no stack map frames. Only the few constants, instructions and
+ * attributes needed for compiled colon definitions are supported.
+ */
+final class ClassFile {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ICONST_0 = 0x03;
+    static final int ALOAD = 0x19;
+    static final int AALOAD = 0x32;
+    static final int ASTORE = 0x3a;
+    static final int POP = 0x57;
+    static final int IADD = 0x60;
+    static final int ISUB = 0x64;
+    static final int IMUL = 0x68;
+    static final int INEG = 0x74;
+    static final int IAND = 0x7e;
+    static final int IOR = 0x80;
+    static final int IXOR = 0x82;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IF_ICMPEQ = 0x9f;
+    static final int IF_ICMPNE = 0xa0;
+    static final int IF_ICMPLT = 0xa1;
+    static final int IF_ICMPGT = 0xa3;
+    static final int GOTO = 0xa7;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int PUTSTATIC = 0xb3;
+    static final int GETFIELD = 0xb4;
+    static final int PUTFIELD = 0xb5;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int CHECKCAST = 0xc0;
+
+    private static final int ICONST_M1 = 0x02;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int ILOAD = 0x15;
+    private static final int ISTORE = 0x36;
+    private static final int WIDE = 0xc4;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolData = new DataOutputStream(pool);
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int poolCount = 1;
+
+    private final int thisClass;
+    private final int superClass;
+    private final int[] interfaces;
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<Code> methods = new ArrayList<>();
+
+    /**
+     * Creates a class file.
+     *
+     * @param name
+     *                       internal name of the class
+     * @param superName
+     *                       internal name of the super class
+     * @param interfaces
+     *                       internal names of the implemented interfaces
+     */
+    ClassFile(String name, String superName, String... interfaces) {
+        this.thisClass = classRef(name);
+        this.superClass = classRef(superName);
+        this.interfaces = Arrays.stream(interfaces).mapToInt(this::classRef).toArray();
+    }
+
+    private int constant(String key, int tag, int... values) {
+        return constants.computeIfAbsent(key, k -> {
+            try {
+                poolData.writeByte(tag);
+                if (tag == 3) {
+                    poolData.writeInt(values[0]);
+                } else {
+                    for (int value : values) {
+                        poolData.writeShort(value);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return poolCount++;
+        });
+    }
+
+    private int utf8(String value) {
+        return constants.computeIfAbsent("U" + value, k -> {
+            try {
+                poolData.writeByte(1);
+                poolData.writeUTF(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return poolCount++;
+        });
+    }
+
+    /**
+     * Gets the constant pool index of a class reference.
+     */
+    int classRef(String name) {
+        return constant("C" + name, 7, utf8(name));
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        return constant("N" + name + ":" + descriptor, 12, utf8(name), utf8(descriptor));
+    }
+
+    /**
+     * Gets the constant pool index of a field reference.
+     */
+    int fieldRef(String owner, String name, String descriptor) {
+        return constant("F" + owner + "." + name + ":" + descriptor, 9, classRef(owner),
+                nameAndType(name, descriptor));
+    }
+
+    /**
+     * Gets the constant pool index of a method reference.
+     */
+    int methodRef(String owner, String name, String descriptor) {
+        return constant("M" + owner + "." + name + ":" + descriptor, 10, classRef(owner),
+                nameAndType(name, descriptor));
+    }
+
+    private int integer(int value) {
+        return constant("I" + value, 3, value);
+    }
+
+    private int string(String value) {
+        return constant("S" + value, 8, utf8(value));
+    }
+
+    /**
+     * Adds a field without attributes.
+     */
+    void field(int access, String name, String descriptor) {
+        fields.add(new byte[] { //
+                (byte) (access >> 8), (byte) access, //
+                (byte) (utf8(name) >> 8), (byte) utf8(name), //
+                (byte) (utf8(descriptor) >> 8), (byte) utf8(descriptor), //
+                0, 0 });
+    }
+
+    /**
+     * Adds a method and returns the writer for its code.
+     */
+    Code method(int access, String name, String descriptor) {
+        Code code = new Code(access, utf8(name), utf8(descriptor));
+        methods.add(code);
+        return code;
+    }
+
+    /**
+     * Writes the class file.
+     *
+     * @return the bytes of the class file
+     */
+    byte[] toBytes() {
+        int codeName = utf8("Code");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.length);
+            for (int i : interfaces) {
+                out.writeShort(i);
+            }
+            out.writeShort(fields.size());
+            for (byte[] field : fields) {
+                out.write(field);
+            }
+            out.writeShort(methods.size());
+            for (Code method : methods) {
+                method.write(out, codeName);
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A jump target in the code of a method.
+     */
+    static final class Label {
+        private int position = -1;
+        private final List<Integer> references = new ArrayList<>();
+    }
+
+    /**
+     * Writer for the code of a method.
+     */
+    final class Code {
+
+        private final int access;
+        private final int name;
+        private final int descriptor;
+        private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+        private final List<Label> labels = new ArrayList<>();
+        private int maxStack = 16;
+        private int maxLocals;
+
+        private Code(int access, int name, int descriptor) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+
+        /**
+         * Sets the number of local variable slots, including the parameters.
+         */
+        void maxLocals(int count) {
+            this.maxLocals = count;
+        }
+
+        /**
+         * Gets the size of the code written so far.
+         */
+        int size() {
+            return code.size();
+        }
+
+        /**
+         * Writes an instruction without operand.
+         */
+        void op(int opcode) {
+            code.write(opcode);
+        }
+
+        /**
+         * Writes an instruction with a constant pool index as operand.
+         */
+        void op(int opcode, int index) {
+            code.write(opcode);
+            u2(index);
+        }
+
+        private void u2(int value) {
+            code.write(value >> 8);
+            code.write(value);
+        }
+
+        /**
+         * Writes a local variable instruction, wide if necessary.
+         */
+        private void local(int opcode, int index) {
+            if (index > 255) {
+                code.write(WIDE);
+                code.write(opcode);
+                u2(index);
+            } else {
+                code.write(opcode);
+                code.write(index);
+            }
+        }
+
+        void aload(int index) {
+            local(ALOAD, index);
+        }
+
+        void astore(int index) {
+            local(ASTORE, index);
+        }
+
+        void iload(int index) {
+            local(ILOAD, index);
+        }
+
+        void istore(int index) {
+            local(ISTORE, index);
+        }
+
+        /**
+         * Pushes an int constant with the shortest instruction.
+         */
+        void iconst(int value) {
+            if (value >= -1 && value <= 5) {
+                code.write(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                code.write(BIPUSH);
+                code.write(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                code.write(SIPUSH);
+                u2(value);
+            } else {
+                op(LDC_W, integer(value));
+            }
+        }
+
+        /**
+         * Pushes a string constant.
+         */
+        void ldc(String value) {
+            op(LDC_W, string(value));
+        }
+
+        /**
+         * Pushes a class constant.
+         */
+        void ldcClass(String name) {
+            op(LDC_W, classRef(name));
+        }
+
+        /**
+         * Pushes -1 if the comparison succeeds, otherwise 0.
+         *
+         * @param opcode
+         *                   conditional jump instruction to use for the comparison
+         */
+        void flag(int opcode) {
+            Label success = new Label();
+            Label end = new Label();
+            jump(opcode, success);
+            iconst(0);
+            jump(GOTO, end);
+            mark(success);
+            code.write(ICONST_M1);
+            mark(end);
+        }
+
+        /**
+         * Writes a jump instruction.
+         */
+        void jump(int opcode, Label label) {
+            if (!labels.contains(label)) {
+                labels.add(label);
+            }
+            label.references.add(code.size());
+            code.write(opcode);
+            u2(0);
+        }
+
+        /**
+         * Sets the position of a label to the current position.
+         */
+        void mark(Label label) {
+            if (!labels.contains(label)) {
+                labels.add(label);
+            }
+            label.position = code.size();
+        }
+
+        private void write(DataOutputStream out, int codeName) throws IOException {
+            byte[] bytes = code.toByteArray();
+            for (Label label : labels) {
+                for (int reference : label.references) {
+                    int offset = label.position - reference;
+                    bytes[reference + 1] = (byte) (offset >> 8);
+                    bytes[reference + 2] = (byte) offset;
+                }
+            }
+            out.writeShort(access);
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(12 + bytes.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeShort(0);
+            out.writeShort(0);
+        }
+    }
+}
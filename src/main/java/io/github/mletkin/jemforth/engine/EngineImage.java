@@ -0,0 +1,471 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.mletkin.jemforth.engine.exception.IllegalImageException;
+import io.github.mletkin.jemforth.engine.words.CellListWord;
+import io.github.mletkin.jemforth.engine.words.ColonWord;
+import io.github.mletkin.jemforth.engine.words.ConstantWord;
+import io.github.mletkin.jemforth.engine.words.Dictionary;
+import io.github.mletkin.jemforth.engine.words.InternalWord;
+import io.github.mletkin.jemforth.engine.words.StringWord;
+import io.github.mletkin.jemforth.engine.words.UserVariableWord;
+import io.github.mletkin.jemforth.engine.words.VariableWord;
+import io.github.mletkin.jemforth.engine.words.VocabularyWord;
+import io.github.mletkin.jemforth.engine.words.Word;
+
+/**
+ * Binary image of the dictionary of an engine.
+ * <p>
+ * Creating an engine compiles all colon definitions of the engine from source.
+ * An image keeps the compiled dictionary, so an engine can be restored without
+ * interpreting any source code.
+ * <ul>
+ * <li>Words added as java objects by the engine -- like internal words and
+ * user variables -- can not be stored. They are created by the engine
+ * constructor as usual and rebound to the image by name and position.
+ * <li>All other words are created from the image, the definitions compiled by
+ * {@link JemEngine#add(String)} are not interpreted.
+ * <li>Engine variables are restored through their user variable words.
+ * <li>The stacks, the input state and the block buffers are not part of the
+ * image.
+ * </ul>
+ * An image fits only the engine class it was taken from. Java words added after
+ * engine construction (for example by an environment) can not be rebound, an
+ * image containing such words can not be loaded.
+ * <p>
+ * Restoring does not change the image, so a single image can be restored into
+ * any number of engines, also from several threads at once. The restored words
+ * share their cells with the image until they are changed, names, comments and
+ * strings are shared as well.
+ */
+public final class EngineImage {
+
+    private static final int MAGIC = 0x4A454D49; // JEMI
+    private static final int VERSION = 1;
+
+    private static final byte COLON = 1;
+    private static final byte CELL_LIST = 2;
+    private static final byte STRING = 3;
+    private static final byte VARIABLE = 4;
+    private static final byte CONSTANT = 5;
+    private static final byte VOCABULARY = 6;
+    private static final byte USER_VARIABLE = 7;
+    private static final byte INTERNAL = 8;
+
+    /**
+     * Result of a definition compiled by {@link JemEngine#add(String)}.
+     */
+    static class Definition {
+
+        /**
+         * Word identifier of the last word in the dictionary.
+         */
+        private final int end;
+
+        /**
+         * xt of the word in compilation or zero.
+         */
+        private final int current;
+
+        Definition(int end, int current) {
+            this.end = end;
+            this.current = current;
+        }
+    }
+
+    /**
+     * A single word in the image.
+     */
+    private static class Entry {
+        byte kind;
+        int xt;
+        boolean bound;
+        String name;
+        int vocabulary;
+        boolean immediate;
+        String comment;
+        Integer doesAddress;
+        List<Integer> cells;
+        String data;
+        Integer value;
+    }
+
+    private int nextLocator;
+    private int currentXt;
+    private int bytesAllocated;
+    private final List<Definition> definitions = new ArrayList<>();
+    private final List<Entry> entries = new ArrayList<>();
+
+    private EngineImage() {
+        // created by read only
+    }
+
+    /**
+     * Writes the image of an engine.
+     *
+     * @param engine
+     *                   the engine to save
+     * @param out
+     *                   the stream to write the image to
+     * @throws IOException
+     *                         if writing fails
+     */
+    public static void save(JemEngine engine, OutputStream out) throws IOException {
+        Dictionary dictionary = engine.getDictionary();
+        MemoryMapper mm = dictionary.memoryMapper();
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(mm.peekNextMemoryLocator());
+        Word current = dictionary.getCurrentWord();
+        data.writeInt(current != null ? current.xt() : 0);
+        data.writeInt(dictionary.getBytesAllocated());
+
+        data.writeInt(engine.definitions().size());
+        for (Definition definition : engine.definitions()) {
+            data.writeInt(definition.end);
+            data.writeInt(definition.current);
+        }
+
+        data.writeInt(dictionary.memory().size());
+        for (Word word : dictionary.memory()) {
+            writeWord(data, word, engine.isJavaWord(word));
+        }
+        data.flush();
+    }
+
+    private static void writeWord(DataOutputStream data, Word word, boolean bound) throws IOException {
+        byte kind = kind(word);
+        if (!bound && (kind == INTERNAL || kind == USER_VARIABLE)) {
+            throw new IllegalImageException("java word " + word.name() + " is not known to the engine");
+        }
+        data.writeByte(kind);
+        data.writeInt(word.xt());
+        data.writeBoolean(bound);
+        writeString(data, word.name());
+        if (!bound) {
+            data.writeInt(word.vocabulary);
+            data.writeBoolean(word.isImmediate());
+            writeString(data, word.getComment());
+            writeInteger(data, word.doesAddress());
+        }
+        switch (kind) {
+        case COLON, CELL_LIST -> {
+            data.writeInt(word.cellCount());
+            for (Integer cell : (Iterable<Integer>) word.getDataArea()::iterator) {
+                data.writeInt(cell != null ? cell : 0);
+            }
+        }
+        case STRING -> writeString(data, ((StringWord) word).data());
+        case VARIABLE, CONSTANT, USER_VARIABLE -> writeInteger(data, word.fetch(word.xt() + MemoryMapper.CELL_SIZE));
+        default -> {
+            // no content
+        }
+        }
+    }
+
+    private static byte kind(Word word) {
+        if (word instanceof ColonWord) {
+            return COLON;
+        }
+        if (word instanceof CellListWord) {
+            return CELL_LIST;
+        }
+        if (word instanceof StringWord) {
+            return STRING;
+        }
+        if (word instanceof VariableWord) {
+            return VARIABLE;
+        }
+        if (word instanceof ConstantWord) {
+            return CONSTANT;
+        }
+        if (word instanceof VocabularyWord) {
+            return VOCABULARY;
+        }
+        if (word instanceof UserVariableWord) {
+            return USER_VARIABLE;
+        }
+        if (word instanceof InternalWord) {
+            return INTERNAL;
+        }
+        throw new IllegalImageException("can not store word " + word.name());
+    }
+
+    private static void writeString(DataOutputStream data, String str) throws IOException {
+        if (str == null) {
+            data.writeInt(-1);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static void writeInteger(DataOutputStream data, Integer value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeInt(value);
+        }
+    }
+
+    /**
+     * Takes the image of an engine.
+     *
+     * @param engine
+     *                   the engine to save
+     * @return the image
+     */
+    public static EngineImage of(JemEngine engine) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            save(engine, out);
+            return read(new ByteArrayInputStream(out.toByteArray()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads an image.
+     *
+     * @param in
+     *               the stream to read the image from
+     * @return the image read
+     * @throws IOException
+     *                         if reading fails
+     */
+    public static EngineImage read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IllegalImageException("not a jemForth image");
+        }
+        EngineImage image = new EngineImage();
+        image.nextLocator = data.readInt();
+        image.currentXt = data.readInt();
+        image.bytesAllocated = data.readInt();
+
+        int definitionCount = data.readInt();
+        for (int n = 0; n < definitionCount; n++) {
+            image.definitions.add(new Definition(data.readInt(), data.readInt()));
+        }
+
+        int entryCount = data.readInt();
+        for (int n = 0; n < entryCount; n++) {
+            image.entries.add(readEntry(data));
+        }
+        return image;
+    }
+
+    private static Entry readEntry(DataInputStream data) throws IOException {
+        Entry entry = new Entry();
+        entry.kind = data.readByte();
+        entry.xt = data.readInt();
+        entry.bound = data.readBoolean();
+        entry.name = readString(data);
+        if (!entry.bound) {
+            entry.vocabulary = data.readInt();
+            entry.immediate = data.readBoolean();
+            entry.comment = readString(data);
+            entry.doesAddress = readInteger(data);
+        }
+        switch (entry.kind) {
+        case COLON, CELL_LIST -> {
+            Integer[] cells = new Integer[data.readInt()];
+            for (int n = 0; n < cells.length; n++) {
+                cells[n] = data.readInt();
+            }
+            entry.cells = List.of(cells);
+        }
+        case STRING -> entry.data = readString(data);
+        case VARIABLE, CONSTANT, USER_VARIABLE -> entry.value = readInteger(data);
+        default -> {
+            // no content
+        }
+        }
+        return entry;
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Integer readInteger(DataInputStream data) throws IOException {
+        return data.readBoolean() ? data.readInt() : null;
+    }
+
+    // restoring an engine
+
+    /**
+     * Starts restoring the image into an engine.
+     *
+     * @param engine
+     *                   the engine under construction
+     * @return the state of the restoration
+     */
+    Restore attach(JemEngine engine) {
+        return new Restore(engine);
+    }
+
+    /**
+     * Restoration of the image into a single engine.
+     * <p>
+     * The image itself is not changed, the words restored share names, comments
+     * and strings with the image.
+     */
+    final class Restore {
+
+        /**
+         * Engine to restore.
+         */
+        private final JemEngine engine;
+
+        /**
+         * Number of definitions restored.
+         */
+        private int definitionCount;
+
+        /**
+         * Index of the next entry to restore.
+         */
+        private int cursor;
+
+        private Restore(JemEngine engine) {
+            this.engine = engine;
+        }
+
+        /**
+         * Rebinds a word added as java object by the engine.
+         * <p>
+         * All words preceding the word in the image must have been restored.
+         *
+         * @param word
+         *                 the word added by the engine
+         */
+        void bind(Word word) {
+            Entry entry = cursor < entries.size() ? entries.get(cursor) : null;
+            if (entry == null || !entry.bound || !entry.name.equals(word.name()) || entry.kind != kind(word)) {
+                throw new IllegalImageException("image does not fit the engine at word " + word.name());
+            }
+            Dictionary dictionary = engine.getDictionary();
+            dictionary.memoryMapper().skipTo(entry.xt);
+            dictionary.add(word);
+            checkXt(entry, word);
+            if (word instanceof StringWord stringWord) {
+                stringWord.setData(entry.data);
+            } else if (word instanceof VariableWord) {
+                word.store(word.xt() + MemoryMapper.CELL_SIZE, entry.value);
+            }
+            cursor++;
+        }
+
+        /**
+         * Restores the words of the next definition compiled by the engine.
+         *
+         * @return the word in compilation after the definition
+         */
+        Word restoreDefinition() {
+            if (definitionCount >= definitions.size()) {
+                throw new IllegalImageException("image does not fit the engine, too many definitions");
+            }
+            Definition definition = definitions.get(definitionCount++);
+            MemoryMapper mm = engine.getDictionary().memoryMapper();
+            while (cursor < entries.size() && mm.toWordIdentifier(entries.get(cursor).xt) <= definition.end) {
+                restore(entries.get(cursor++));
+            }
+            Dictionary dictionary = engine.getDictionary();
+            dictionary.resume(dictionary.getByXt(definition.current), 0);
+            return dictionary.getCurrentWord();
+        }
+
+        /**
+         * Restores the remaining words and the engine variables.
+         */
+        void finish() {
+            while (cursor < entries.size()) {
+                restore(entries.get(cursor++));
+            }
+            Dictionary dictionary = engine.getDictionary();
+            dictionary.memoryMapper().skipTo(nextLocator);
+            dictionary.resume(currentXt != 0 ? dictionary.getByXt(currentXt) : null, bytesAllocated);
+            entries.stream() //
+                    .filter(e -> e.kind == USER_VARIABLE && e.value != null) //
+                    .forEach(e -> dictionary.getByXt(e.xt).store(e.xt + MemoryMapper.CELL_SIZE, e.value));
+        }
+
+        private void restore(Entry entry) {
+            if (entry.bound) {
+                throw new IllegalImageException("image does not fit the engine, missing word " + entry.name);
+            }
+            Dictionary dictionary = engine.getDictionary();
+            Word word = create(entry);
+            dictionary.memoryMapper().skipTo(entry.xt);
+            Integer current = dictionary.getCurrent();
+            dictionary.setCurrent(entry.vocabulary);
+            dictionary.add(word);
+            dictionary.setCurrent(current);
+            checkXt(entry, word);
+
+            if (entry.immediate) {
+                word.immediate();
+            }
+            if (entry.comment != null) {
+                word.comment(entry.comment);
+            }
+            if (entry.doesAddress != null) {
+                word.doesTo(entry.doesAddress);
+            }
+            switch (entry.kind) {
+            case COLON, CELL_LIST -> ((CellListWord) word).shareCells(entry.cells);
+            case STRING -> ((StringWord) word).setData(entry.data);
+            case VARIABLE -> word.store(word.xt() + MemoryMapper.CELL_SIZE, entry.value);
+            default -> {
+                // no content
+            }
+            }
+        }
+    }
+
+    private static Word create(Entry entry) {
+        return switch (entry.kind) {
+        case COLON -> new ColonWord(entry.name);
+        case CELL_LIST -> new CellListWord(entry.name);
+        case STRING -> new StringWord(entry.name);
+        case VARIABLE -> new VariableWord(entry.name);
+        case CONSTANT -> new ConstantWord(entry.name, entry.value);
+        case VOCABULARY -> new VocabularyWord(entry.name);
+        default -> throw new IllegalImageException("can not restore java word " + entry.name);
+        };
+    }
+
+    private static void checkXt(Entry entry, Word word) {
+        if (word.xt() != entry.xt) {
+            throw new IllegalImageException("image does not fit the engine at word " + entry.name);
+        }
+    }
+}
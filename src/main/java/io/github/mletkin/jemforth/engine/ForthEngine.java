@@ -14,6 +14,7 @@ import io.github.mletkin.jemforth.engine.exception.ForthTerminatedException;
 import io.github.mletkin.jemforth.engine.exception.IllegalMemoryAccessException;
 import io.github.mletkin.jemforth.engine.words.CellListWord;
 import io.github.mletkin.jemforth.engine.words.ConstantWord;
+import io.github.mletkin.jemforth.engine.words.Dictionary;
 import io.github.mletkin.jemforth.engine.words.StringWord;
 import io.github.mletkin.jemforth.engine.words.VariableWord;
 import io.github.mletkin.jemforth.engine.words.Word;
@@ -323,10 +324,10 @@ public class ForthEngine extends JemEngine {
      *
      * Compile the word specified by the address on the stack.<br>
      * Tis is the portable alternative to the comma word.<br>
-     * This implementation makes no distinction.
+     * Short colon definitions may be spliced instead of compiled as call.
      **/
-    protected final static Def<JemEngine> COMPILE_COMMA = Def.of(c -> c.comma(c.stack.pop()), //
-            "( x -- )", "( x -- )", "alias for the \"comma\" word");
+    protected final static Def<JemEngine> COMPILE_COMMA = Def.of(c -> c.compileComma(c.stack.pop()), //
+            "( xt -- )", "compile the word, splice short colon definitions");
 
     /**
      * 6.1.0860 C, "C comma" ( char -- ).
@@ -441,6 +442,16 @@ public class ForthEngine extends JemEngine {
     protected final static Def<JemEngine> EMIT = Def.of(c -> c.printChar.accept(c.stack.cPop()), //
             "( char -- )", "print the stack value interpreted as character.");
 
+    /**
+     * 6.1.2310 TYPE ( c-addr u -- )
+     *
+     * If u is greater than zero, display the character string specified by
+     * c-addr and u. The string is printed at once and not character by
+     * character.
+     */
+    protected final static Def<ForthEngine> TYPE = Def.of(ForthEngine::_type, //
+            "( addr len -- )", "print String with address of first char and length");
+
     /**
      * 6.1.0180 . "DOT" ( n -- ).
      *
@@ -949,6 +960,35 @@ public class ForthEngine extends JemEngine {
         add(new StringWord("PAD").comment("scratch pad")); // 6.2.2000
     }
 
+    /**
+     * Create a new {@code ForthEngine}.
+     */
+    public ForthEngine() {
+        super();
+    }
+
+    /**
+     * Create a {@code ForthEngine} with a dictionary.
+     *
+     * @param dictionary
+     *                       Dictionary for the engine
+     */
+    public ForthEngine(Dictionary dictionary) {
+        super(dictionary);
+    }
+
+    /**
+     * Create a {@code ForthEngine} from an image.
+     *
+     * @param dictionary
+     *                       an empty dictionary for the engine
+     * @param image
+     *                       the image to restore or {@code null}
+     */
+    protected ForthEngine(Dictionary dictionary, EngineImage image) {
+        super(dictionary, image);
+    }
+
     /**
      * 6.1.2340 U&lt; "u-less" ( u1 u2 -- flag ).
      *
@@ -1209,6 +1249,21 @@ public class ForthEngine extends JemEngine {
         }
     }
 
+    /**
+     * Prints a memory range as string.
+     */
+    protected void _type() {
+        int count = stack.iPop();
+        int addr = stack.iPop();
+        if (count > 0) {
+            StringBuilder str = new StringBuilder(count);
+            for (int n = 0; n < count; n++) {
+                str.append((char) cFetch(addr + n));
+            }
+            printStr.accept(str.toString());
+        }
+    }
+
     /**
      * Trims trailing whitespace off a memory range.
      */
@@ -1234,9 +1289,10 @@ public class ForthEngine extends JemEngine {
     }
 
     /**
-     * Terminates the execution.
+     * Terminates the execution after running the terminate hook.
      */
     protected void _bye() {
+        terminateHook.run();
         throw new ForthTerminatedException();
     }
 
@@ -0,0 +1,197 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.github.mletkin.jemforth.engine.words.ColonWord;
+import io.github.mletkin.jemforth.engine.words.Dictionary;
+import io.github.mletkin.jemforth.engine.words.Word;
+
+/**
+ * Rules for splicing short colon definitions into their callers.
+ * <p>
+ * When a colon definition is compiled into another one, the cells of its body
+ * are copied into the caller instead of compiling a call. This saves the
+ * {@code docol}, the return stack operations and the {@code EXIT} of the call.
+ * A body is spliced if
+ * <ul>
+ * <li>it has no more cells than the threshold, not counting the final
+ * {@code EXIT}
+ * <li>it contains no other {@code EXIT}, no {@code DOES>} and no call of the
+ * word itself, as compiled by {@code RECURSE}
+ * <li>it contains no refused word, like branches and loop words that depend
+ * on the position of the cells or the return stack frame
+ * <li>its return stack operations are balanced and never reach below the
+ * return address of the call
+ * </ul>
+ * Words with an operand cell, like {@code (LITERAL)}, are spliced together
+ * with the operand, the operands and return stack effects are taken from the
+ * {@link CellDecoder}. Java words that read the ip are not detected and must be
+ * refused explicitly.
+ * <p>
+ * The body is copied when the caller is compiled. A later redefinition of the
+ * inlined word affects only callers compiled afterwards, which is what Forth
+ * does anyway. Changes to the cells of the inlined word -- for example with
+ * {@code !} -- and {@code FORGET} followed by a new definition are not seen by
+ * callers that contain a copy. {@code SEE} shows the spliced words in the
+ * caller.
+ * <p>
+ * Since vectoring by storing into the body of a word -- like
+ * {@code ' NEW ' V >BODY !} -- does not work with spliced callers, inlining is
+ * off by default and must be turned on with {@link JemEngine#useInliner}.
+ */
+public final class Inliner {
+
+    /**
+     * Threshold used by the standard rules.
+     */
+    public static final int DEFAULT_THRESHOLD = 6;
+
+    /**
+     * Maximum number of cells of a spliced body.
+     */
+    private final int threshold;
+
+    /**
+     * Names of the words that prevent splicing.
+     */
+    private final Set<String> refused = new HashSet<>();
+
+    /**
+     * Description of the cells of a body.
+     */
+    private CellDecoder decoder = CellDecoder.standard();
+
+    /**
+     * Creates an empty rule set.
+     *
+     * @param threshold
+     *                      maximum number of cells of a spliced body
+     */
+    public Inliner(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Creates the rules used by default with the default threshold.
+     *
+     * @return a new rule set
+     */
+    public static Inliner standard() {
+        return standard(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates the rules used by default.
+     *
+     * @param threshold
+     *                      maximum number of cells of a spliced body
+     * @return a new rule set
+     */
+    public static Inliner standard(int threshold) {
+        return new Inliner(threshold) //
+                .refuse("BRANCH", "?BRANCH", "COMPILE", "(DO)", "(?DO)", "(LOOP)", "(+LOOP)", "(LEAVE)") //
+                .refuse("UNLOOP", "I", "J", "K", "RP!", "DOES>", "IP");
+    }
+
+    /**
+     * Replaces the description of the cells of a body.
+     *
+     * @param decoder
+     *                    the decoder, {@link CellDecoder#standard()} by default
+     * @return the rule set
+     */
+    public Inliner decoder(CellDecoder decoder) {
+        this.decoder = decoder;
+        return this;
+    }
+
+    /**
+     * Declares words that prevent splicing a body.
+     *
+     * @param names
+     *                  names of the words
+     * @return the rule set
+     */
+    public Inliner refuse(String... names) {
+        refused.addAll(List.of(names));
+        return this;
+    }
+
+    /**
+     * Resolves the word names of the rule set.
+     * <p>
+     * Unknown names are ignored.
+     *
+     * @param dictionary
+     *                       dictionary to look up the words
+     * @return the rule set bound to the dictionary
+     */
+    Splicer resolve(Dictionary dictionary) {
+        return new Splicer(dictionary);
+    }
+
+    /**
+     * The rule set bound to the words of a dictionary.
+     */
+    final class Splicer {
+
+        private final Dictionary dictionary;
+        private final CellDecoder.Decoder decoder;
+        private final int exitXt;
+        private final Set<Integer> refusedXts;
+
+        private Splicer(Dictionary dictionary) {
+            this.dictionary = dictionary;
+            this.decoder = Inliner.this.decoder.resolve(dictionary);
+            Word exit = dictionary.find("EXIT");
+            exitXt = exit != null ? exit.xt() : 0;
+            refusedXts = decoder.xts(refused);
+        }
+
+        /**
+         * Splices the body of a word into the current definition.
+         *
+         * @param engine
+         *                   the engine compiling the current definition
+         * @param word
+         *                   the word to compile
+         * @return {@code true} if the body was spliced, {@code false} if the word
+         *         must be compiled as call
+         */
+        boolean splice(JemEngine engine, Word word) {
+            if (!(word instanceof ColonWord) || word.doesAddress() != null || word.isImmediate()
+                    || word.cellCount() > threshold + 1 || word == dictionary.getCurrentWord()) {
+                return false;
+            }
+            int[] cells = decoder.cells((ColonWord) word);
+            if (!isSpliceable(word, cells)) {
+                return false;
+            }
+            for (int n = 0; n < cells.length - 1; n++) {
+                engine.comma(cells[n]);
+            }
+            return true;
+        }
+
+        private boolean isSpliceable(Word word, int[] cells) {
+            if (cells.length == 0 || cells[cells.length - 1] != exitXt) {
+                return false;
+            }
+            for (int n = 0; n < cells.length - 1; n++) {
+                int xt = cells[n];
+                if (xt == exitXt || xt == word.xt() || refusedXts.contains(xt) || dictionary.getByXt(xt) == null) {
+                    return false;
+                }
+                n += decoder.operands(xt);
+            }
+            return decoder.returnDepth(cells, cells.length - 1) == 0;
+        }
+    }
+}
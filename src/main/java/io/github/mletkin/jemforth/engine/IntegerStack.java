@@ -5,22 +5,43 @@
  */
 package io.github.mletkin.jemforth.engine;
 
-import java.util.Stack;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
 
 import io.github.mletkin.jemforth.engine.exception.EmptyStackException;
 
 /**
- * A Stack holding {@link Integer}-Objects.
+ * A Stack holding int values.
  *
  * <ul>
  * <li>the elements are numbered 0..size -1 from top to bottom
- * <li>the java.util.stack elements are mubered from bottom to top
+ * <li>the list elements are mubered from bottom to top
  * <li>most significant word for 64b Numbers is pushed on top
  * <li>peek access starts at top of stack
  * <li>maps illegal access to a custom EmptyStackException
  * </ul>
+ * The values are kept in a growable {@code int} array with an explicit stack
+ * pointer. The stack operations neither box nor synchronize. The {@code List}
+ * interface is a read only view for the IDE which needs a list to display the
+ * stack content.
  */
-public class IntegerStack extends Stack<Integer> {
+public class IntegerStack extends AbstractList<Integer> implements RandomAccess {
+
+    /**
+     * Initial number of cells of the stack array.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The stack content, bottom of stack is at index 0.
+     */
+    private int[] data = new int[INITIAL_CAPACITY];
+
+    /**
+     * The stack pointer, index of the next free cell.
+     */
+    private int sp = 0;
 
     /**
      * The number of elements on the stack.
@@ -28,18 +49,72 @@ public class IntegerStack extends Stack<Integer> {
      * @return the number of elements on the stack
      */
     public int depth() {
-        return size();
+        return sp;
     }
 
-    // normal Integer operations
+    // List view for the IDE
+
+    @Override
+    public int size() {
+        return sp;
+    }
 
     @Override
-    public Integer pop() {
-        try {
-            return super.pop();
-        } catch (ArrayIndexOutOfBoundsException | java.util.EmptyStackException e) {
-            throw new EmptyStackException(e);
+    public Integer get(int index) {
+        if (index < 0 || index >= sp) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return data[index];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return sp == 0;
+    }
+
+    /**
+     * Removes all elements from the stack.
+     */
+    @Override
+    public void clear() {
+        sp = 0;
+    }
+
+    // normal Integer operations
+
+    /**
+     * Pushes an int value.
+     *
+     * @param value
+     *                  the value to push
+     */
+    public void push(int value) {
+        if (sp == data.length) {
+            data = Arrays.copyOf(data, sp << 1);
+        }
+        data[sp++] = value;
+    }
+
+    /**
+     * Pushes an Integer value, {@code null} is pushed as zero.
+     *
+     * @param value
+     *                  the value to push
+     */
+    public void push(Integer value) {
+        push(value != null ? value.intValue() : 0);
+    }
+
+    /**
+     * Removes the top element of the stack.
+     *
+     * @return the popped value
+     */
+    public int pop() {
+        if (sp == 0) {
+            throw new EmptyStackException();
         }
+        return data[--sp];
     }
 
     /**
@@ -49,21 +124,21 @@ public class IntegerStack extends Stack<Integer> {
      *                number of the element to retrieve
      * @return the peeked value
      */
-    public Integer peek(int pos) {
-        try {
-            return get(size() - pos - 1);
-        } catch (ArrayIndexOutOfBoundsException | java.util.EmptyStackException e) {
-            throw new EmptyStackException(e);
+    public int peek(int pos) {
+        int index = sp - pos - 1;
+        if (index < 0 || index >= sp) {
+            throw new EmptyStackException();
         }
+        return data[index];
     }
 
-    @Override
-    public Integer peek() {
-        try {
-            return super.peek();
-        } catch (ArrayIndexOutOfBoundsException | java.util.EmptyStackException e) {
-            throw new EmptyStackException(e);
-        }
+    /**
+     * Returns the top element without removing.
+     *
+     * @return the top of stack
+     */
+    public int peek() {
+        return peek(0);
     }
 
     /**
@@ -82,10 +157,9 @@ public class IntegerStack extends Stack<Integer> {
      *              index of the second element
      */
     public void swap(int n, int m) {
-        Integer one = get(size() - n - 1);
-        Integer two = get(size() - m - 1);
-        set(size() - n - 1, two);
-        set(size() - m - 1, one);
+        int one = data[sp - n - 1];
+        data[sp - n - 1] = data[sp - m - 1];
+        data[sp - m - 1] = one;
     }
 
     /**
@@ -95,11 +169,13 @@ public class IntegerStack extends Stack<Integer> {
      *              index of the element to bring up
      */
     public void roll(int n) {
-        try {
-            super.push(remove(size() - n - 1));
-        } catch (ArrayIndexOutOfBoundsException | java.util.EmptyStackException e) {
-            throw new EmptyStackException(e);
+        int index = sp - n - 1;
+        if (index < 0 || index >= sp) {
+            throw new EmptyStackException();
         }
+        int value = data[index];
+        System.arraycopy(data, index + 1, data, index, n);
+        data[sp - 1] = value;
     }
 
     /**
@@ -109,37 +185,37 @@ public class IntegerStack extends Stack<Integer> {
      *              bool value
      */
     public void push(boolean b) {
-        push(b ? Integer.valueOf(-1) : Integer.valueOf(0));
+        push(b ? -1 : 0);
     }
 
     // signed 32 bit int operations
 
     /**
-     * Boxes and pushes an int value.
+     * Pushes an int value.
      *
      * @param value
      *                  the value to push
      */
     public void iPush(int value) {
-        super.push(Integer.valueOf(value));
+        push(value);
     }
 
     /**
-     * Pops and unboxes an int value.
+     * Pops an int value.
      *
      * @return the value from the stack
      */
     public int iPop() {
-        return pop().intValue();
+        return pop();
     }
 
     /**
-     * Pops and unboxes an int value and converts it to a char.
+     * Pops an int value and converts it to a char.
      *
      * @return the vchar value from the stack
      */
     public char cPop() {
-        return (char) pop().intValue();
+        return (char) pop();
     }
 
     /**
@@ -149,7 +225,7 @@ public class IntegerStack extends Stack<Integer> {
      *                the char to push
      */
     public void cPush(Character zch) {
-        iPush(zch != null ? zch.charValue() : -1);
+        push(zch != null ? zch.charValue() : -1);
     }
 
     /**
@@ -160,11 +236,7 @@ public class IntegerStack extends Stack<Integer> {
      * @return the value retrieved
      */
     public int iPeek(int pos) {
-        try {
-            return peek(pos).intValue();
-        } catch (ArrayIndexOutOfBoundsException | java.util.EmptyStackException e) {
-            throw new EmptyStackException(e);
-        }
+        return peek(pos);
     }
 
     // unsigned 32 bit operations
@@ -176,7 +248,7 @@ public class IntegerStack extends Stack<Integer> {
      *                  the value to push
      */
     public void uPush(long value) {
-        iPush((int) (value & 0xffffffff));
+        push((int) (value & 0xffffffff));
     }
 
     /**
@@ -185,11 +257,7 @@ public class IntegerStack extends Stack<Integer> {
      * @return the unsigned value as long
      */
     public long uPop() {
-        try {
-            return Integer.toUnsignedLong(iPop());
-        } catch (ArrayIndexOutOfBoundsException | java.util.EmptyStackException e) {
-            throw new EmptyStackException(e);
-        }
+        return Integer.toUnsignedLong(pop());
     }
 
     // signed 64 bit operations
@@ -211,7 +279,7 @@ public class IntegerStack extends Stack<Integer> {
      * @return the popped value
      */
     public long dPop() {
-        return ((long) iPop() << 32) | (iPop() & 0xFFFFFFFFL);
+        return ((long) pop() << 32) | (pop() & 0xFFFFFFFFL);
     }
 
     /**
@@ -222,9 +290,9 @@ public class IntegerStack extends Stack<Integer> {
      */
     public void push(Number number) {
         if (number instanceof Integer intNumber) {
-            push(intNumber);
+            push(intNumber.intValue());
         } else if (number instanceof Long longNumber) {
-            dPush(longNumber);
+            dPush(longNumber.longValue());
         }
     }
 
@@ -8,7 +8,9 @@ package io.github.mletkin.jemforth.engine;
 import static io.github.mletkin.jemforth.engine.MemoryMapper.CELL_SIZE;
 
 import java.io.IOException;
-import java.util.function.BiFunction;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -28,13 +30,9 @@ import io.github.mletkin.jemforth.engine.words.Word;
  *
  * Methods starting with an underscore are implementation of forth words.
  */
-public class JemEngine implements Inspectable {
+public class JemEngine implements Inspectable, AutoCloseable {
 
     protected static final char C_QUOTE = '"';
-    protected static final char C_SHARP = '#';
-    protected static final char C_DOLLAR = '$';
-    protected static final char C_PERCENT = '%';
-    protected static final char C_TICK = '\'';
 
     protected static final Integer ZERO = Integer.valueOf(0);
     protected static final Integer ONE = Integer.valueOf(1);
@@ -89,6 +87,46 @@ public class JemEngine implements Inspectable {
     protected static final Def<JemEngine> R_CLEAR = Def.of(c -> c.rStack.clear(), // non standard
             "( R:  x1 .. x2 -- )", "drop all elements from data stack.");
 
+    // runtime words of counted loops, the loop-sys is ( R: leave limit index )
+
+    /**
+     * Runtime of DO, compiled with the leave address as operand.
+     */
+    protected static final Def<JemEngine> PAREN_DO = Def.of(JemEngine::_do, //
+            "( n1 n2 -- ) ( R: -- loop-sys )", "start a counted loop");
+
+    /**
+     * Runtime of ?DO, compiled with the leave address as operand.
+     */
+    protected static final Def<JemEngine> PAREN_QUESTION_DO = Def.of(JemEngine::_questionDo, //
+            "( n1 n2 -- ) ( R: -- | loop-sys )", "start a counted loop, skip it if n1 equals n2");
+
+    /**
+     * Runtime of LOOP, compiled with the address of the loop body as operand.
+     */
+    protected static final Def<JemEngine> PAREN_LOOP = Def.of(JemEngine::_loop, //
+            "( -- ) ( R: loop-sys1 -- | loop-sys2 )", "increment the index, repeat until the limit is reached");
+
+    /**
+     * Runtime of +LOOP, compiled with the address of the loop body as operand.
+     */
+    protected static final Def<JemEngine> PAREN_PLUS_LOOP = Def.of(c -> c._plusLoop(c.stack.iPop()), //
+            "( n -- ) ( R: loop-sys1 -- | loop-sys2 )", "add n to the index, repeat until the limit is crossed");
+
+    /**
+     * Runtime of LEAVE.
+     */
+    protected static final Def<JemEngine> PAREN_LEAVE = Def.of(JemEngine::_leave, //
+            "( -- ) ( R: loop-sys -- )", "leave the innermost loop");
+
+    /**
+     * 6.1.2380 UNLOOP ( -- ) ( R: loop-sys -- )
+     *
+     * Discard the loop-control parameters for the current nesting level.
+     */
+    protected static final Def<JemEngine> UNLOOP = Def.of(JemEngine::_unloop, //
+            "( -- ) ( R: loop-sys -- )", "discard the loop control parameters");
+
     /**
      * non std: print return stack content.
      */
@@ -103,8 +141,11 @@ public class JemEngine implements Inspectable {
 
     /**
      * Execute in the inner interpreter to allow intervention by the debugger
+     * <p>
+     * Volatile because the IDE changes the callback from another thread while
+     * the inner interpreter is running.
      */
-    protected Callback debugCallback = Callback.NOP;
+    protected volatile Callback debugCallback = Callback.NOP;
 
     /**
      * Hook for printing a string.
@@ -136,6 +177,11 @@ public class JemEngine implements Inspectable {
      */
     protected Supplier<Boolean> isCharAvailable = () -> false;
 
+    /**
+     * Hook executed before the engine terminates with {@code BYE}.
+     */
+    protected Runnable terminateHook = () -> {};
+
     /**
      * The return stack.
      * <p>
@@ -144,7 +190,7 @@ public class JemEngine implements Inspectable {
      * forth system but the access is restricted to specified JemEngine methods. The
      * impleentation might vary.
      */
-    private final ReturnStack rStack = new ReturnStack();
+    protected final ReturnStack rStack = new ReturnStack();
 
     /**
      * Directory access for the debugging tools.
@@ -156,6 +202,11 @@ public class JemEngine implements Inspectable {
      */
     protected int base = 16;
 
+    /**
+     * Converts tokens to numbers.
+     */
+    private final NumberParser numberParser = new NumberParser();
+
     /**
      * State is either compile or interpret.
      */
@@ -171,6 +222,11 @@ public class JemEngine implements Inspectable {
      */
     protected int toIn = 0;
 
+    /**
+     * Start of the span in the tib found by the last scan.
+     */
+    protected int spanStart = 0;
+
     /**
      * The word buffer for the input parser (the name is never used).
      */
@@ -208,6 +264,43 @@ public class JemEngine implements Inspectable {
      */
     protected final Word doesToWord;
 
+    /**
+     * Word identifiers of the words added as java objects.
+     */
+    private final BitSet javaWords = new BitSet();
+
+    /**
+     * The definitions compiled by {@link #add(String)}, needed to save an image.
+     */
+    private final List<EngineImage.Definition> definitions = new ArrayList<>();
+
+    /**
+     * The image restored during construction or {@code null}.
+     */
+    private EngineImage.Restore image;
+
+    /**
+     * The superinstructions applied at the end of a colon definition or
+     * {@code null}.
+     */
+    private Superinstructions.Fusion fusion;
+
+    /**
+     * The rules for splicing colon definitions into callers or {@code null}.
+     */
+    private Inliner.Splicer splicer;
+
+    /**
+     * The compiler for frequently called colon definitions or {@code null}.
+     */
+    private Jit.Compiler jit;
+
+    /**
+     * The stack effect checker applied at the end of a colon definition or
+     * {@code null}.
+     */
+    private StackChecker.Verifier stackChecker;
+
     /**
      * Create a new JemEngine.
      */
@@ -222,7 +315,23 @@ public class JemEngine implements Inspectable {
      *                       Dictionary for the engine
      */
     public JemEngine(Dictionary dictionary) {
+        this(dictionary, null);
+    }
+
+    /**
+     * Create a {@code JemEngine} from an image.
+     * <p>
+     * The subclass constructor must call {@link #imageRestored()} when the
+     * construction is complete.
+     *
+     * @param dictionary
+     *                       an empty dictionary for the engine
+     * @param image
+     *                       the image to restore or {@code null}
+     */
+    protected JemEngine(Dictionary dictionary, EngineImage image) {
         this.dictionary = dictionary;
+        this.image = image != null ? image.attach(this) : null;
 
         add(new VocabularyWord("FORTH").comment("The default vocabulary"));
 
@@ -273,7 +382,7 @@ public class JemEngine implements Inspectable {
     protected void _word() {
         int delimiter = stack.iPop();
         CheckChar check = delimiter == 32 ? Character::isWhitespace : c -> c == (char) (delimiter & 0xFF);
-        wordBuffer.setData(parse(check));
+        parseWord(check);
         stack.push(wordBuffer.xt() + 1);
     }
 
@@ -290,7 +399,8 @@ public class JemEngine implements Inspectable {
      * while not compiling.
      */
     protected void _find() {
-        Word word = find(dictionary.findString(stack.peek()));
+        StringWord name = (StringWord) dictionary.findWordContainingPfa(stack.peek());
+        Word word = find(name.content());
         if (word == null) {
             stack.push(FIND_NOT);
         } else {
@@ -331,20 +441,48 @@ public class JemEngine implements Inspectable {
      * @return the word parsed
      */
     protected String parse(CheckChar check) {
-        StringBuffer result = new StringBuffer("");
+        int length = scan(check);
+        return tibWord.data().substring(spanStart, spanStart + length);
+    }
+
+    /**
+     * Parses a word delimited by check into the word buffer.
+     * <p>
+     * The word is copied from the tib without creating a string.
+     *
+     * @param check
+     *                  An expression to identify the delimiter
+     */
+    protected void parseWord(CheckChar check) {
+        int length = scan(check);
+        wordBuffer.setData(tibWord, spanStart, length);
+    }
 
+    /**
+     * Scans the tib in place for the next word delimited by check.
+     * <p>
+     * Leading white space is skipped, {@code >IN} is set behind the delimiter.
+     * The word found is the span of the returned length starting at
+     * {@link #spanStart}.
+     *
+     * @param check
+     *                  An expression to identify the delimiter
+     * @return the length of the span
+     */
+    protected int scan(CheckChar check) {
         // skip delimiter
         while (toIn < tibWord.length() && Character.isWhitespace(tibWord.charAt(toIn))) {
             toIn++;
         }
+        spanStart = toIn;
 
         // read to the next delimiter
         while (toIn < tibWord.length() && !check.isDelimiter(tibWord.charAt(toIn))) {
-            result.append(tibWord.charAt(toIn));
             toIn++;
         }
+        int length = toIn - spanStart;
         toIn++;
-        return result.toString();
+        return length;
     }
 
     /**
@@ -380,6 +518,42 @@ public class JemEngine implements Inspectable {
         dictionary.getCurrentWord().addPfaEntry(number);
     }
 
+    /**
+     * 6.2.0945 COMPILE, compiles a word into the current definition.
+     * <p>
+     * Short colon definitions are spliced into the current definition if an
+     * inliner is used, all other words are compiled by their xt.
+     *
+     * @param xt
+     *               execution token of the word to compile
+     */
+    public void compileComma(int xt) {
+        if (splicer == null || !splicer.splice(this, dictionary.getByXt(xt))) {
+            comma(xt);
+        }
+    }
+
+    /**
+     * Selects the rules for splicing colon definitions into their callers.
+     * <p>
+     * Affects only the definitions compiled later.
+     *
+     * @param inliner
+     *                    the rules to apply, {@code null} turns inlining off
+     */
+    public void useInliner(Inliner inliner) {
+        splicer = inliner != null ? inliner.resolve(dictionary) : null;
+    }
+
+    /**
+     * Checks whether short colon definitions are spliced into their callers.
+     *
+     * @return {@code true} if an inliner is used
+     */
+    public boolean isInlining() {
+        return splicer != null;
+    }
+
     /**
      * 6.1.0450 starts the definition of a colon word.
      */
@@ -396,6 +570,74 @@ public class JemEngine implements Inspectable {
         assertCompileState();
         comma(exitWord.xt());
         state = INTERPRET;
+        if (fusion != null && dictionary.getCurrentWord() instanceof ColonWord colonWord) {
+            fusion.fuse(colonWord);
+        }
+        if (stackChecker != null && dictionary.getCurrentWord() instanceof ColonWord colonWord) {
+            stackChecker.check(colonWord).forEach(w -> print(colonWord.name() + ": " + w + Const.CR));
+        }
+    }
+
+    /**
+     * Selects the checker for the stack effect of colon definitions.
+     * <p>
+     * The effects of the colon definitions in the dictionary are inferred
+     * without warnings, the ones compiled later are checked with {@code ;}.
+     *
+     * @param checker
+     *                    the checker to apply, {@code null} turns the check off
+     */
+    public void useStackChecker(StackChecker checker) {
+        stackChecker = checker != null ? checker.resolve(dictionary) : null;
+        for (Word word : dictionary.memory()) {
+            if (word instanceof ColonWord colonWord) {
+                if (stackChecker != null) {
+                    stackChecker.check(colonWord);
+                } else {
+                    colonWord.stackEffect(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the stack effect of colon definitions is checked.
+     *
+     * @return {@code true} if a stack checker is used
+     */
+    public boolean isCheckingStack() {
+        return stackChecker != null;
+    }
+
+    /**
+     * Selects the superinstructions fused into colon definitions.
+     * <p>
+     * All colon definitions in the dictionary are threaded again, the ones
+     * compiled later are fused with {@code ;}.
+     *
+     * @param table
+     *                  the patterns to fuse, {@code null} turns fusion off
+     */
+    public void useSuperinstructions(Superinstructions table) {
+        fusion = table != null ? table.resolve(dictionary) : null;
+        for (Word word : dictionary.memory()) {
+            if (word instanceof ColonWord colonWord) {
+                if (fusion != null) {
+                    fusion.fuse(colonWord);
+                } else {
+                    colonWord.unfuse();
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether superinstructions are fused into colon definitions.
+     *
+     * @return {@code true} if superinstructions are used
+     */
+    public boolean isUsingSuperinstructions() {
+        return fusion != null;
     }
 
     /**
@@ -405,7 +647,7 @@ public class JemEngine implements Inspectable {
      *                     name of the word to find
      * @return the word found or {@code null}
      */
-    protected Word find(String wordName) {
+    protected Word find(CharSequence wordName) {
         return dictionary.find(wordName);
     }
 
@@ -418,32 +660,16 @@ public class JemEngine implements Inspectable {
      *
      * @param token
      *                  token to convert
-     * @return converted token
+     * @return converted token, {@code Integer}, {@code Long} or {@code null}
      */
-    protected Number toLiteral(String token) {
-        if (Util.isEmpty(token)) {
+    protected Number toLiteral(CharSequence token) {
+        if (!numberParser.parse(token, base)) {
             return null;
         }
-        BiFunction<String, Integer, Number> convert = token.indexOf('.') > 0 ? Long::parseLong : Integer::parseInt;
-        String plainToken = token.replace(".", "");
-        try {
-            switch (plainToken.charAt(0)) {
-            case C_SHARP:
-                return convert.apply(plainToken.substring(1), 10);
-            case C_DOLLAR:
-                return convert.apply(plainToken.substring(1), 16);
-            case C_PERCENT:
-                return convert.apply(plainToken.substring(1), 2);
-            case C_TICK:
-                if (token.length() == 3 && token.charAt(2) == C_TICK) {
-                    return (int) token.charAt(1);
-                }
-            default:
-                return convert.apply(plainToken, base);
-            }
-        } catch (NumberFormatException e) {
-            return null;
+        if (numberParser.isDouble()) {
+            return numberParser.value();
         }
+        return (int) numberParser.value();
     }
 
     // Output Functions
@@ -468,6 +694,29 @@ public class JemEngine implements Inspectable {
         isCharAvailable = lambda;
     }
 
+    /**
+     * Replaces the hook executed before the engine terminates.
+     * <p>
+     * Environments use it to write buffered output.
+     *
+     * @param hook
+     *                 the code to run before termination
+     */
+    public void setTerminateHook(Runnable hook) {
+        terminateHook = hook;
+    }
+
+    /**
+     * Releases the resources held by the engine, like open files.
+     * <p>
+     * The engine can still be used, the resources are acquired again when
+     * needed.
+     */
+    @Override
+    public void close() {
+        // nothing to release
+    }
+
     @Override
     public void print(String str) {
         printStr.accept(str);
@@ -505,14 +754,48 @@ public class JemEngine implements Inspectable {
      * Executes a word.
      * <p>
      * Usually called once to start the outer interpreter loop.<br>
-     * May also be called to execute a word directly.
+     * May also be called to execute a word directly.<br>
+     * Without a debug callback the inner interpreter runs a loop that does not
+     * call the callback. Both loops leave when the callback is changed, so a
+     * callback set during execution takes effect with the next command.
      *
      * @param word
      *                 {@link Word}-Instance to execute
      */
     public void execute(Word word) {
         word.execute(this);
+        runInnerInterpreter();
+    }
+
+    /**
+     * Runs the inner interpreter until the ip is zero.
+     */
+    void runInnerInterpreter() {
         while (ip != 0) {
+            if (debugCallback == Callback.NOP) {
+                runUninstrumented();
+            } else {
+                runInstrumented();
+            }
+        }
+    }
+
+    /**
+     * Runs the inner interpreter as long as there is no debug callback.
+     */
+    private void runUninstrumented() {
+        while (ip != 0 && debugCallback == Callback.NOP) {
+            int currentPosition = ip;
+            ip = ip + CELL_SIZE;
+            dictionary.fetchWord(currentPosition).execute(this);
+        }
+    }
+
+    /**
+     * Runs the inner interpreter as long as there is a debug callback.
+     */
+    private void runInstrumented() {
+        while (ip != 0 && debugCallback != Callback.NOP) {
             _next();
         }
     }
@@ -531,7 +814,55 @@ public class JemEngine implements Inspectable {
     }
 
     /**
-     * Executes a command and advances the ip.
+     * Executes a colon definition.
+     * <p>
+     * Runs the compiled code if the JIT has compiled the word and there is no
+     * debug callback, otherwise the body is executed by the inner interpreter.
+     *
+     * @param word
+     *                 the colon definition
+     * @param pfa
+     *                 absolute address of the first cell of the word
+     */
+    public void enter(ColonWord word, int pfa) {
+        if (jit != null) {
+            Command<JemEngine> code = jit.code(word);
+            if (code != null && debugCallback == Callback.NOP) {
+                code.execute(this);
+                return;
+            }
+        }
+        docol(pfa);
+    }
+
+    /**
+     * Selects the compiler for frequently called colon definitions.
+     * <p>
+     * Code compiled before is discarded and all call counts start again.
+     *
+     * @param rules
+     *                  the rules of the compiler, {@code null} turns the JIT off
+     */
+    public void useJit(Jit rules) {
+        jit = rules != null ? rules.resolve(dictionary) : null;
+        for (Word word : dictionary.memory()) {
+            if (word instanceof ColonWord colonWord) {
+                colonWord.compiled(null);
+            }
+        }
+    }
+
+    /**
+     * Checks whether frequently called colon definitions are compiled.
+     *
+     * @return {@code true} if a JIT is used
+     */
+    public boolean isUsingJit() {
+        return jit != null;
+    }
+
+    /**
+     * Executes a command, advances the ip and calls the debug callback.
      */
     public void _next() {
         int currentPosition = ip;
@@ -590,6 +921,93 @@ public class JemEngine implements Inspectable {
         }
     }
 
+    /**
+     * Starts a counted loop.
+     * <p>
+     * Pushes the leave address from the operand cell, the limit and the index on
+     * the return stack.
+     */
+    protected void _do() {
+        int index = stack.iPop();
+        int limit = stack.iPop();
+        rStack.push(dictionary.fetch(ip));
+        rStack.push(limit);
+        rStack.push(index);
+        ip = ip + CELL_SIZE;
+    }
+
+    /**
+     * Starts a counted loop unless limit and index are equal.
+     * <p>
+     * With equal values the loop is skipped by branching to the leave address.
+     */
+    protected void _questionDo() {
+        if (stack.peek(0) == stack.peek(1)) {
+            stack.iPop();
+            stack.iPop();
+            _branch();
+        } else {
+            _do();
+        }
+    }
+
+    /**
+     * Increments the loop index and branches to the loop body until the limit is
+     * reached.
+     */
+    protected void _loop() {
+        int index = rStack.pop() + 1;
+        if (index == rStack.peek(1)) {
+            rStack.pop();
+            rStack.pop();
+            ip = ip + CELL_SIZE;
+        } else {
+            rStack.push(index);
+            _branch();
+        }
+    }
+
+    /**
+     * Adds to the loop index and branches to the loop body until the limit is
+     * crossed.
+     * <p>
+     * The loop ends when the index crosses the boundary between limit - 1 and
+     * limit in either direction, as defined in the 2012 standard.
+     *
+     * @param increment
+     *                      value to add to the index
+     */
+    protected void _plusLoop(int increment) {
+        int index = rStack.pop();
+        int offset = index - rStack.peek(1);
+        if (((offset ^ (offset + increment)) & (offset ^ increment)) < 0) {
+            rStack.pop();
+            rStack.pop();
+            ip = ip + CELL_SIZE;
+        } else {
+            rStack.push(index + increment);
+            _branch();
+        }
+    }
+
+    /**
+     * Leaves the innermost loop and continues behind the loop.
+     */
+    protected void _leave() {
+        rStack.pop();
+        rStack.pop();
+        ip = rStack.pop();
+    }
+
+    /**
+     * Removes the loop-sys of the innermost loop from the return stack.
+     */
+    protected void _unloop() {
+        rStack.pop();
+        rStack.pop();
+        rStack.pop();
+    }
+
     /**
      * 6.1.2520 [CHAR]
      * <p>
@@ -635,10 +1053,8 @@ public class JemEngine implements Inspectable {
         } else {
             // interpretation means execution of defining word
             // must push address of defined word when later executed...
-            Word word = dictionary.getCurrentWord();
             int runtimeAddress = ip + CELL_SIZE; // jump over exit
-            int pfaOfCurrentWord = word.xt() + CELL_SIZE;
-            word.cfa = c -> c.doDoesTo(pfaOfCurrentWord, runtimeAddress);
+            dictionary.getCurrentWord().doesTo(runtimeAddress);
             comma(exitWord.xt());
         }
     }
@@ -652,22 +1068,29 @@ public class JemEngine implements Inspectable {
      * string to a literal.
      */
     protected void toLiteral() {
-        Integer numString = stack.pop();
-        Number number = toLiteral(dictionary.findString(numString));
-        if (number == null) {
+        int numString = stack.pop();
+        StringWord token = (StringWord) dictionary.findWordContainingPfa(numString);
+        if (!numberParser.parse(token.content(), base)) {
             stack.push(numString);
             stack.push(ZERO);
         } else {
-            stack.push(number);
+            if (numberParser.isDouble()) {
+                stack.dPush(numberParser.value());
+            } else {
+                stack.push((int) numberParser.value());
+            }
             stack.push(ONE);
         }
     }
 
     /**
      * Pushes the nth element from the return stack to the data stack.
+     * <p>
+     * Used by the loop index words {@code I}, {@code J} and {@code K}, so this is a
+     * direct array access without boxing.
      *
      * @param n
-     *              the index of the element starting an 0 (top of stack)
+     *              the index of the element starting at 1 (top of stack)
      */
     public void rPeek(int n) {
         stack.push(rStack.peek(n));
@@ -749,7 +1172,12 @@ public class JemEngine implements Inspectable {
      * @return the added {@link Word}-Object
      */
     public Word add(Word word) {
-        dictionary.add(word);
+        if (image != null) {
+            image.bind(word);
+        } else {
+            dictionary.add(word);
+        }
+        javaWords.set(getMemoryMapper().toWordIdentifier(word.xt()));
         return word;
     }
 
@@ -761,8 +1189,50 @@ public class JemEngine implements Inspectable {
      * @return the added {@link Word}-Object
      */
     public Word add(String definition) {
-        process(definition);
-        return dictionary.getCurrentWord();
+        if (image != null) {
+            image.restoreDefinition();
+        } else {
+            process(definition);
+        }
+        Word current = dictionary.getCurrentWord();
+        List<Word> memory = dictionary.memory();
+        definitions.add(new EngineImage.Definition( //
+                memory.isEmpty() ? 0 : getMemoryMapper().toWordIdentifier(memory.get(memory.size() - 1).xt()), //
+                current != null ? current.xt() : 0));
+        return current;
+    }
+
+    /**
+     * Completes the restoration of an image.
+     * <p>
+     * Restores the words defined after construction and the engine variables.
+     * Does nothing if the engine was not created from an image.
+     */
+    protected void imageRestored() {
+        if (image != null) {
+            image.finish();
+            image = null;
+        }
+    }
+
+    /**
+     * Checks whether the word was added as java object by the engine.
+     *
+     * @param word
+     *                 a word of the dictionary
+     * @return {@code true} if the word is rebound when an image is loaded
+     */
+    boolean isJavaWord(Word word) {
+        return javaWords.get(getMemoryMapper().toWordIdentifier(word.xt()));
+    }
+
+    /**
+     * Gets the definitions compiled by {@link #add(String)}.
+     *
+     * @return list of definitions in compilation order
+     */
+    List<EngineImage.Definition> definitions() {
+        return definitions;
     }
 
     /**
@@ -792,7 +1262,7 @@ public class JemEngine implements Inspectable {
         return getDictionary().memoryMapper();
     }
 
-    public void push(Integer value) {
+    public void push(int value) {
         stack.push(value);
     }
 }
@@ -0,0 +1,855 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntBinaryOperator;
+
+import io.github.mletkin.jemforth.engine.words.ColonWord;
+import io.github.mletkin.jemforth.engine.words.Dictionary;
+import io.github.mletkin.jemforth.engine.words.Word;
+
+/**
+ * Tiered compiler of colon definitions to JVM bytecode.
+ * <p>
+ * A colon definition starts in the inner interpreter. Each call is counted and
+ * when the count reaches the threshold the body is compiled to a hidden class
+ * implementing {@link Command}. The following calls execute the compiled code
+ * as long as no debug callback is set. The compiled code
+ * <ul>
+ * <li>keeps the values of the data stack in local variables as long as
+ * possible and computes arithmetic, logic, comparison and stack words in
+ * bytecode
+ * <li>compiles {@code BRANCH} and {@code ?BRANCH} to jumps
+ * <li>keeps index and limit of counted loops in local variables, the loop
+ * frame is not pushed on the return stack
+ * <li>calls all other words through their {@link Command}
+ * </ul>
+ * In the mode {@link Mode#METHOD_HANDLES} no bytecode is generated for the
+ * body. The {@link Command}s of the words are composed to a chain of method
+ * handles instead, which the JVM can inline like a straight-line sequence of
+ * calls. Only bodies without branches and loops are composed this way.
+ * A body is not compiled if it contains a refused word, a call of the word
+ * itself, an unknown cell, a loop word whose frame can not be found or a
+ * return stack access below the return address. The same is true for calls
+ * of colon definitions that take more from the return stack than they put on
+ * it. These words stay in the inner interpreter. Operand cells and return
+ * stack effects are taken from the {@link CellDecoder}.
+ * <p>
+ * Compiled code pushes no return address, the call frames of compiled words
+ * and of the loops they run are elided. Words inspecting the whole return
+ * stack, like {@code .RSTACK}, show fewer cells than in the inner
+ * interpreter.
+ * <p>
+ * Storing into a cell of a compiled word -- for example with {@code !} --
+ * discards the compiled code, the word is interpreted and counted again.
+ */
+public final class Jit {
+
+    /**
+     * Threshold used by the standard rules.
+     */
+    public static final int DEFAULT_THRESHOLD = 1000;
+
+    private static final String CODE = "io/github/mletkin/jemforth/engine/JitCode";
+    private static final String COMMAND = "io/github/mletkin/jemforth/engine/Command";
+    private static final String ENGINE = "io/github/mletkin/jemforth/engine/JemEngine";
+    private static final String STACK = "io/github/mletkin/jemforth/engine/IntegerStack";
+    private static final String WORD = "io/github/mletkin/jemforth/engine/words/Word";
+    private static final String JIT = "io/github/mletkin/jemforth/engine/Jit";
+    private static final String WORDS = "[L" + WORD + ";";
+
+    /**
+     * Words compiled to bytecode by name.
+     */
+    private enum Op {
+        PLUS("+"), MINUS("-"), TIMES("*"), AND("AND"), OR("OR"), XOR("XOR"), //
+        EQ("="), LT("<"), GT(">"), ZERO_EQ("0="), ZERO_LT("0<"), NEGATE("NEGATE"), //
+        DUP("DUP"), DROP("DROP"), SWAP("SWAP"), OVER("OVER"), ROT("ROT"), //
+        LITERAL("(LITERAL)"), STRLITERAL("(STRLITERAL)"), BRANCH("BRANCH"), ZBRANCH("?BRANCH"), //
+        DO("(DO)"), QDO("(?DO)"), LOOP("(LOOP)"), PLOOP("(+LOOP)"), LEAVE("(LEAVE)"), UNLOOP("UNLOOP"), //
+        I("I"), J("J"), K("K"), EXIT("EXIT");
+
+        private final String word;
+
+        Op(String word) {
+            this.word = word;
+        }
+    }
+
+    /**
+     * The way a body is compiled.
+     */
+    public enum Mode {
+        /**
+         * Generates bytecode for the body.
+         */
+        BYTECODE,
+        /**
+         * Composes the commands of a straight-line body to a method handle.
+         */
+        METHOD_HANDLES
+    }
+
+    /**
+     * Number of calls before a word is compiled.
+     */
+    private final int threshold;
+
+    /**
+     * The way a body is compiled.
+     */
+    private Mode mode = Mode.BYTECODE;
+
+    /**
+     * Names of the words that prevent compilation.
+     */
+    private final Set<String> refused = new HashSet<>();
+
+    /**
+     * Description of the cells of a body.
+     */
+    private CellDecoder decoder = CellDecoder.standard();
+
+    /**
+     * Creates an empty rule set.
+     *
+     * @param threshold
+     *                      number of calls before a word is compiled
+     */
+    public Jit(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Creates the rules used by default with the default threshold.
+     *
+     * @return a new rule set
+     */
+    public static Jit standard() {
+        return standard(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates the rules used by default.
+     *
+     * @param threshold
+     *                      number of calls before a word is compiled
+     * @return a new rule set
+     */
+    public static Jit standard(int threshold) {
+        return new Jit(threshold) //
+                .refuse("COMPILE", "DOES>", "IP", "RP!");
+    }
+
+    /**
+     * Selects the way a body is compiled.
+     *
+     * @param mode
+     *                 the compilation mode
+     * @return the rule set
+     */
+    public Jit mode(Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    /**
+     * Declares words that prevent compilation of a body.
+     * <p>
+     * Java words that read or change the ip must be refused.
+     *
+     * @param names
+     *                  names of the words
+     * @return the rule set
+     */
+    public Jit refuse(String... names) {
+        refused.addAll(List.of(names));
+        return this;
+    }
+
+    /**
+     * Replaces the description of the cells of a body.
+     *
+     * @param decoder
+     *                    the decoder, {@link CellDecoder#standard()} by default
+     * @return the rule set
+     */
+    public Jit decoder(CellDecoder decoder) {
+        this.decoder = decoder;
+        return this;
+    }
+
+    /**
+     * Resolves the word names of the rule set.
+     * <p>
+     * Unknown names are ignored.
+     *
+     * @param dictionary
+     *                       dictionary to look up the words
+     * @return the rule set bound to the dictionary
+     */
+    Compiler resolve(Dictionary dictionary) {
+        return new Compiler(dictionary);
+    }
+
+    /**
+     * Executes a word called from compiled code.
+     * <p>
+     * The word runs in a nested inner interpreter, a colon definition returns
+     * to the compiled code when its {@code EXIT} restores the ip zero.
+     *
+     * @param c
+     *                 the engine
+     * @param word
+     *                 the word to execute
+     */
+    static void call(JemEngine c, Word word) {
+        int caller = c.ip;
+        c.ip = 0;
+        c.execute(word);
+        c.ip = caller;
+    }
+
+    /**
+     * Executes the command of a word called from a method handle chain.
+     * <p>
+     * A command that changes the ip -- like {@code EXECUTE} with a colon
+     * definition -- continues in a nested inner interpreter.
+     *
+     * @param c
+     *                    the engine
+     * @param command
+     *                    the command to execute
+     */
+    static void call(JemEngine c, Command<JemEngine> command) {
+        int caller = c.ip;
+        c.ip = 0;
+        command.execute(c);
+        c.runInnerInterpreter();
+        c.ip = caller;
+    }
+
+    /**
+     * Pushes a literal in a method handle chain.
+     *
+     * @param c
+     *                  the engine
+     * @param value
+     *                  the value to push
+     */
+    static void push(JemEngine c, int value) {
+        c.stack.push(value);
+    }
+
+    /**
+     * The rule set bound to the words of a dictionary.
+     */
+    final class Compiler {
+
+        private final Dictionary dictionary;
+        private final CellDecoder.Decoder decoder;
+        private final Map<Integer, Op> ops = new HashMap<>();
+        private final Set<Integer> refusedXts;
+
+        private Compiler(Dictionary dictionary) {
+            this.dictionary = dictionary;
+            this.decoder = Jit.this.decoder.resolve(dictionary);
+            for (Op op : Op.values()) {
+                Word word = dictionary.find(op.word);
+                if (word != null && !(word instanceof ColonWord)) {
+                    ops.put(word.xt(), op);
+                }
+            }
+            refusedXts = decoder.xts(refused);
+        }
+
+        /**
+         * Counts a call of a word and gets its compiled code.
+         * <p>
+         * The word is compiled when the count reaches the threshold. A word
+         * that can not be compiled is not tried again until its count is reset.
+         *
+         * @param word
+         *                 the word called
+         * @return the compiled code or {@code null}
+         */
+        Command<JemEngine> code(ColonWord word) {
+            Command<JemEngine> code = word.compiled();
+            if (code == null && word.countInvocation() == threshold) {
+                code = compile(word);
+                if (code != null) {
+                    word.compiled(code);
+                }
+            }
+            return code;
+        }
+
+        /**
+         * Compiles a colon definition to bytecode.
+         *
+         * @param word
+         *                 the colon definition
+         * @return the compiled code or {@code null} if the word is refused
+         */
+        Command<JemEngine> compile(ColonWord word) {
+            if (word.doesAddress() != null) {
+                return null;
+            }
+            Body body = new Body(word);
+            if (!body.analyze()) {
+                return null;
+            }
+            try {
+                return mode == Mode.METHOD_HANDLES ? new Composer(body).compose() : generate(body);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return null;
+            }
+        }
+
+        private Command<JemEngine> generate(Body body) throws ReflectiveOperationException {
+            byte[] bytes = new Generator(body).generate();
+            if (bytes == null) {
+                return null;
+            }
+            Class<?> code = MethodHandles.lookup().defineHiddenClass(bytes, true).lookupClass();
+            @SuppressWarnings("unchecked")
+            Command<JemEngine> command = (Command<JemEngine>) code.getConstructor(Word[].class)
+                    .newInstance((Object) body.callees);
+            return command;
+        }
+
+        /**
+         * Checks that a called colon definition does not reach below its own
+         * return address.
+         */
+        private boolean isBalanced(Word callee) {
+            if (!(callee instanceof ColonWord colon)) {
+                return true;
+            }
+            int[] cells = decoder.cells(colon);
+            return decoder.returnDepth(cells, cells.length) >= 0;
+        }
+
+        /**
+         * The decoded cells of a colon definition.
+         */
+        private final class Body {
+
+            private final ColonWord word;
+            private final int[] cells;
+            private final Op[] op;
+            private final int[] operand;
+            private final boolean[] target;
+            private final Word[] callees;
+
+            private record Loop(int start, int leave, int depth) {
+            }
+
+            private Body(ColonWord word) {
+                this.word = word;
+                this.cells = decoder.cells(word);
+                this.op = new Op[cells.length];
+                this.operand = new int[cells.length];
+                this.target = new boolean[cells.length];
+                this.callees = new Word[cells.length];
+            }
+
+            /**
+             * Decodes the cells and checks whether they can be compiled.
+             */
+            private boolean analyze() {
+                boolean[] start = new boolean[cells.length];
+                Deque<Loop> loops = new ArrayDeque<>();
+                int depth = 0;
+                Op last = null;
+                for (int n = 0; n < cells.length; n++) {
+                    int xt = cells[n];
+                    Word callee = dictionary.getByXt(xt);
+                    if (callee == null || xt == word.xt() || refusedXts.contains(xt)) {
+                        return false;
+                    }
+                    start[n] = true;
+                    int[] effect = decoder.returnStack(xt);
+                    if (effect != null) {
+                        if (depth < effect[0]) {
+                            return false;
+                        }
+                        depth += effect[1] - effect[0];
+                    }
+                    last = op[n] = ops.get(xt);
+                    if (last == null) {
+                        if (!isBalanced(callee)) {
+                            return false;
+                        }
+                        callees[n] = callee;
+                        continue;
+                    }
+                    switch (last) {
+                    case LITERAL, STRLITERAL -> {
+                        if (n + 1 >= cells.length) {
+                            return false;
+                        }
+                        operand[n] = cells[n + 1];
+                    }
+                    case BRANCH, ZBRANCH, DO, QDO, LOOP, PLOOP -> {
+                        operand[n] = n + 1 < cells.length ? decoder.index(word, cells[n + 1]) : -1;
+                        if (operand[n] < 0) {
+                            return false;
+                        }
+                    }
+                    case LEAVE, UNLOOP -> {
+                        if (loops.isEmpty() || depth != 0) {
+                            return false;
+                        }
+                        operand[n] = loops.peek().leave;
+                    }
+                    case I, J, K -> {
+                        int level = last.ordinal() - Op.I.ordinal();
+                        if (loops.size() <= level || depth != 0) {
+                            return false;
+                        }
+                        Iterator<Loop> outer = loops.iterator();
+                        Loop loop = outer.next();
+                        for (int k = 0; k < level; k++) {
+                            if (loop.depth != 0) {
+                                return false;
+                            }
+                            loop = outer.next();
+                        }
+                        operand[n] = loop.start;
+                    }
+                    default -> {
+                    }
+                    }
+                    if (last == Op.DO || last == Op.QDO) {
+                        loops.push(new Loop(n, operand[n], depth));
+                        depth = 0;
+                    } else if (last == Op.LOOP || last == Op.PLOOP) {
+                        Loop loop = loops.poll();
+                        if (loop == null || depth != 0 || operand[n] != loop.start + 2 || loop.leave != n + 2) {
+                            return false;
+                        }
+                        operand[n] = loop.start;
+                        depth = loop.depth;
+                    } else if (last == Op.BRANCH || last == Op.ZBRANCH) {
+                        target[operand[n]] = true;
+                    }
+                    n += decoder.operands(xt);
+                }
+                if (last != Op.EXIT || !loops.isEmpty()) {
+                    return false;
+                }
+                for (int n = 0; n < cells.length; n++) {
+                    if (op[n] == Op.DO || op[n] == Op.QDO) {
+                        target[n + 2] = true;
+                        target[operand[n]] = true;
+                    }
+                    if (target[n] && !start[n]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+
+        /**
+         * Composes the commands of a straight-line body to a method handle.
+         * <p>
+         * The handle is stored in a constant of a hidden class, so the JVM
+         * sees the whole chain when it compiles the class.
+         */
+        private final class Composer {
+
+            private final Body body;
+
+            private Composer(Body body) {
+                this.body = body;
+            }
+
+            /**
+             * Composes the body.
+             *
+             * @return the command running the chain or {@code null} if the body
+             *         has a branch or a loop
+             */
+            private Command<JemEngine> compose() throws ReflectiveOperationException {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodType step = MethodType.methodType(void.class, JemEngine.class);
+                MethodHandle push = lookup.findStatic(Jit.class, "push", step.appendParameterTypes(int.class));
+                MethodHandle callWord = lookup.findStatic(Jit.class, "call", step.appendParameterTypes(Word.class));
+                MethodHandle callCommand = lookup.findStatic(Jit.class, "call",
+                        step.appendParameterTypes(Command.class));
+                MethodHandle chain = MethodHandles.empty(step);
+                for (int n = 0; n < body.cells.length; n++) {
+                    Op op = body.op[n];
+                    Word word = body.callees[n];
+                    MethodHandle handle;
+                    if (op == Op.EXIT) {
+                        return n == body.cells.length - 1 ? define(chain) : null;
+                    } else if (op == Op.LITERAL || op == Op.STRLITERAL) {
+                        handle = MethodHandles.insertArguments(push, 1, body.operand[n]);
+                        n++;
+                    } else if (op != null && op.ordinal() >= Op.BRANCH.ordinal()) {
+                        return null;
+                    } else {
+                        word = word != null ? word : dictionary.getByXt(body.cells[n]);
+                        handle = word instanceof ColonWord || word.doesAddress() != null //
+                                ? MethodHandles.insertArguments(callWord, 1, word)
+                                : MethodHandles.insertArguments(callCommand, 1, word.cfa);
+                    }
+                    chain = MethodHandles.foldArguments(handle, chain);
+                }
+                return null;
+            }
+
+            /**
+             * Defines a hidden class executing the chain.
+             */
+            private Command<JemEngine> define(MethodHandle chain) throws ReflectiveOperationException {
+                String handle = "java/lang/invoke/MethodHandle";
+                String handles = "java/lang/invoke/MethodHandles";
+                String lookup = "java/lang/invoke/MethodHandles$Lookup";
+                ClassFile classFile = new ClassFile(CODE, "java/lang/Object", COMMAND);
+                classFile.field(ClassFile.ACC_PRIVATE | ClassFile.ACC_STATIC | ClassFile.ACC_FINAL, "h",
+                        "L" + handle + ";");
+
+                ClassFile.Code init = classFile.method(ClassFile.ACC_STATIC, "<clinit>", "()V");
+                init.op(ClassFile.INVOKESTATIC, classFile.methodRef(handles, "lookup", "()L" + lookup + ";"));
+                init.ldc("_");
+                init.ldcClass(handle);
+                init.op(ClassFile.INVOKESTATIC, classFile.methodRef(handles, "classData",
+                        "(L" + lookup + ";Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;"));
+                init.op(ClassFile.CHECKCAST, classFile.classRef(handle));
+                init.op(ClassFile.PUTSTATIC, classFile.fieldRef(CODE, "h", "L" + handle + ";"));
+                init.op(ClassFile.RETURN);
+
+                ClassFile.Code constructor = classFile.method(ClassFile.ACC_PUBLIC, "<init>", "()V");
+                constructor.aload(0);
+                constructor.op(ClassFile.INVOKESPECIAL, classFile.methodRef("java/lang/Object", "<init>", "()V"));
+                constructor.op(ClassFile.RETURN);
+                constructor.maxLocals(1);
+
+                ClassFile.Code execute = classFile.method(ClassFile.ACC_PUBLIC, "execute", "(L" + ENGINE + ";)V");
+                execute.op(ClassFile.GETSTATIC, classFile.fieldRef(CODE, "h", "L" + handle + ";"));
+                execute.aload(1);
+                execute.op(ClassFile.INVOKEVIRTUAL, classFile.methodRef(handle, "invokeExact", "(L" + ENGINE + ";)V"));
+                execute.op(ClassFile.RETURN);
+                execute.maxLocals(2);
+
+                Class<?> code = MethodHandles.lookup()
+                        .defineHiddenClassWithClassData(classFile.toBytes(), chain, true).lookupClass();
+                @SuppressWarnings("unchecked")
+                Command<JemEngine> command = (Command<JemEngine>) code.getConstructor().newInstance();
+                return command;
+            }
+        }
+
+        /**
+         * Writes the class file for a decoded body.
+         * <p>
+         * The data stack values of a basic block are kept in a virtual stack of
+         * constants and local variables. The virtual stack is pushed on the
+         * data stack before a call, a jump and at a jump target.
+         */
+        private final class Generator {
+
+            private final Body body;
+            private final ClassFile classFile = new ClassFile(CODE, "java/lang/Object", COMMAND);
+            private final ClassFile.Code code;
+            private final ClassFile.Label[] labels;
+            private final List<int[]> items = new ArrayList<>();
+            private final int[] loopIndex;
+            private final int[] loopLimit;
+            private final int pop;
+            private final int push;
+            private int locals = 3;
+
+            private Generator(Body body) {
+                this.body = body;
+                this.labels = new ClassFile.Label[body.cells.length];
+                this.loopIndex = new int[body.cells.length];
+                this.loopLimit = new int[body.cells.length];
+                this.pop = classFile.methodRef(STACK, "pop", "()I");
+                this.push = classFile.methodRef(STACK, "push", "(I)V");
+                classFile.field(ClassFile.ACC_PRIVATE | ClassFile.ACC_FINAL, "w", WORDS);
+                constructor();
+                this.code = classFile.method(ClassFile.ACC_PUBLIC, "execute", "(L" + ENGINE + ";)V");
+            }
+
+            private void constructor() {
+                ClassFile.Code init = classFile.method(ClassFile.ACC_PUBLIC, "<init>", "(" + WORDS + ")V");
+                init.aload(0);
+                init.op(ClassFile.INVOKESPECIAL, classFile.methodRef("java/lang/Object", "<init>", "()V"));
+                init.aload(0);
+                init.aload(1);
+                init.op(ClassFile.PUTFIELD, classFile.fieldRef(CODE, "w", WORDS));
+                init.op(ClassFile.RETURN);
+                init.maxLocals(2);
+            }
+
+            /**
+             * Generates the class file.
+             *
+             * @return the class file or {@code null} if the code is too large
+             */
+            private byte[] generate() {
+                for (int n = 0; n < labels.length; n++) {
+                    labels[n] = new ClassFile.Label();
+                }
+                code.aload(1);
+                code.op(ClassFile.GETFIELD, classFile.fieldRef(ENGINE, "stack", "L" + STACK + ";"));
+                code.astore(2);
+                for (int n = 0; n < body.cells.length; n++) {
+                    if (body.op[n] == null && body.callees[n] == null) {
+                        continue;
+                    }
+                    if (body.target[n]) {
+                        flush();
+                        code.mark(labels[n]);
+                    }
+                    if (body.op[n] == null) {
+                        call(n);
+                    } else {
+                        step(body.op[n], body.operand[n], n);
+                    }
+                }
+                code.maxLocals(locals);
+                return code.size() <= Short.MAX_VALUE && locals <= 0xFFFF ? classFile.toBytes() : null;
+            }
+
+            private void call(int n) {
+                flush();
+                code.aload(1);
+                code.aload(0);
+                code.op(ClassFile.GETFIELD, classFile.fieldRef(CODE, "w", WORDS));
+                code.iconst(n);
+                code.op(ClassFile.AALOAD);
+                code.op(ClassFile.INVOKESTATIC, classFile.methodRef(JIT, "call", "(L" + ENGINE + ";L" + WORD + ";)V"));
+            }
+
+            private void step(Op op, int operand, int n) {
+                switch (op) {
+                case PLUS -> binary(ClassFile.IADD, (a, b) -> a + b);
+                case MINUS -> binary(ClassFile.ISUB, (a, b) -> a - b);
+                case TIMES -> binary(ClassFile.IMUL, (a, b) -> a * b);
+                case AND -> binary(ClassFile.IAND, (a, b) -> a & b);
+                case OR -> binary(ClassFile.IOR, (a, b) -> a | b);
+                case XOR -> binary(ClassFile.IXOR, (a, b) -> a ^ b);
+                case EQ -> compare(ClassFile.IF_ICMPEQ, (a, b) -> a == b ? -1 : 0);
+                case LT -> compare(ClassFile.IF_ICMPLT, (a, b) -> a < b ? -1 : 0);
+                case GT -> compare(ClassFile.IF_ICMPGT, (a, b) -> a > b ? -1 : 0);
+                case ZERO_EQ -> {
+                    load(pop());
+                    code.flag(ClassFile.IFEQ);
+                    items.add(store());
+                }
+                case ZERO_LT -> {
+                    load(pop());
+                    code.flag(ClassFile.IFLT);
+                    items.add(store());
+                }
+                case NEGATE -> {
+                    load(pop());
+                    code.op(ClassFile.INEG);
+                    items.add(store());
+                }
+                case DUP -> {
+                    need(1);
+                    items.add(items.get(items.size() - 1));
+                }
+                case DROP -> {
+                    if (items.isEmpty()) {
+                        code.aload(2);
+                        code.op(ClassFile.INVOKEVIRTUAL, pop);
+                        code.op(ClassFile.POP);
+                    } else {
+                        items.remove(items.size() - 1);
+                    }
+                }
+                case SWAP -> {
+                    need(2);
+                    items.add(items.remove(items.size() - 2));
+                }
+                case OVER -> {
+                    need(2);
+                    items.add(items.get(items.size() - 2));
+                }
+                case ROT -> {
+                    need(3);
+                    items.add(items.remove(items.size() - 3));
+                }
+                case LITERAL, STRLITERAL -> items.add(constant(operand));
+                case BRANCH -> {
+                    flush();
+                    code.jump(ClassFile.GOTO, labels[operand]);
+                }
+                case ZBRANCH -> {
+                    load(pop());
+                    flush();
+                    code.jump(ClassFile.IFEQ, labels[operand]);
+                }
+                case DO, QDO -> {
+                    loopIndex[n] = locals++;
+                    loopLimit[n] = locals++;
+                    load(pop());
+                    code.istore(loopIndex[n]);
+                    load(pop());
+                    code.istore(loopLimit[n]);
+                    if (op == Op.QDO) {
+                        flush();
+                        code.iload(loopIndex[n]);
+                        code.iload(loopLimit[n]);
+                        code.jump(ClassFile.IF_ICMPEQ, labels[operand]);
+                    }
+                }
+                case LOOP -> {
+                    flush();
+                    code.iload(loopIndex[operand]);
+                    code.iconst(1);
+                    code.op(ClassFile.IADD);
+                    code.istore(loopIndex[operand]);
+                    code.iload(loopIndex[operand]);
+                    code.iload(loopLimit[operand]);
+                    code.jump(ClassFile.IF_ICMPNE, labels[operand + 2]);
+                }
+                case PLOOP -> plusLoop(operand);
+                case LEAVE -> {
+                    flush();
+                    code.jump(ClassFile.GOTO, labels[operand]);
+                }
+                case UNLOOP -> {
+                }
+                case I, J, K -> items.add(new int[] { 0, loopIndex[operand] });
+                case EXIT -> {
+                    flush();
+                    code.op(ClassFile.RETURN);
+                }
+                }
+            }
+
+            /**
+             * Steps the loop and branches back unless the index crosses the
+             * boundary between limit-1 and limit.
+             */
+            private void plusLoop(int start) {
+                load(pop());
+                int increment = locals++;
+                int offset = locals++;
+                code.istore(increment);
+                flush();
+                code.iload(loopIndex[start]);
+                code.iload(loopLimit[start]);
+                code.op(ClassFile.ISUB);
+                code.istore(offset);
+                code.iload(loopIndex[start]);
+                code.iload(increment);
+                code.op(ClassFile.IADD);
+                code.istore(loopIndex[start]);
+                code.iload(offset);
+                code.iload(offset);
+                code.iload(increment);
+                code.op(ClassFile.IADD);
+                code.op(ClassFile.IXOR);
+                code.iload(offset);
+                code.iload(increment);
+                code.op(ClassFile.IXOR);
+                code.op(ClassFile.IAND);
+                code.jump(ClassFile.IFGE, labels[start + 2]);
+            }
+
+            private void binary(int opcode, IntBinaryOperator fold) {
+                int[] b = pop();
+                int[] a = pop();
+                if (a[0] == 1 && b[0] == 1) {
+                    items.add(constant(fold.applyAsInt(a[1], b[1])));
+                } else {
+                    load(a);
+                    load(b);
+                    code.op(opcode);
+                    items.add(store());
+                }
+            }
+
+            private void compare(int opcode, IntBinaryOperator fold) {
+                int[] b = pop();
+                int[] a = pop();
+                if (a[0] == 1 && b[0] == 1) {
+                    items.add(constant(fold.applyAsInt(a[1], b[1])));
+                } else {
+                    load(a);
+                    load(b);
+                    code.flag(opcode);
+                    items.add(store());
+                }
+            }
+
+            /**
+             * Creates a virtual stack item for a constant.
+             */
+            private int[] constant(int value) {
+                return new int[] { 1, value };
+            }
+
+            /**
+             * Stores the top of the JVM stack into a new local variable.
+             */
+            private int[] store() {
+                int local = locals++;
+                code.istore(local);
+                return new int[] { 0, local };
+            }
+
+            private void load(int[] item) {
+                if (item[0] == 1) {
+                    code.iconst(item[1]);
+                } else {
+                    code.iload(item[1]);
+                }
+            }
+
+            private int[] pop() {
+                need(1);
+                return items.remove(items.size() - 1);
+            }
+
+            /**
+             * Moves values from the data stack to the bottom of the virtual
+             * stack until it holds the given number of values.
+             */
+            private void need(int count) {
+                while (items.size() < count) {
+                    code.aload(2);
+                    code.op(ClassFile.INVOKEVIRTUAL, pop);
+                    items.add(0, store());
+                }
+            }
+
+            /**
+             * Pushes the virtual stack on the data stack.
+             */
+            private void flush() {
+                for (int[] item : items) {
+                    code.aload(2);
+                    load(item);
+                    code.op(ClassFile.INVOKEVIRTUAL, push);
+                }
+                items.clear();
+            }
+        }
+    }
+}
@@ -128,6 +128,28 @@ public class MemoryMapper {
         return ptr++ << WORD_OFFSET_IN_BITS;
     }
 
+    /**
+     * Gets the locator for the next free word without allocating the word.
+     *
+     * @return the first byte of the first cell in the next available word section.
+     */
+    public int peekNextMemoryLocator() {
+        return ptr << WORD_OFFSET_IN_BITS;
+    }
+
+    /**
+     * Skips all word sections below the given locator.
+     * <p>
+     * Used when a dictionary is restored, to reproduce the gaps left by
+     * forgotten words. Word sections are never allocated twice.
+     *
+     * @param locator
+     *                    locator of the next word section to allocate
+     */
+    public void skipTo(int locator) {
+        ptr = Math.max(ptr, toWordIdentifier(locator));
+    }
+
     /**
      * Extracts the xt of a word definition from the locator.
      *
@@ -139,6 +161,20 @@ public class MemoryMapper {
         return locator & WORD_MASK;
     }
 
+    /**
+     * Extracts the word identifier from the locator.
+     * <p>
+     * The identifier is the xt shifted to the lowest bits, so it can be used as
+     * array index.
+     *
+     * @param locator
+     *                    locator containing the word identifier
+     * @return the word identifier
+     */
+    public int toWordIdentifier(int locator) {
+        return locator >>> WORD_OFFSET_IN_BITS;
+    }
+
     /**
      * Extracts the position of a cell in a word definition from a locator.
      * <p>
@@ -0,0 +1,139 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine;
+
+/**
+ * Recognizes numeric literals in a single pass.
+ * <ul>
+ * <li>2012 std: the prefixes {@code #}, {@code $} and {@code %} select
+ * decimal, hex and binary ignoring the BASE
+ * <li>{@code 'c'} is the code of the character c
+ * <li>a sign may follow the prefix
+ * <li>a "." after the first character means double precision, dots are
+ * ignored for the value
+ * </ul>
+ * Neither strings nor exceptions are created. The result of the last
+ * successful conversion is kept in the parser, so an instance must not be
+ * shared between threads.
+ */
+public final class NumberParser {
+
+    private static final char C_SHARP = '#';
+    private static final char C_DOLLAR = '$';
+    private static final char C_PERCENT = '%';
+    private static final char C_TICK = '\'';
+    private static final char C_DOT = '.';
+
+    private long value;
+    private boolean isDouble;
+
+    /**
+     * Tries to convert a token to a number.
+     *
+     * @param token
+     *                  token to convert
+     * @param base
+     *                  the radix used for tokens without prefix
+     * @return {@code true} iff the token is a number
+     */
+    public boolean parse(CharSequence token, int base) {
+        int length = token.length();
+        if (length == 0) {
+            return false;
+        }
+        int position = 1;
+        int radix = base;
+        switch (token.charAt(0)) {
+        case C_SHARP:
+            radix = 10;
+            break;
+        case C_DOLLAR:
+            radix = 16;
+            break;
+        case C_PERCENT:
+            radix = 2;
+            break;
+        case C_TICK:
+            if (length == 3 && token.charAt(2) == C_TICK) {
+                value = token.charAt(1);
+                isDouble = false;
+                return true;
+            }
+            return false;
+        default:
+            position = 0;
+        }
+        if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX) {
+            return false;
+        }
+        return parseDigits(token, position, radix);
+    }
+
+    private boolean parseDigits(CharSequence token, int position, int radix) {
+        boolean dot = false;
+        boolean negative = false;
+        boolean signAllowed = true;
+        boolean digits = false;
+        long result = 0;
+        long limit = -Long.MAX_VALUE;
+        long intLimit = -Integer.MAX_VALUE;
+        long multiplyLimit = limit / radix;
+
+        // accumulate negatively to cover the minimal value
+        for (int n = position; n < token.length(); n++) {
+            char zch = token.charAt(n);
+            if (zch == C_DOT) {
+                dot |= n > 0;
+                continue;
+            }
+            if (signAllowed && (zch == '-' || zch == '+')) {
+                negative = zch == '-';
+                if (negative) {
+                    limit = Long.MIN_VALUE;
+                    intLimit = Integer.MIN_VALUE;
+                    multiplyLimit = limit / radix;
+                }
+                signAllowed = false;
+                continue;
+            }
+            signAllowed = false;
+            int digit = Character.digit(zch, radix);
+            if (digit < 0 || result < multiplyLimit) {
+                return false;
+            }
+            result *= radix;
+            if (result < limit + digit) {
+                return false;
+            }
+            result -= digit;
+            digits = true;
+        }
+        if (!digits || !dot && result < intLimit) {
+            return false;
+        }
+        value = negative ? result : -result;
+        isDouble = dot;
+        return true;
+    }
+
+    /**
+     * Gets the value of the number converted last.
+     *
+     * @return the value, a single precision number is in int range
+     */
+    public long value() {
+        return value;
+    }
+
+    /**
+     * Tells whether the number converted last has double precision.
+     *
+     * @return {@code true} iff the token contained a "."
+     */
+    public boolean isDouble() {
+        return isDouble;
+    }
+}
@@ -5,24 +5,43 @@
  */
 package io.github.mletkin.jemforth.engine;
 
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.EmptyStackException;
 import java.util.List;
-import java.util.Stack;
+import java.util.RandomAccess;
 import java.util.stream.Stream;
 
 /**
  * Implementation of the engines return stack.
  * <p>
- * Currently, this is a wrapper for a Java Integer-Stack to prevent uncontrolled
- * access. <br>
- * Unfortunately the IDE needs access to the object list that holds the content
- * for display.
+ * The values are kept in a growable {@code int} array with an explicit stack
+ * pointer. Neither boxing nor synchronization takes place on the inner
+ * interpreter path.<br>
+ * Unfortunately the IDE needs access to a list that holds the content for
+ * display. It gets a read only view of the array.
  */
 public class ReturnStack {
 
     /**
-     * Internal representation of the stack.
+     * Initial number of cells of the stack array.
      */
-    private final Stack<Integer> stack = new Stack<>();
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The stack content, bottom of stack is at index 0.
+     */
+    private int[] stack = new int[INITIAL_CAPACITY];
+
+    /**
+     * The stack pointer, index of the next free cell.
+     */
+    private int sp = 0;
+
+    /**
+     * List view of the stack for the IDE.
+     */
+    private final List<Integer> content = new ContentView();
 
     /**
      * Pushes a single integer value.
@@ -30,8 +49,11 @@ public class ReturnStack {
      * @param value
      *                  the value to push
      */
-    public void push(Integer value) {
-        stack.push(value);
+    public void push(int value) {
+        if (sp == stack.length) {
+            stack = Arrays.copyOf(stack, sp << 1);
+        }
+        stack[sp++] = value;
     }
 
     /**
@@ -39,15 +61,18 @@ public class ReturnStack {
      *
      * @return the poped value
      */
-    public Integer pop() {
-        return stack.pop();
+    public int pop() {
+        if (sp == 0) {
+            throw new EmptyStackException();
+        }
+        return stack[--sp];
     }
 
     /**
      * Emptied the stack.
      */
     public void clear() {
-        stack.clear();
+        sp = 0;
     }
 
     /**
@@ -56,7 +81,7 @@ public class ReturnStack {
      * @return Steam of integer values
      */
     public Stream<Integer> stream() {
-        return stack.stream();
+        return Arrays.stream(stack, 0, sp).boxed();
     }
 
     /**
@@ -66,8 +91,11 @@ public class ReturnStack {
      *              position on the stack from the top [1..depth]
      * @return value retrieved
      */
-    public Integer peek(int n) {
-        return stack.get(stack.size() - n);
+    public int peek(int n) {
+        if (n < 1 || n > sp) {
+            throw new ArrayIndexOutOfBoundsException(sp - n);
+        }
+        return stack[sp - n];
     }
 
     /**
@@ -76,22 +104,43 @@ public class ReturnStack {
      * @return number of stack values
      */
     public int depth() {
-        return stack.size();
+        return sp;
     }
 
     /**
      * Access to the stack content.
      * <p>
-     * Exposing the internal list is of cause not recommended. Unfortunately the
-     * swing table components need acces to the list itself.<br>
-     * One alternative woud be a second list that's synchronized with the "real"
-     * list. The consequence would be a severe performance loss.<br>
-     * Another alternative would be a mock list that allows access to the real list.
+     * The swing table components need acces to a list. The list returned is a
+     * view of the stack array, that allows reading and clearing.
      *
-     * @return The internal {@code List} object
+     * @return The {@code List} view of the stack
      */
     public List<Integer> content() {
-        return stack;
+        return content;
+    }
+
+    /**
+     * Read only list view of the stack array, bottom of stack first.
+     */
+    private class ContentView extends AbstractList<Integer> implements RandomAccess {
+
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || index >= sp) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return stack[index];
+        }
+
+        @Override
+        public int size() {
+            return sp;
+        }
+
+        @Override
+        public void clear() {
+            sp = 0;
+        }
     }
 
 }
@@ -0,0 +1,397 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.mletkin.jemforth.engine.words.ColonWord;
+import io.github.mletkin.jemforth.engine.words.Dictionary;
+import io.github.mletkin.jemforth.engine.words.InternalWord;
+import io.github.mletkin.jemforth.engine.words.VocabularyWord;
+import io.github.mletkin.jemforth.engine.words.Word;
+
+/**
+ * Infers and checks the stack effect of colon definitions.
+ * <p>
+ * The effect of a Java word is parsed from the stack comment of its
+ * definition, the effect of a colon definition is inferred from its body when
+ * it is finished with {@code ;}. Variables, constants and other data words
+ * without comment push a single cell. The inference follows branches and loops and
+ * reports a warning if
+ * <ul>
+ * <li>two paths reach a cell with different stack depths, like an {@code IF}
+ * without {@code ELSE} that leaves a value
+ * <li>a loop body changes the depth of the data or return stack
+ * <li>the return stack is not balanced at {@code EXIT}
+ * <li>a word takes cells from the return stack it did not push
+ * <li>the inferred effect differs from the stack comment of the word
+ * </ul>
+ * A word without known effect -- like {@code ?DUP}, {@code EXECUTE} or
+ * {@code PICK}, whose effect depends on the data -- stops the inference without
+ * warning. The effect of the definition stays unknown then.
+ */
+public final class StackChecker {
+
+    /**
+     * Words that change the control flow or have an operand cell.
+     */
+    private enum Control {
+        LITERAL("(LITERAL)"), STRLITERAL("(STRLITERAL)"), COMPILE("COMPILE"), //
+        BRANCH("BRANCH"), ZBRANCH("?BRANCH"), //
+        DO("(DO)"), QDO("(?DO)"), LOOP("(LOOP)"), PLOOP("(+LOOP)"), //
+        LEAVE("(LEAVE)"), UNLOOP("UNLOOP"), EXIT("EXIT"), DOES("DOES>");
+
+        private final String word;
+
+        Control(String word) {
+            this.word = word;
+        }
+    }
+
+    /**
+     * Number of return stack cells of a loop frame.
+     */
+    private static final int LOOP_SYS = 3;
+
+    /**
+     * Effect of a word without stack effect.
+     */
+    private static final StackEffect NONE = new StackEffect(0, 0, 0, 0);
+
+    /**
+     * Effect of a variable, constant or other data word without comment.
+     */
+    private static final StackEffect DATA = new StackEffect(0, 1, 0, 0);
+
+    /**
+     * Stack comments by word name, replacing the comment of the word.
+     */
+    private final Map<String, String> effects = new HashMap<>();
+
+    /**
+     * Description of the cells of a definition.
+     */
+    private CellDecoder decoder = CellDecoder.standard();
+
+    /**
+     * Creates the checker used by default.
+     * <p>
+     * Declares the effects of the loop index words, which have no comment, and
+     * marks the words whose effect depends on the data as unknown.
+     *
+     * @return a new checker
+     */
+    public static StackChecker standard() {
+        return new StackChecker() //
+                .effect("I", "( -- n )") //
+                .effect("J", "( -- n )") //
+                .effect("K", "( -- n )") //
+                .unknown("EXECUTE") //
+                .unknown("PICK") //
+                .unknown("ROLL") //
+                .unknown("SP!") //
+                .unknown("RP!");
+    }
+
+    /**
+     * Declares the stack effect of a word.
+     *
+     * @param name
+     *                    name of the word
+     * @param comment
+     *                    stack comment like {@code ( n1 n2 -- n3 )}
+     * @return the checker
+     */
+    public StackChecker effect(String name, String comment) {
+        effects.put(name, comment);
+        return this;
+    }
+
+    /**
+     * Replaces the description of the cells of a definition.
+     *
+     * @param decoder
+     *                    the decoder, {@link CellDecoder#standard()} by default
+     * @return the checker
+     */
+    public StackChecker decoder(CellDecoder decoder) {
+        this.decoder = decoder;
+        return this;
+    }
+
+    /**
+     * Declares the stack effect of a word as unknown.
+     * <p>
+     * The comment of the word is ignored, the inference stops at the word.
+     *
+     * @param name
+     *                 name of the word
+     * @return the checker
+     */
+    public StackChecker unknown(String name) {
+        effects.put(name, null);
+        return this;
+    }
+
+    /**
+     * Resolves the word names of the checker.
+     * <p>
+     * Unknown names are ignored.
+     *
+     * @param dictionary
+     *                       dictionary to look up the words
+     * @return the checker bound to the dictionary
+     */
+    Verifier resolve(Dictionary dictionary) {
+        return new Verifier(dictionary);
+    }
+
+    /**
+     * The checker bound to the words of a dictionary.
+     */
+    final class Verifier {
+
+        private final Dictionary dictionary;
+        private final CellDecoder.Decoder decoder;
+        private final Map<Integer, Control> control = new HashMap<>();
+        private final Map<Integer, StackEffect> declared = new HashMap<>();
+
+        private Verifier(Dictionary dictionary) {
+            this.dictionary = dictionary;
+            this.decoder = StackChecker.this.decoder.resolve(dictionary);
+            for (Control kind : Control.values()) {
+                Word word = dictionary.find(kind.word);
+                if (word != null) {
+                    control.put(word.xt(), kind);
+                }
+            }
+            effects.forEach((name, comment) -> {
+                Word word = dictionary.find(name);
+                if (word != null) {
+                    declared.put(word.xt(), StackEffect.parse(comment));
+                }
+            });
+        }
+
+        /**
+         * Gets the known stack effect of a word.
+         */
+        private StackEffect effect(Word word) {
+            if (declared.containsKey(word.xt())) {
+                return declared.get(word.xt());
+            }
+            if (word instanceof ColonWord colonWord && colonWord.stackEffect() != null) {
+                return colonWord.stackEffect();
+            }
+            StackEffect effect = StackEffect.parse(word.getComment());
+            if (effect == null && word.doesAddress() == null
+                    && !(word instanceof InternalWord || word instanceof ColonWord)) {
+                return word instanceof VocabularyWord ? NONE : DATA;
+            }
+            return effect;
+        }
+
+        /**
+         * Infers the stack effect of a colon definition.
+         * <p>
+         * The effect is stored with the word, unknown effects as {@code null}.
+         *
+         * @param word
+         *                 the colon definition
+         * @return the warnings, empty if the definition looks balanced
+         */
+        List<String> check(ColonWord word) {
+            Inference inference = new Inference(word);
+            StackEffect effect = inference.run();
+            StackEffect comment = StackEffect.parse(word.getComment());
+            if (effect != null && comment != null && !effect.equals(comment)) {
+                inference.warnings.add("stack effect " + effect + " differs from comment " + comment);
+            }
+            word.stackEffect(effect);
+            return inference.warnings;
+        }
+
+        /**
+         * Abstract interpretation of a body with stack depths relative to the
+         * entry of the word.
+         */
+        private final class Inference {
+
+            private final ColonWord word;
+            private final int[] cells;
+            private final int[] depth;
+            private final int[] returnDepth;
+            private final boolean[] seen;
+            private final int[] leave;
+            private final Deque<int[]> work = new ArrayDeque<>();
+            private final List<String> warnings = new ArrayList<>();
+            private int minimum;
+            private Integer exitDepth;
+
+            private Inference(ColonWord word) {
+                this.word = word;
+                this.cells = decoder.cells(word);
+                this.depth = new int[cells.length];
+                this.returnDepth = new int[cells.length];
+                this.seen = new boolean[cells.length];
+                this.leave = new int[cells.length];
+            }
+
+            /**
+             * Follows all paths through the body.
+             *
+             * @return the effect or {@code null} if it is unknown
+             */
+            private StackEffect run() {
+                if (!findLeaveTargets()) {
+                    return null;
+                }
+                boolean known = true;
+                work.push(new int[] { 0, 0, 0, 0 });
+                while (!work.isEmpty() && known) {
+                    int[] item = work.pop();
+                    known = step(item[0], item[1], item[2], item[3] != 0);
+                }
+                return known && exitDepth != null && warnings.isEmpty() //
+                        ? new StackEffect(-minimum, exitDepth - minimum, 0, 0)
+                        : null;
+            }
+
+            /**
+             * Maps each {@code (LEAVE)} and {@code UNLOOP} to the cell behind
+             * its loop.
+             */
+            private boolean findLeaveTargets() {
+                Deque<Integer> loops = new ArrayDeque<>();
+                for (int n = 0; n < cells.length; n++) {
+                    Control kind = control.get(cells[n]);
+                    if (kind == Control.DO || kind == Control.QDO) {
+                        int target = index(n + 1);
+                        if (target < 0) {
+                            return false;
+                        }
+                        loops.push(target);
+                    } else if (kind == Control.LOOP || kind == Control.PLOOP) {
+                        if (loops.isEmpty()) {
+                            return false;
+                        }
+                        loops.pop();
+                    } else if (kind == Control.LEAVE || kind == Control.UNLOOP) {
+                        if (loops.isEmpty()) {
+                            return false;
+                        }
+                        leave[n] = loops.peek();
+                    }
+                    n += decoder.operands(cells[n]);
+                }
+                return true;
+            }
+
+            /**
+             * Reads an address operand and converts it into a cell index.
+             *
+             * @return the index or -1 if the address is outside the body
+             */
+            private int index(int operand) {
+                return operand < cells.length ? decoder.index(word, cells[operand]) : -1;
+            }
+
+            /**
+             * Continues at a cell with the given stack depths.
+             *
+             * @param loop
+             *                 {@code true} if reached by the end of a loop body
+             */
+            private void next(int index, int data, int rStack, boolean loop) {
+                work.push(new int[] { index, data, rStack, loop ? 1 : 0 });
+            }
+
+            private int take(int data, int count) {
+                minimum = Math.min(minimum, data - count);
+                return data - count;
+            }
+
+            /**
+             * Interprets the word at a cell.
+             *
+             * @return {@code false} if the effect of the word is unknown
+             */
+            private boolean step(int n, int data, int rStack, boolean loop) {
+                if (n < 0 || n >= cells.length) {
+                    return false;
+                }
+                if (seen[n]) {
+                    if (depth[n] != data || returnDepth[n] != rStack) {
+                        warnings.add(loop ? "loop body changes the stack depth"
+                                : "branches leave different stack depths");
+                        return false;
+                    }
+                    return true;
+                }
+                seen[n] = true;
+                depth[n] = data;
+                returnDepth[n] = rStack;
+                Control kind = control.get(cells[n]);
+                if (kind == null) {
+                    Word callee = dictionary.getByXt(cells[n]);
+                    StackEffect effect = callee != null ? effect(callee) : null;
+                    if (effect == null) {
+                        return false;
+                    }
+                    if (rStack < effect.returnIn()) {
+                        warnings.add(callee.name() + " takes cells from the return stack that were not pushed");
+                        return false;
+                    }
+                    data = take(data, effect.in()) + effect.out();
+                    next(n + 1, data, rStack - effect.returnIn() + effect.returnOut(), false);
+                    return true;
+                }
+                int after = n + 1 + decoder.operands(cells[n]);
+                switch (kind) {
+                case LITERAL, STRLITERAL -> next(after, data + 1, rStack, false);
+                case COMPILE -> next(after, data, rStack, false);
+                case BRANCH -> next(index(n + 1), data, rStack, false);
+                case ZBRANCH -> {
+                    data = take(data, 1);
+                    next(index(n + 1), data, rStack, false);
+                    next(after, data, rStack, false);
+                }
+                case DO, QDO -> {
+                    data = take(data, 2);
+                    if (kind == Control.QDO) {
+                        next(index(n + 1), data, rStack, false);
+                    }
+                    next(after, data, rStack + LOOP_SYS, false);
+                }
+                case LOOP, PLOOP -> {
+                    data = kind == Control.PLOOP ? take(data, 1) : data;
+                    next(after, data, rStack - LOOP_SYS, false);
+                    next(index(n + 1), data, rStack, true);
+                }
+                case LEAVE -> next(leave[n], data, rStack - LOOP_SYS, false);
+                case UNLOOP -> next(n + 1, data, rStack - LOOP_SYS, false);
+                case EXIT -> {
+                    if (rStack != 0) {
+                        warnings.add("return stack is not balanced at EXIT");
+                    } else if (exitDepth != null && exitDepth != data) {
+                        warnings.add("EXITs leave different stack depths");
+                    }
+                    exitDepth = data;
+                }
+                case DOES -> {
+                    return false;
+                }
+                }
+                return true;
+            }
+        }
+    }
+}
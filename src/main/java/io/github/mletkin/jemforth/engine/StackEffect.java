@@ -0,0 +1,124 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Number of cells a word takes from and leaves on the data and return stack.
+ * <p>
+ * The effect is parsed from a stack comment like
+ * {@code ( n1 n2 -- d ) ( R: x -- )}. Each item counts as a cell, except
+ * <ul>
+ * <li>doubles {@code d}, {@code ud} -- optionally numbered -- count as two
+ * cells
+ * <li>{@code loop-sys} counts as three cells
+ * <li>parsed input like {@code <name>} counts as no cell
+ * </ul>
+ * For defining words only the effect before the semicolon, the one of the
+ * definition, is used.
+ * Alternatives separated by {@code |} must have the same number of cells and
+ * an ellipsis {@code ..} makes the number unknown. A comment with a return
+ * stack part only has no data stack effect.
+ *
+ * @param in
+ *                      number of cells taken from the data stack
+ * @param out
+ *                      number of cells left on the data stack
+ * @param returnIn
+ *                      number of cells taken from the return stack
+ * @param returnOut
+ *                      number of cells left on the return stack
+ */
+public record StackEffect(int in, int out, int returnIn, int returnOut) {
+
+    private static final Pattern PARENTHESES = Pattern.compile("\\(([^()]*)\\)");
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Parses the first line of a stack comment.
+     *
+     * @param comment
+     *                    the comment, might be {@code null}
+     * @return the stack effect or {@code null} if the comment has no stack
+     *         effect with a known number of cells
+     */
+    public static StackEffect parse(String comment) {
+        if (comment == null) {
+            return null;
+        }
+        int[] data = null;
+        int[] rStack = { 0, 0 };
+        Matcher matcher = PARENTHESES.matcher(comment.lines().findFirst().orElse(""));
+        while (matcher.find()) {
+            String content = matcher.group(1).trim();
+            if (content.startsWith("R:")) {
+                rStack = count(content.substring(2));
+            } else if (data == null) {
+                data = count(content);
+            }
+        }
+        if (data == null && rStack[0] == 0 && rStack[1] == 0) {
+            return null;
+        }
+        data = data != null ? data : new int[] { 0, 0 };
+        if (data[0] < 0 || data[1] < 0 || rStack[0] < 0 || rStack[1] < 0) {
+            return null;
+        }
+        return new StackEffect(data[0], data[1], rStack[0], rStack[1]);
+    }
+
+    /**
+     * Counts the cells before and after the separator {@code --}.
+     */
+    private static int[] count(String effect) {
+        int separator = effect.indexOf("--");
+        if (separator < 0) {
+            return new int[] { UNKNOWN, UNKNOWN };
+        }
+        int end = effect.indexOf(';', separator);
+        return new int[] { //
+                alternatives(effect.substring(0, separator)), //
+                alternatives(effect.substring(separator + 2, end < 0 ? effect.length() : end)) };
+    }
+
+    private static int alternatives(String items) {
+        int count = UNKNOWN;
+        for (String alternative : items.split("\\|", -1)) {
+            int cells = cells(alternative);
+            if (cells == UNKNOWN || count != UNKNOWN && count != cells) {
+                return UNKNOWN;
+            }
+            count = cells;
+        }
+        return count;
+    }
+
+    private static int cells(String items) {
+        int cells = 0;
+        for (String item : items.trim().replace("\"", "").split("\\s+")) {
+            if (item.isEmpty() || item.startsWith("<") && item.endsWith(">")) {
+                continue;
+            } else if (item.startsWith("..")) {
+                return UNKNOWN;
+            } else if (item.matches("u?d\\d*")) {
+                cells += 2;
+            } else if (item.startsWith("loop-sys")) {
+                cells += 3;
+            } else {
+                cells++;
+            }
+        }
+        return cells;
+    }
+
+    @Override
+    public String toString() {
+        String data = "( " + in + " -- " + out + " )";
+        return returnIn == 0 && returnOut == 0 ? data : data + " ( R: " + returnIn + " -- " + returnOut + " )";
+    }
+}
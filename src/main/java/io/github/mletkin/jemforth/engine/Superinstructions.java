@@ -0,0 +1,247 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine;
+
+import static io.github.mletkin.jemforth.engine.MemoryMapper.CELL_SIZE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.mletkin.jemforth.engine.words.ColonWord;
+import io.github.mletkin.jemforth.engine.words.Dictionary;
+import io.github.mletkin.jemforth.engine.words.InternalWord;
+import io.github.mletkin.jemforth.engine.words.Word;
+
+/**
+ * Table of word sequences fused to superinstructions in colon definitions.
+ * <p>
+ * A pattern is a blank separated sequence of word names. The wildcard
+ * {@value #ANY} matches the operand cell following a word like
+ * {@code (LITERAL)} or {@code ?BRANCH}. A pattern without command executes its
+ * words one after the other in a single step of the inner interpreter. This
+ * works for words that neither change the ip nor are colon definitions, only
+ * the last word of the sequence is free of that restriction. A pattern with
+ * command replaces the sequence by the command. The command is entered with
+ * the ip pointing to the second cell of the sequence and must leave the ip
+ * behind the sequence or at a branch target.
+ * <p>
+ * The fusion is a peephole pass applied to a colon definition when it is
+ * finished with {@code ;}. The cells of the definition are not changed, so
+ * {@code SEE} shows the original words and the debugger sees a superinstruction
+ * as a single step. A pattern matches only the words known by name when the
+ * table is applied, redefinitions do not match.
+ */
+public final class Superinstructions {
+
+    /**
+     * Wildcard for an operand cell.
+     */
+    public static final String ANY = "_";
+
+    /**
+     * Description of the cells of a definition.
+     */
+    private CellDecoder decoder = CellDecoder.standard();
+
+    /**
+     * The patterns in order of definition.
+     */
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    private record Pattern(String[] names, Command<JemEngine> command) {
+    }
+
+    /**
+     * Creates the table used by default.
+     *
+     * @return a new table
+     */
+    public static Superinstructions standard() {
+        return new Superinstructions() //
+                .add("(LITERAL) _ +", c -> {
+                    c.stack.push(c.stack.iPop() + c.dictionary.fetch(c.ip));
+                    c.ip += 2 * CELL_SIZE;
+                }) //
+                .add("(LITERAL) _ -", c -> {
+                    c.stack.push(c.stack.iPop() - c.dictionary.fetch(c.ip));
+                    c.ip += 2 * CELL_SIZE;
+                }) //
+                .add("I +") //
+                .add("DUP @") //
+                .add("OVER OVER") //
+                .add("SWAP DROP");
+    }
+
+    /**
+     * Replaces the description of the cells of a definition.
+     * <p>
+     * Operand cells are skipped by the pattern search, a sequence never starts
+     * with an operand.
+     *
+     * @param decoder
+     *                    the decoder, {@link CellDecoder#standard()} by default
+     * @return the table
+     */
+    public Superinstructions decoder(CellDecoder decoder) {
+        this.decoder = decoder;
+        return this;
+    }
+
+    /**
+     * Adds a pattern that executes its words in a single step.
+     *
+     * @param sequence
+     *                     blank separated word names
+     * @return the table
+     */
+    public Superinstructions add(String sequence) {
+        return add(sequence, null);
+    }
+
+    /**
+     * Adds a pattern that is replaced by a command.
+     *
+     * @param sequence
+     *                     blank separated word names
+     * @param command
+     *                     command to execute instead of the sequence
+     * @return the table
+     */
+    public Superinstructions add(String sequence, Command<JemEngine> command) {
+        patterns.add(new Pattern(sequence.trim().split("\\s+"), command));
+        return this;
+    }
+
+    /**
+     * Resolves the word names of the table.
+     * <p>
+     * Patterns containing unknown words and patterns without command that can
+     * not be composed are ignored.
+     *
+     * @param dictionary
+     *                       dictionary to look up the words
+     * @return the table bound to the dictionary
+     */
+    Fusion resolve(Dictionary dictionary) {
+        return new Fusion(dictionary);
+    }
+
+    /**
+     * The table bound to the words of a dictionary.
+     */
+    final class Fusion {
+
+        /**
+         * Marks a wildcard in a resolved sequence, zero is never an xt.
+         */
+        private static final int WILDCARD = 0;
+
+        private final CellDecoder.Decoder decoder;
+        private final Map<Integer, List<Resolved>> byFirstXt = new HashMap<>();
+
+        private record Resolved(int[] xts, Word word) {
+        }
+
+        private Fusion(Dictionary dictionary) {
+            this.decoder = Superinstructions.this.decoder.resolve(dictionary);
+            for (Pattern pattern : patterns) {
+                Word[] words = resolve(dictionary, pattern.names);
+                Command<JemEngine> command = pattern.command != null ? pattern.command : compose(words);
+                if (words != null && command != null && words.length > 1 && words[0] != null) {
+                    int[] xts = Arrays.stream(words).mapToInt(w -> w != null ? w.xt() : WILDCARD).toArray();
+                    Word word = new InternalWord(String.join(" ", pattern.names), command);
+                    byFirstXt.computeIfAbsent(xts[0], k -> new ArrayList<>()).add(new Resolved(xts, word));
+                }
+            }
+            byFirstXt.values().forEach(list -> list.sort((a, b) -> b.xts.length - a.xts.length));
+        }
+
+        /**
+         * Looks up the words of a pattern, wildcards resolve to {@code null}.
+         */
+        private Word[] resolve(Dictionary dictionary, String[] names) {
+            Word[] words = new Word[names.length];
+            for (int n = 0; n < names.length; n++) {
+                if (!ANY.equals(names[n])) {
+                    words[n] = dictionary.find(names[n]);
+                    if (words[n] == null) {
+                        return null;
+                    }
+                }
+            }
+            return words;
+        }
+
+        /**
+         * Creates a command executing the words of a sequence one by one.
+         */
+        private Command<JemEngine> compose(Word[] words) {
+            if (words == null) {
+                return null;
+            }
+            for (int n = 0; n < words.length; n++) {
+                if (words[n] == null) {
+                    return null;
+                }
+                if (n < words.length - 1 && (words[n] instanceof ColonWord || words[n].doesAddress() != null)) {
+                    return null;
+                }
+            }
+            return c -> {
+                int entry = c.ip;
+                for (int n = 0; n < words.length; n++) {
+                    c.ip = entry + n * CELL_SIZE;
+                    words[n].execute(c);
+                }
+            };
+        }
+
+        /**
+         * Fuses the sequences matching a pattern in a colon definition.
+         *
+         * @param word
+         *                 the colon definition
+         */
+        void fuse(ColonWord word) {
+            word.unfuse();
+            int[] cells = decoder.cells(word);
+            int index = 0;
+            while (index < cells.length) {
+                Resolved match = match(cells, index);
+                if (match != null) {
+                    word.fuse(index, match.xts.length, match.word);
+                    index += match.xts.length;
+                } else {
+                    index += 1 + decoder.operands(cells[index]);
+                }
+            }
+        }
+
+        private Resolved match(int[] cells, int index) {
+            for (Resolved candidate : byFirstXt.getOrDefault(cells[index], List.of())) {
+                if (matches(candidate.xts, cells, index)) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+
+        private boolean matches(int[] xts, int[] cells, int index) {
+            if (index + xts.length > cells.length) {
+                return false;
+            }
+            for (int n = 0; n < xts.length; n++) {
+                if (xts[n] != WILDCARD && xts[n] != cells[index + n]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -108,7 +108,8 @@ public class F83ReactiveConsoleWindow {
                 env.engine().process(cmd);
                 cmd = "QUIT";
             } catch (ForthTerminatedException e) {
-                env.print("Execution stopped");
+                env.print("Execution stopped" + (e.getCause() != null ? ": " + e.getCause().getMessage() : ""));
+                env.flush();
                 cmd = null;
             } catch (JemForthException e) {
                 cmd = ".( " + e.getMessage() + ") QUIT";
@@ -12,6 +12,7 @@ import java.util.concurrent.SubmissionPublisher;
 
 import javax.swing.JFrame;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
 
 import io.github.mletkin.jemforth.engine.f83.ReactiveEnvironment;
 
@@ -22,18 +23,22 @@ import io.github.mletkin.jemforth.engine.f83.ReactiveEnvironment;
  */
 public final class JConsole extends JTextArea {
 
-    private static final Character BACKSPACE = Character.valueOf('\b');
-    private static final Character FORMFEED = Character.valueOf((char) 0x0C);
+    private static final char BACKSPACE = '\b';
+    private static final char FORMFEED = (char) 0x0C;
 
     private final SubmissionPublisher<Character> publisher = new SubmissionPublisher<>();
-    private final Subscriber<Character> subscriber = new ConsoleSubscriber();
+    private final Subscriber<String> subscriber = new ConsoleSubscriber();
 
     /**
-     * Subscriber that appends received characters to the console display.
+     * Subscriber that appends received text to the console display.
+     * <p>
+     * The text is collected until the event dispatch thread displays it, so
+     * all chunks received in the meantime are appended at once.
      */
-    private class ConsoleSubscriber implements Subscriber<Character> {
+    private class ConsoleSubscriber implements Subscriber<String> {
 
         private Subscription subscription;
+        private final StringBuilder pending = new StringBuilder();
 
         @Override
         public void onSubscribe(Subscription subscription) {
@@ -42,14 +47,28 @@ public final class JConsole extends JTextArea {
         }
 
         @Override
-        public void onNext(Character zeichen) {
-            append(zeichen);
+        public void onNext(String chunk) {
+            synchronized (pending) {
+                if (pending.length() == 0) {
+                    SwingUtilities.invokeLater(this::display);
+                }
+                pending.append(chunk);
+            }
             subscription.request(1);
         }
 
+        private void display() {
+            String text;
+            synchronized (pending) {
+                text = pending.toString();
+                pending.setLength(0);
+            }
+            append(text);
+        }
+
         @Override
         public void onComplete() {
-            append(" -- Done");
+            SwingUtilities.invokeLater(() -> append(" -- Done"));
         }
 
         @Override
@@ -74,20 +93,38 @@ public final class JConsole extends JTextArea {
     }
 
     /**
-     * Appends a single character to the display area.
+     * Appends text to the display area.
+     * <p>
+     * A back space removes the last character, a form feed clears the display.
+     * The characters in between are appended at once.
      *
-     * @param character
-     *                      the character to process
+     * @param text
+     *                 the text to process
      */
-    public synchronized void append(Character character) {
-        if (BACKSPACE.equals(character)) {
-            replaceRange("", getDocument().getLength() - 1, getDocument().getLength());
-        } else if (FORMFEED.equals(character)) {
-            clear();
-        } else if (character != null) {
+    @Override
+    public synchronized void append(String text) {
+        int start = 0;
+        for (int n = 0; n < text.length(); n++) {
+            char character = text.charAt(n);
+            if (character == BACKSPACE || character == FORMFEED) {
+                appendRun(text.substring(start, n));
+                start = n + 1;
+                if (character == BACKSPACE) {
+                    int length = getDocument().getLength();
+                    replaceRange("", Math.max(0, length - 1), length);
+                } else {
+                    clear();
+                }
+            }
+        }
+        appendRun(text.substring(start));
+    }
+
+    private void appendRun(String run) {
+        if (!run.isEmpty()) {
             setEnabled(false);
-            super.append(character.toString());
-            setCaretPosition(getText().length());
+            super.append(run);
+            setCaretPosition(getDocument().getLength());
             setEnabled(true);
         }
     }
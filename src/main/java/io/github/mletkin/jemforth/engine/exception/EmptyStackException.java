@@ -5,6 +5,13 @@ package io.github.mletkin.jemforth.engine.exception;
  */
 public class EmptyStackException extends JemForthException {
 
+    /**
+     * Create an exception.
+     */
+    public EmptyStackException() {
+        super("Empty Stack");
+    }
+
     /**
      * Create an exception.
      *
@@ -12,4 +12,14 @@ public class ForthTerminatedException extends JemForthException {
         super("terminated");
     }
 
+    /**
+     * create an exception for a termination caused by an error.
+     *
+     * @param cause
+     *                  the error that ended the engine
+     */
+    public ForthTerminatedException(Throwable cause) {
+        super("terminated", cause);
+    }
+
 }
@@ -0,0 +1,17 @@
+package io.github.mletkin.jemforth.engine.exception;
+
+/**
+ * Thrown when an engine image can not be written or does not fit the engine.
+ */
+public class IllegalImageException extends JemForthException {
+
+    /**
+     * Create an exception.
+     *
+     * @param message
+     *                    description of the problem
+     */
+    public IllegalImageException(String message) {
+        super(message);
+    }
+}
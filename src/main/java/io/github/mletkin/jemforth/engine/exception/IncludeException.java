@@ -0,0 +1,52 @@
+package io.github.mletkin.jemforth.engine.exception;
+
+/**
+ * Thrown when the processing of an included file fails.
+ */
+public class IncludeException extends JemForthException {
+
+    private IncludeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Creates an exception that prefixes the message with the location.
+     *
+     * @param location
+     *                     file name and line number
+     * @param cause
+     *                     the original exception
+     * @return the exception
+     */
+    public static IncludeException at(String location, JemForthException cause) {
+        return new IncludeException(
+                location + ": " + (cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName()),
+                cause);
+    }
+
+    /**
+     * Creates an exception for a file that cannot be opened.
+     *
+     * @param path
+     *                  name and path of the file
+     * @param cause
+     *                  the original exception
+     * @return the exception
+     */
+    public static IncludeException cannotOpen(String path, Throwable cause) {
+        return new IncludeException("cannot open " + path, cause);
+    }
+
+    /**
+     * Creates an exception for a file that cannot be read.
+     *
+     * @param path
+     *                  name and path of the file
+     * @param cause
+     *                  the original exception
+     * @return the exception
+     */
+    public static IncludeException cannotRead(String path, Throwable cause) {
+        return new IncludeException("cannot read " + path, cause);
+    }
+}
@@ -5,65 +5,108 @@
  */
 package io.github.mletkin.jemforth.engine.f83;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 
 import io.github.mletkin.jemforth.engine.exception.MassStorageCapacityExceededException;
-import io.github.mletkin.jemforth.engine.exception.MassStorageException;
 
 /**
  * The Block processing emulation of a typical Forth 83 system.
+ * <p>
+ * The blocks are kept in a {@link BlockStorage}. A file storage copies the
+ * blocks into the buffers, a memory mapped storage hands out views of the
+ * mapping.
+ * <p>
+ * Blocks are assigned to buffers by a hash map, buffers are reassigned in least
+ * recently used order. Updated buffers are written back before reassignment.
  */
 public class BlockBuffer {
 
     public static final int BLOCK_SIZE = 1024;
-    private static final int MAX_BLOCK = 1024;
-    private static final int MAX_BUFFER = 16;
+
+    /**
+     * Default number of blocks of the mass storage.
+     */
+    public static final int MAX_BLOCK = 1024;
+
+    /**
+     * Default number of block buffers.
+     */
+    public static final int DEFAULT_BUFFER_COUNT = 16;
+
+    /**
+     * Maximal number of block buffers, limited by the size of the buffer address
+     * area.
+     */
+    public static final int MAX_BUFFER = 64;
 
     private int current;
 
-    private int[] block = new int[MAX_BUFFER];
-    private byte[][] content = new byte[MAX_BUFFER][];
-    private boolean[] updated = new boolean[MAX_BUFFER];
+    private final int[] block;
+    private final ByteBuffer[] content;
+    private final boolean[] updated;
 
-    private RandomAccessFile file = null;
+    /**
+     * Buffer number by block number, ordered from least to most recently used.
+     */
+    private final LinkedHashMap<Integer, Integer> assigned;
 
     /**
-     * Creates a Block Buffer.
-     *
-     * <ul>
-     * <li>All buffers are set to "empty"
-     * <li>A file may be used as "mass storage"
-     * </ul>
+     * Numbers of the unassigned buffers.
+     */
+    private final Deque<Integer> free = new ArrayDeque<>();
+
+    private final BlockStorage storage;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a Block Buffer using a file with {@link #MAX_BLOCK} blocks.
      *
      * @param path
      *                 file to be used as "mass storage".
      */
     public BlockBuffer(String path) {
-        for (int n = 0; n < MAX_BUFFER; n++) {
-            block[n] = 0;
-            updated[n] = false;
-        }
-        use(path);
+        this(new FileBlockStorage(path, MAX_BLOCK));
     }
 
     /**
-     * Use the given file as mass storage file
+     * Creates a Block Buffer with {@link #DEFAULT_BUFFER_COUNT} buffers.
      *
-     * @param path
-     *                 path and filename of mass storage file
+     * @param storage
+     *                    the "mass storage" to use
      */
-    private void use(String path) {
-        try {
-            File newFile = new File(path);
-            if (!newFile.exists()) {
-                newFile.createNewFile();
-            }
-            file = new RandomAccessFile(newFile, "rw");
-        } catch (IOException e) {
-            System.out.println("Could not create file [" + path + "] " + e.getMessage());
+    public BlockBuffer(BlockStorage storage) {
+        this(storage, DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * Creates a Block Buffer.
+     *
+     * <ul>
+     * <li>All buffers are set to "empty"
+     * </ul>
+     *
+     * @param storage
+     *                        the "mass storage" to use
+     * @param bufferCount
+     *                        number of buffers in the range 1..{@link #MAX_BUFFER}
+     */
+    public BlockBuffer(BlockStorage storage, int bufferCount) {
+        if (bufferCount < 1 || bufferCount > MAX_BUFFER) {
+            throw new IllegalArgumentException("buffer count must be in 1.." + MAX_BUFFER);
         }
+        this.storage = storage;
+        block = new int[bufferCount];
+        content = new ByteBuffer[bufferCount];
+        updated = new boolean[bufferCount];
+        assigned = new LinkedHashMap<>(bufferCount * 2, 0.75f, true);
+        emptyBuffers();
     }
 
     /**
@@ -78,15 +121,17 @@ public class BlockBuffer {
      * @return id of assigned buffer
      */
     public int block(int blockId) {
-        current = assignBuffer(blockId);
-        if (block[current] != blockId) {
-            block[current] = blockId;
-            content[current] = loadBlock(blockId);
-        }
-        return current;
+        return assignBuffer(blockId);
     }
 
-    public byte[] blockContent(int blockId) {
+    /**
+     * Gets the content of a block, the block is assigned to a buffer if necessary.
+     *
+     * @param blockId
+     *                    ID of the block
+     * @return the buffer content
+     */
+    public ByteBuffer blockContent(int blockId) {
         return content[block(blockId)];
     }
 
@@ -95,36 +140,49 @@ public class BlockBuffer {
      *
      * a-addr is the address of the first character of the block buffer assigned to
      * block u. The contents of the block are unspecified. An ambiguous condition
-     * exists if u is not an available block number. Assigns the block to the next
-     * free buffer.
-     *
-     * TODO selection algorithm might need refinement.
+     * exists if u is not an available block number.
+     * <p>
+     * The buffer is taken from the unassigned buffers. If there is none, the
+     * least recently used buffer is reassigned, its content is written back if
+     * it has been updated. The block content is always read, so {@code BLOCK} and
+     * {@code BUFFER} behave the same.
      *
      * @param blockId
      *                    ID of the block to use
      * @return id of assigned buffer
      */
     public int assignBuffer(int blockId) {
-        for (int n = 0; n < MAX_BUFFER; n++) {
-            if (block[n] == blockId) {
-                return n;
-            }
+        if (blockId < 1 || blockId > storage.capacity()) {
+            throw new MassStorageCapacityExceededException();
         }
-        // find first empty buffer
-        for (int n = 0; n < MAX_BUFFER; n++) {
-            if (block[n] == 0) {
-                return n;
-            }
+        Integer n = assigned.get(blockId);
+        if (n != null) {
+            hits++;
+        } else {
+            misses++;
+            n = free.isEmpty() ? evict() : free.pop();
+            content[n] = storage.load(blockId);
+            block[n] = blockId;
+            assigned.put(blockId, n);
         }
-        // no empty buffer, find first updated block
-        for (int n = 0; n < MAX_BUFFER; n++) {
-            if (updated[n]) {
-                storeBuffer(n);
-                return n;
-            }
+        current = n;
+        return current;
+    }
+
+    /**
+     * Unassigns the least recently used buffer.
+     *
+     * @return number of the buffer released
+     */
+    private int evict() {
+        Iterator<Integer> eldest = assigned.values().iterator();
+        int n = eldest.next();
+        eldest.remove();
+        if (updated[n]) {
+            storeBuffer(n);
         }
-        // no empty buffer, no updated => take the first one
-        return 0;
+        evictions++;
+        return n;
     }
 
     /**
@@ -134,10 +192,9 @@ public class BlockBuffer {
      * Mark all buffers as unmodified.
      */
     public void saveUpdated() {
-        for (int n = 0; n < MAX_BUFFER; n++) {
+        for (int n = 0; n < block.length; n++) {
             if (updated[n]) {
                 storeBuffer(n);
-                updated[n] = false;
             }
         }
     }
@@ -159,43 +216,25 @@ public class BlockBuffer {
      * Do not transfer the contents of any UPDATEd block buffer to mass storage.
      */
     public void emptyBuffers() {
-        for (int n = 0; n < MAX_BUFFER; n++) {
+        assigned.clear();
+        free.clear();
+        for (int n = 0; n < block.length; n++) {
             block[n] = 0;
             updated[n] = false;
             content[n] = null;
+            free.add(n);
         }
     }
 
     /**
-     * load a block from the mass storage
-     *
-     * @param blockId
-     *                    id of block to load
-     * @return byte array containing the block
+     * Writes the updated buffers back and closes the storage.
+     * <p>
+     * All buffers are unassigned, the storage is opened again when a block is
+     * used.
      */
-    private byte[] loadBlock(int blockId) {
-        if (file == null) {
-            throw new MassStorageException();
-        }
-
-        if (blockId > MAX_BLOCK) {
-            throw new MassStorageCapacityExceededException();
-        }
-
-        try {
-            byte[] content = createBlock();
-            if (blockId <= (file.length() + BLOCK_SIZE - 1) / BLOCK_SIZE) {
-                file.seek((blockId - 1) * BLOCK_SIZE);
-                file.read(content, 0, BLOCK_SIZE);
-            }
-            return content;
-        } catch (IOException e) {
-            throw new MassStorageException(e);
-        }
-    }
-
-    private byte[] createBlock() {
-        return new byte[BLOCK_SIZE];
+    public void close() {
+        flushBuffers();
+        storage.close();
     }
 
     /**
@@ -205,22 +244,8 @@ public class BlockBuffer {
      *              number of Buffer to save buffer
      */
     private void storeBuffer(int n) {
-        if (file == null) {
-            throw new MassStorageException();
-        }
-        try {
-            byte[] emptyBlock = createBlock();
-            long numBlocks = ((block[n] - 1) * BLOCK_SIZE - file.length()) / BLOCK_SIZE;
-            file.seek(file.length());
-            for (int m = 1; m < numBlocks; m++) {
-                file.write(emptyBlock);
-            }
-            file.seek((block[n] - 1) * BLOCK_SIZE);
-            file.write(content[n]);
-            updated[n] = false;
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        storage.store(block[n], content[n]);
+        updated[n] = false;
     }
 
     /**
@@ -231,7 +256,7 @@ public class BlockBuffer {
      * @return fetched byte
      */
     public int cfetch(int adr) {
-        return content[adr / BLOCK_SIZE][adr % BLOCK_SIZE];
+        return content[adr / BLOCK_SIZE].get(adr % BLOCK_SIZE);
     }
 
     /**
@@ -243,7 +268,7 @@ public class BlockBuffer {
      *                  value to store
      */
     public void cStore(int adr, int value) {
-        content[adr / BLOCK_SIZE][adr % BLOCK_SIZE] = (byte) (value & 0xFF);
+        content[adr / BLOCK_SIZE].put(adr % BLOCK_SIZE, (byte) (value & 0xFF));
     }
 
     /**
@@ -253,7 +278,9 @@ public class BlockBuffer {
      * UPDATE does not immediately cause I/O.
      */
     public void update() {
-        updated[current] = true;
+        if (block[current] != 0) {
+            updated[current] = true;
+        }
     }
 
     /**
@@ -268,6 +295,52 @@ public class BlockBuffer {
      * @return the byte at the identified position
      */
     public int cfetch(int blk, int toIn) {
-        return blockContent(blk)[toIn];
+        int n = blk != 0 && block[current] == blk ? current : block(blk);
+        return content[n].get(toIn);
+    }
+
+    /**
+     * Gets the number of block buffers.
+     *
+     * @return the number of buffers
+     */
+    public int bufferCount() {
+        return block.length;
+    }
+
+    /**
+     * Gets the number of block requests served by an assigned buffer.
+     *
+     * @return the number of buffer hits
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of block requests that needed to read the mass storage.
+     *
+     * @return the number of buffer misses
+     */
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of buffers reassigned to another block.
+     *
+     * @return the number of evictions
+     */
+    public long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Sets all counters to zero.
+     */
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
     }
 }
@@ -0,0 +1,54 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine.f83;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The mass storage holding the blocks of a {@link BlockBuffer}.
+ * <p>
+ * Blocks are numbered from one to the capacity of the storage. Each block has
+ * {@link BlockBuffer#BLOCK_SIZE} bytes. The storage is opened on first access
+ * and may be used again after it was closed.
+ */
+public interface BlockStorage extends AutoCloseable {
+
+    /**
+     * Gets the content of a block.
+     * <p>
+     * The buffer returned may be a copy or a view of the storage. Changes are
+     * persistent only after {@link #store}.
+     *
+     * @param blockId
+     *                    number of the block
+     * @return buffer with the block content, position zero and capacity
+     *         {@link BlockBuffer#BLOCK_SIZE}
+     */
+    ByteBuffer load(int blockId);
+
+    /**
+     * Writes the content of a block to the storage.
+     *
+     * @param blockId
+     *                    number of the block
+     * @param content
+     *                    the buffer returned by {@link #load} for the block
+     */
+    void store(int blockId, ByteBuffer content);
+
+    /**
+     * Gets the number of blocks of the storage.
+     *
+     * @return the highest valid block number
+     */
+    int capacity();
+
+    /**
+     * Releases the file of the storage.
+     */
+    @Override
+    void close();
+}
@@ -1,61 +1,156 @@
 package io.github.mletkin.jemforth.engine.f83;
 
-import static java.util.Optional.ofNullable;
-
-import java.util.Stack;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Subscriber that Reads items from a publisher and stores them in a
- * {@link Stack}.
+ * Subscriber that reads items from a publisher into a bounded buffer.
+ * <p>
+ * Items are requested in batches. The subscriber asks for a full batch when it
+ * subscribes and requests more after half of a batch has been taken, so the
+ * buffer never holds more than one batch. A consumer waiting for an item blocks
+ * without using the CPU.
  *
  * @param <T>
  *                Type of the items to be received from the publisher.
  */
 public class BufferedSubscriber<T> implements Subscriber<T> {
 
-    private final Stack<T> buffer = new Stack<>();
-    private Subscription subscription;
+    /**
+     * Number of items requested with the subscription.
+     */
+    public static final int DEFAULT_BATCH = 64;
+
+    private final int batch;
+    private final Deque<T> buffer = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private volatile Subscription subscription;
+    private boolean completed;
+    private Throwable error;
+    private int taken;
+
+    /**
+     * Creates a subscriber with the default batch size.
+     */
+    public BufferedSubscriber() {
+        this(DEFAULT_BATCH);
+    }
+
+    /**
+     * Creates a subscriber.
+     *
+     * @param batch
+     *                  the maximum number of items buffered
+     */
+    public BufferedSubscriber(int batch) {
+        this.batch = Math.max(1, batch);
+    }
+
+    /**
+     * Takes the next item, waiting for it if necessary.
+     *
+     * @return the item or {@code null} if the publisher has completed -- or
+     *         failed, see {@link #error()} -- and all items have been taken
+     * @throws InterruptedException
+     *                                  if the thread is interrupted while waiting
+     */
+    public T take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (buffer.isEmpty() && !completed) {
+                available.await();
+            }
+            T item = buffer.poll();
+            if (item != null && ++taken >= Math.max(1, batch / 2)) {
+                request(taken);
+                taken = 0;
+            }
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
 
     /**
-     * Start reading from the publisher.
+     * Checks whether the buffer is empty.
+     * <p>
+     * If it is not, an item can be taken without waiting.
      *
-     * @param n
-     *              the number of items to be received.
+     * @return {@code true} if the buffer is empty
      */
-    public void request(int n) {
-        buffer.clear();
-        ofNullable(subscription).ifPresent(x -> x.request(n));
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return buffer.isEmpty();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * Gets the input buffer.
+     * Gets the error that ended the subscription.
      *
-     * @return the input buffer
+     * @return the error signaled by the publisher or {@code null}
      */
-    public Stack<T> getBuffer() {
-        return buffer;
+    public Throwable error() {
+        lock.lock();
+        try {
+            return error;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void request(int n) {
+        Subscription current = subscription;
+        if (current != null) {
+            current.request(n);
+        }
     }
 
     @Override
     public void onSubscribe(Subscription subscription) {
         this.subscription = subscription;
+        subscription.request(batch);
     }
 
     @Override
     public void onNext(T item) {
-        buffer.add(item);
+        lock.lock();
+        try {
+            buffer.add(item);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public void onError(Throwable t) {
-        t.printStackTrace();
+        lock.lock();
+        try {
+            error = t;
+        } finally {
+            lock.unlock();
+        }
+        onComplete();
     }
 
     @Override
     public void onComplete() {
-        this.subscription = null;
+        lock.lock();
+        try {
+            subscription = null;
+            completed = true;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
     }
 
 }
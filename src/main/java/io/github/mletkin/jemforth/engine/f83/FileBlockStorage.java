@@ -0,0 +1,116 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine.f83;
+
+import static io.github.mletkin.jemforth.engine.f83.BlockBuffer.BLOCK_SIZE;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import io.github.mletkin.jemforth.engine.Util;
+import io.github.mletkin.jemforth.engine.exception.MassStorageCapacityExceededException;
+import io.github.mletkin.jemforth.engine.exception.MassStorageException;
+
+/**
+ * Block storage in a random access file.
+ * <p>
+ * Every block is copied into a buffer when loaded and copied back when stored.
+ * The file grows when a block beyond the end of the file is stored. The file is
+ * opened on first access, a storage that is never used holds no file.
+ */
+public class FileBlockStorage implements BlockStorage {
+
+    private final String path;
+    private final int capacity;
+    private RandomAccessFile file = null;
+
+    /**
+     * Creates a storage in a file.
+     *
+     * @param path
+     *                     path and filename of mass storage file
+     * @param capacity
+     *                     the number of blocks of the storage
+     */
+    public FileBlockStorage(String path, int capacity) {
+        this.path = path;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public ByteBuffer load(int blockId) {
+        checkAccess(blockId);
+        try {
+            byte[] content = new byte[BLOCK_SIZE];
+            long offset = offset(blockId);
+            if (offset < file.length()) {
+                file.seek(offset);
+                file.read(content, 0, BLOCK_SIZE);
+            }
+            return ByteBuffer.wrap(content);
+        } catch (IOException e) {
+            throw new MassStorageException(e);
+        }
+    }
+
+    @Override
+    public void store(int blockId, ByteBuffer content) {
+        checkAccess(blockId);
+        try {
+            file.seek(offset(blockId));
+            file.write(content.array(), 0, BLOCK_SIZE);
+        } catch (IOException e) {
+            throw new MassStorageException(e);
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void close() {
+        if (file != null) {
+            Util.closeSilently(file);
+            file = null;
+        }
+    }
+
+    private void checkAccess(int blockId) {
+        if (blockId < 1 || blockId > capacity) {
+            throw new MassStorageCapacityExceededException();
+        }
+        if (file == null) {
+            open();
+        }
+    }
+
+    /**
+     * Opens the file, the file and its directory are created if necessary.
+     */
+    private void open() {
+        try {
+            File newFile = new File(path);
+            if (!newFile.exists()) {
+                File directory = newFile.getAbsoluteFile().getParentFile();
+                if (directory != null) {
+                    directory.mkdirs();
+                }
+                newFile.createNewFile();
+            }
+            file = new RandomAccessFile(newFile, "rw");
+        } catch (IOException e) {
+            throw new MassStorageException(e);
+        }
+    }
+
+    private static long offset(int blockId) {
+        return (long) (blockId - 1) * BLOCK_SIZE;
+    }
+}
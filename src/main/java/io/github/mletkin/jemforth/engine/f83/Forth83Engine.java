@@ -2,18 +2,25 @@ package io.github.mletkin.jemforth.engine.f83;
 
 import static io.github.mletkin.jemforth.engine.MemoryMapper.CELL_SIZE;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.function.Consumer;
 
 import io.github.mletkin.jemforth.engine.Command;
+import io.github.mletkin.jemforth.engine.EngineImage;
 import io.github.mletkin.jemforth.engine.ForthEngine;
 import io.github.mletkin.jemforth.engine.JemEngine;
+import io.github.mletkin.jemforth.engine.Jit;
+import io.github.mletkin.jemforth.engine.MemoryMapper;
+import io.github.mletkin.jemforth.engine.Superinstructions;
 import io.github.mletkin.jemforth.engine.Util;
 import io.github.mletkin.jemforth.engine.exception.ForthTerminatedException;
+import io.github.mletkin.jemforth.engine.exception.IncludeException;
 import io.github.mletkin.jemforth.engine.exception.JemForthException;
+import io.github.mletkin.jemforth.engine.words.Dictionary;
 import io.github.mletkin.jemforth.engine.words.StringWord;
 import io.github.mletkin.jemforth.engine.words.UserVariableWord;
 import io.github.mletkin.jemforth.engine.words.VocabularyWord;
@@ -30,27 +37,136 @@ import io.github.mletkin.jemforth.engine.words.Word;
  **/
 public class Forth83Engine extends ForthEngine {
 
-    protected BlockBuffer blockBuffer = new BlockBuffer("c:\\data\\massStorage");
+    /**
+     * System property with the path of the default mass storage file.
+     */
+    public static final String MASS_STORAGE_PROPERTY = "jemforth.massStorage";
+
+    /**
+     * Path of the mass storage file used without the property.
+     */
+    public static final String DEFAULT_MASS_STORAGE = Path
+            .of(System.getProperty("user.home"), ".jemforth", "massStorage").toString();
+
+    /**
+     * System property with the number of block buffers of the default block
+     * buffer.
+     */
+    public static final String BLOCK_BUFFERS_PROPERTY = "jemforth.blockBuffers";
+
+    /**
+     * System property with the number of calls after which a colon definition
+     * is compiled to bytecode, without the property the JIT is off.
+     */
+    public static final String JIT_THRESHOLD_PROPERTY = "jemforth.jit";
+
+    protected BlockBuffer blockBuffer = new BlockBuffer( //
+            new FileBlockStorage(System.getProperty(MASS_STORAGE_PROPERTY, DEFAULT_MASS_STORAGE),
+                    BlockBuffer.MAX_BLOCK),
+            Integer.getInteger(BLOCK_BUFFERS_PROPERTY, BlockBuffer.DEFAULT_BUFFER_COUNT));
     protected StringWord hld = new StringWord("HLD");
 
     protected int blk = 0;
     protected int scr = 0;
     protected int span = 0;
 
+    /**
+     * Number of counted loops open in the definition being compiled.
+     */
+    protected int doNesting = 0;
+
     /**
      * Keeps the word implementing the forth KEY function.
      */
     protected Word keyWord;
 
     /**
-     * The current file to be read, if any.
+     * The files being included, the innermost file on top.
+     */
+    private final Deque<SourceFile> includes = new ArrayDeque<>();
+
+    /**
+     * File name and line of the word parsed last, if it was read from a file.
+     */
+    private String includeLocation;
+
+    /**
+     * The word {@code INTERPRET} used by the engine.
+     */
+    private Word interpretWord;
+
+    /**
+     * The code field of the colon definition of {@code INTERPRET}.
      */
-    private FileInputStream fis;
+    private Command<?> forthInterpreter;
 
     // will be changed to the "real" executor later during construction
     private Consumer<Forth83Engine> executor = this::executeInternal;
 
+    /**
+     * Create a new {@code Forth83Engine}.
+     */
     public Forth83Engine() {
+        this(new Dictionary(new MemoryMapper()));
+    }
+
+    /**
+     * Create a {@code Forth83Engine} with a dictionary.
+     * <p>
+     * Use a dictionary with linear memory to keep all parameter fields in one
+     * contiguous heap.
+     *
+     * @param dictionary
+     *                       an empty dictionary for the engine
+     */
+    public Forth83Engine(Dictionary dictionary) {
+        this(dictionary, null);
+    }
+
+    /**
+     * Create a {@code Forth83Engine} from an image.
+     * <p>
+     * The colon definitions are taken from the image and not compiled.
+     *
+     * @param image
+     *                  image saved from a {@code Forth83Engine}
+     */
+    public Forth83Engine(EngineImage image) {
+        this(new Dictionary(new MemoryMapper()), image);
+    }
+
+    /**
+     * Gets the image of a new {@code Forth83Engine}.
+     * <p>
+     * The base dictionary is compiled once when the image is needed for the
+     * first time. Engines created from the image share its content until they
+     * change it, which makes them faster to create and smaller than engines
+     * compiled from source.
+     *
+     * @return the image shared by all callers
+     */
+    public static EngineImage baseImage() {
+        return BaseImage.IMAGE;
+    }
+
+    /**
+     * Holder for the lazily created base image.
+     */
+    private static final class BaseImage {
+        private static final EngineImage IMAGE = EngineImage.of(new Forth83Engine());
+    }
+
+    /**
+     * Create a {@code Forth83Engine} from an image with a dictionary.
+     *
+     * @param dictionary
+     *                       an empty dictionary for the engine
+     * @param image
+     *                       image saved from a {@code Forth83Engine} or
+     *                       {@code null} to compile the engine from source
+     */
+    public Forth83Engine(Dictionary dictionary, EngineImage image) {
+        super(dictionary, image);
 
         // Missing 2012 Std core words
         // 6.1.0570 >NUMBER
@@ -61,12 +177,9 @@ public class Forth83Engine extends ForthEngine {
         // 6.1.1380 EXIT
         // 6.1.1900 MOVE
         // 6.1.2216 SOURCE
-        // 6.1.2380 UNLOOP
         // 6.2.0455 :NONAME
-        // 6.2.0620 ?DO
         // 6.2.0698 ACTION-OF
         // 6.2.0873 CASE
-        // 6.2.0945 COMPILE,
         // 6.2.1173 DEFER
         // 6.2.1175 DEFER!
         // 6.2.1177 DEFER@
@@ -116,6 +229,7 @@ public class Forth83Engine extends ForthEngine {
         add("IMMEDIATE", ForthEngine.IMMEDIATE).immediate();
 
         addF("COMPILE", Forth83Engine::_compile);
+        add("COMPILE,", ForthEngine.COMPILE_COMMA); // 6.2.0945
         add("[COMPILE]", ForthEngine.POSTPONE).immediate();
 
         add("CREATE", ForthEngine.CREATE);
@@ -197,9 +311,18 @@ public class Forth83Engine extends ForthEngine {
         add("RP!", JemEngine.R_CLEAR);
         add(".RSTACK", JemEngine.DOT_RSTACK);
 
-        addF("I", c -> c.rPeek(2)); // 6.1.1680
+        // the loop-sys of a counted loop takes three cells, the index on top
+        addF("I", c -> c.rPeek(1)); // 6.1.1680
         addF("J", c -> c.rPeek(4)); // 6.1.1730
-        addF("K", c -> c.rPeek(6)); // non std
+        addF("K", c -> c.rPeek(7)); // non std
+
+        add("(DO)", JemEngine.PAREN_DO);
+        add("(?DO)", JemEngine.PAREN_QUESTION_DO);
+        add("(LOOP)", JemEngine.PAREN_LOOP);
+        add("(+LOOP)", JemEngine.PAREN_PLUS_LOOP);
+        add("(LEAVE)", JemEngine.PAREN_LEAVE);
+        add("UNLOOP", JemEngine.UNLOOP); // 6.1.2380
+        add(new UserVariableWord("#DO", () -> doNesting, v -> doNesting = v)); // non std
 
         add(": CELLS " + CELL_SIZE + " * ;"); // 6.1.0890
         add(": CELL+ " + CELL_SIZE + " + ;"); // 6.1.0880
@@ -227,7 +350,6 @@ public class Forth83Engine extends ForthEngine {
         add(": BEGIN  HERE ; IMMEDIATE"); // 6.1.0760
         add(": UNTIL  COMPILE ?BRANCH , ; IMMEDIATE"); // 6.1.2390
         add(": END    [COMPILE] UNTIL ; IMMEDIATE"); // alias for until
-        add(": LEAVE  COMPILE BRANCH HERE SWAP 0 , ; IMMEDIATE"); // 6.1.1760
         add(": AGAIN  COMPILE BRANCH , ; IMMEDIATE"); // 6.2.0700
 
         add(": WHILE  COMPILE ?BRANCH HERE 0 , ; IMMEDIATE"); // 6.1.2430
@@ -237,9 +359,13 @@ public class Forth83Engine extends ForthEngine {
         add(": THEN   HERE SWAP ! ; IMMEDIATE"); // 6.1.2270
         add(": ELSE   COMPILE BRANCH  HERE 0 , SWAP HERE SWAP ! ; IMMEDIATE"); // 6.1.1310
 
-        add(": DO HERE COMPILE >R COMPILE >R ; IMMEDIATE"); // 6.1.1240
-        add(": LOOP COMPILE R> COMPILE R> COMPILE 1+  COMPILE 2DUP COMPILE = COMPILE ?BRANCH , COMPILE 2DROP ; IMMEDIATE"); // 6.1.1800
-        add(": +LOOP COMPILE R> COMPILE R> COMPILE ROT COMPILE + COMPILE 2DUP COMPILE = COMPILE ?BRANCH , COMPILE 2DROP ; IMMEDIATE"); // 6.1.0140
+        // DO leaves the address of the leave operand and the loop start, LOOP resolves both
+        add(": DO  COMPILE (DO) HERE 0 , HERE #DO @ 1+ #DO ! ; IMMEDIATE"); // 6.1.1240
+        add(": ?DO COMPILE (?DO) HERE 0 , HERE #DO @ 1+ #DO ! ; IMMEDIATE"); // 6.2.0620
+        add(": LOOP  COMPILE (LOOP) , HERE SWAP ! #DO @ 1- #DO ! ; IMMEDIATE"); // 6.1.1800
+        add(": +LOOP COMPILE (+LOOP) , HERE SWAP ! #DO @ 1- #DO ! ; IMMEDIATE"); // 6.1.0140
+        // outside a counted loop LEAVE exits a BEGIN ... REPEAT loop
+        add(": LEAVE #DO @ IF COMPILE (LEAVE) ELSE COMPILE BRANCH HERE SWAP 0 , THEN ; IMMEDIATE"); // 6.1.1760
 
         add(": >MARK HERE 0 , ;");
         add(": >RESOLVE HERE SWAP ! ;");
@@ -254,8 +380,7 @@ public class Forth83Engine extends ForthEngine {
         add(": COUNT 1+ DUP 1- C@ ;").comment("( a1 -- a2 u )", // 6.1.0980
                 "Push length and address of first char for the string address on the stack.");
 
-        add(": TYPE ?DUP IF OVER + SWAP DO I C@ EMIT LOOP ELSE DROP THEN ;") // 6.1.2310
-                .comment("( addr len -- )", "print String with address of first char and length");
+        add("TYPE", ForthEngine.TYPE);
 
         addF(">STRING", Forth83Engine::copyToString); // non-Standard
         add(": C\" $22 WORD >STRING COMPILE (STRLITERAL) , ; IMMEDIATE"); // 6.2.0855
@@ -404,18 +529,28 @@ public class Forth83Engine extends ForthEngine {
         addF("EMPTY-BUFFERS", c -> c.blockBuffer.emptyBuffers()); // 7.6.2.1330
         addF("LIST", Forth83Engine::_list); // 7.6.2.1770
         addF("UPDATE", c -> c.blockBuffer.update()); // 7.6.1.2400
+        addF("#BUFFERS", c -> c.stack.push(c.blockBuffer.bufferCount())) // non-std
+                .comment("( -- n )", "number of block buffers");
+        addF("BLOCK-HITS", c -> c.stack.push((int) c.blockBuffer.hits())) // non-std
+                .comment("( -- n )", "number of block requests served by an assigned buffer");
+        addF("BLOCK-MISSES", c -> c.stack.push((int) c.blockBuffer.misses())) // non-std
+                .comment("( -- n )", "number of block requests that read the mass storage");
+        addF("BLOCK-EVICTIONS", c -> c.stack.push((int) c.blockBuffer.evictions())) // non-std
+                .comment("( -- n )", "number of buffers reassigned to another block");
+        addF("RESET-BLOCK-STATISTICS", c -> c.blockBuffer.resetStatistics()) // non-std
+                .comment("( -- )", "set the block buffer counters to zero");
         // 7.6.1.1360 EVALUATE
         // 7.6.2.2125 REFILL
         // 6.2.2535/7.6.2.2535 \
 
-        add(": RUN ?DUP IF   STATE @ <> IF EXECUTE ELSE , THEN" + //
+        add(": RUN ?DUP IF   STATE @ <> IF EXECUTE ELSE COMPILE, THEN" + //
                 "       ELSE >LITERAL " + //
                 "            IF   STATE @ IF COMPILE (LITERAL) , THEN " + //
                 "            ELSE COUNT TYPE #63 EMIT " + //
                 "            THEN " + //
                 "      THEN ;").comment("execute after WORD FIND have been executed");
 
-        Word intWord = add(": INTERPRET BEGIN BLK @ >IN @ #TIB @ < OR WHILE BL WORD FIND RUN REPEAT ;") //
+        interpretWord = add(": INTERPRET BEGIN BLK @ >IN @ #TIB @ < OR WHILE BL WORD FIND RUN REPEAT ;") //
                 .comment("( -- )", "Interpret all words from the current input stream");
 
         add(": LOAD BLK ! 0 >IN ! INTERPRET ;"); // 7.6.1.1790
@@ -449,7 +584,132 @@ public class Forth83Engine extends ForthEngine {
         add("' TIME FENCE !");
 
         // from here on we use the FORTH interpreter
-        executor = c -> execute(intWord);
+        forthInterpreter = interpretWord.cfa;
+        executor = c -> execute(interpretWord);
+        imageRestored();
+        useSuperinstructions(Superinstructions.standard());
+        Integer jitThreshold = Integer.getInteger(JIT_THRESHOLD_PROPERTY);
+        if (jitThreshold != null) {
+            useJit(Jit.standard(jitThreshold));
+        }
+    }
+
+    /**
+     * Selects the implementation of the outer interpreter.
+     * <p>
+     * The native interpreter is a Java implementation of the colon definitions
+     * {@code INTERPRET} and {@code RUN} with the same behaviour. It replaces the
+     * code field of {@code INTERPRET}, so {@code LOAD}, {@code QUIT} and the
+     * like use it as well. The definition is kept, {@code SEE} shows it
+     * unchanged. The debugger does not step through the native interpreter, only
+     * through the words it executes. A redefinition of {@code INTERPRET} is a
+     * colon definition and uses the inner interpreter.
+     *
+     * @param nativeInterpreter
+     *                              {@code true} to use the Java implementation,
+     *                              {@code false} for the colon definition
+     */
+    public void useNativeInterpreter(boolean nativeInterpreter) {
+        interpretWord.cfa = nativeInterpreter ? c -> interpretNative() : forthInterpreter;
+    }
+
+    /**
+     * Tells whether the native outer interpreter is used.
+     *
+     * @return {@code true} iff {@code INTERPRET} is executed in Java
+     */
+    public boolean isNativeInterpreter() {
+        return interpretWord.cfa != forthInterpreter;
+    }
+
+    /**
+     * Java implementation of {@code INTERPRET}.
+     * <p>
+     * {@code : INTERPRET BEGIN BLK @ >IN @ #TIB @ < OR WHILE BL WORD FIND RUN REPEAT ;}
+     */
+    private void interpretNative() {
+        while (blk != 0 || toIn < tibWord.length()) {
+            parseWord(Character::isWhitespace);
+            runNative(find(wordBuffer.content()));
+        }
+    }
+
+    /**
+     * Java implementation of {@code RUN}.
+     * <p>
+     * Executes or compiles the word found. A word that is not found is converted
+     * to a literal, if that fails the word is printed followed by a "?".
+     *
+     * @param word
+     *                 the word found in the dictionary or {@code null}
+     */
+    private void runNative(Word word) {
+        if (word != null) {
+            int flag = word.isImmediate() ? FIND_IMMEDIATE : FIND_NORMAL;
+            if (state != flag) {
+                executeNested(word);
+            } else {
+                compileComma(word.xt());
+            }
+            return;
+        }
+        stack.push(wordBuffer.xt() + 1);
+        toLiteral();
+        if (stack.pop() != 0) {
+            if (state != INTERPRET) {
+                comma(litWord.xt());
+                comma(stack.pop());
+            }
+        } else {
+            stack.pop();
+            for (int n = 0; n < wordBuffer.length(); n++) {
+                printChar.accept(wordBuffer.charAt(n));
+            }
+            printChar.accept('?');
+        }
+    }
+
+    /**
+     * Executes a word in a nested inner interpreter.
+     * <p>
+     * The instruction pointer of the caller is restored when the word has been
+     * executed.
+     *
+     * @param word
+     *                 the word to execute
+     */
+    private void executeNested(Word word) {
+        int caller = ip;
+        ip = 0;
+        try {
+            execute(word);
+        } finally {
+            ip = caller;
+        }
+    }
+
+    /**
+     * Replaces the block buffer, e.g. to use a memory mapped mass storage.
+     * <p>
+     * The buffers of the block buffer replaced are not saved.
+     *
+     * @param blockBuffer
+     *                        the block buffer to use
+     */
+    public void useBlockBuffer(BlockBuffer blockBuffer) {
+        this.blockBuffer = blockBuffer;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Closes the included files and the mass storage, updated blocks are
+     * written back.
+     */
+    @Override
+    public void close() {
+        closeIncludes();
+        blockBuffer.close();
     }
 
     /**
@@ -465,20 +725,38 @@ public class Forth83Engine extends ForthEngine {
     @Override
     public void reset(boolean executionOnly) {
         super.reset(executionOnly);
+        closeIncludes();
         blk = 0;
+        doNesting = 0;
     }
 
     /**
      * {@inheritDoc}
      * <p>
      * Copies the input string into the terminal input buffer and executes the
-     * INTERPRET word.
+     * INTERPRET word. Any exception raised while a file is included closes all
+     * included files, a Forth exception also reports the location.
      */
     @Override
     public void process(String input) {
         tibWord.setData(input);
         toIn = 0;
-        executor.accept(this);
+        try {
+            executor.accept(this);
+        } catch (ForthTerminatedException e) {
+            closeIncludes();
+            throw e;
+        } catch (JemForthException e) {
+            if (includeLocation == null && includes.isEmpty()) {
+                throw e;
+            }
+            String location = includeLocation;
+            closeIncludes();
+            throw location != null ? IncludeException.at(location, e) : e;
+        } catch (RuntimeException e) {
+            closeIncludes();
+            throw e;
+        }
     }
 
     /**
@@ -583,17 +861,45 @@ public class Forth83Engine extends ForthEngine {
 
     /**
      * Opens a file for reading.
+     * <p>
+     * The file becomes the input source, the current input source is restored
+     * when the file is processed.
      *
      * @param path
      *                 name and path of the file
      */
     protected void _include(String path) {
-        File file = new File(path);
         try {
-            fis = new FileInputStream(file);
-            blk = -1;
-        } catch (FileNotFoundException e1) {
-            e1.printStackTrace();
+            includes.push(new SourceFile(path, blk, toIn));
+        } catch (IOException e) {
+            throw IncludeException.cannotOpen(path, e);
+        }
+        blk = -1;
+        closeProcessedIncludes();
+    }
+
+    /**
+     * Restores the input source for all files without words left.
+     */
+    private void closeProcessedIncludes() {
+        while (blk < 0 && !includes.isEmpty() && !includes.peek().skipWhitespace()) {
+            SourceFile file = includes.pop();
+            Util.closeSilently(file);
+            blk = file.blk();
+            toIn = file.toIn();
+        }
+    }
+
+    /**
+     * Closes all included files and restores the outermost input source.
+     */
+    private void closeIncludes() {
+        includeLocation = null;
+        while (!includes.isEmpty()) {
+            SourceFile file = includes.pop();
+            Util.closeSilently(file);
+            blk = file.blk();
+            toIn = file.toIn();
         }
     }
 
@@ -602,10 +908,50 @@ public class Forth83Engine extends ForthEngine {
         int get();
     }
 
+    @FunctionalInterface
+    private interface PutChar {
+        void put(char zch);
+    }
+
+    private final GetInt fileSource = this::getCharFromFile;
+    private final GetInt blockSource = this::getCharFromBlock;
+    private final GetInt tibSource = this::getCharFromTib;
+    private final PutChar wordBufferSink = wordBuffer::append;
+
+    /**
+     * Scratch buffer for words parsed as Java string.
+     */
+    private final StringBuilder parsed = new StringBuilder();
+
     @Override
     protected String parse(CheckChar check) {
+        parsed.setLength(0);
+        scan(check, parsed::append);
+        return parsed.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The characters are copied from the current input source into the word
+     * buffer without creating a string.
+     */
+    @Override
+    protected void parseWord(CheckChar check) {
+        wordBuffer.clear();
+        scan(check, wordBufferSink);
+    }
+
+    /**
+     * Reads the next word from the current input source.
+     *
+     * @param check
+     *                  An expression to identify the delimiter
+     * @param sink
+     *                  receives the characters of the word
+     */
+    private void scan(CheckChar check, PutChar sink) {
         GetInt source = getSource();
-        StringBuffer result = new StringBuffer("");
 
         // skip whitespace (and \0 characters)
         int zch = source.get();
@@ -615,20 +961,24 @@ public class Forth83Engine extends ForthEngine {
 
         // read to the next delimiter
         while (zch > 0 && !check.isDelimiter((char) zch)) {
-            result.append((char) zch);
+            sink.put((char) zch);
             zch = source.get();
         }
-        return result.toString();
+        includeLocation = null;
+        if (blk < 0 && !includes.isEmpty()) {
+            includeLocation = includes.peek().location();
+            closeProcessedIncludes();
+        }
     }
 
     private GetInt getSource() {
         if (blk < 0) {
-            return this::getCharFromFileInputStream;
+            return fileSource;
         }
         if (blk > 0) {
-            return this::getCharFromBlock;
+            return blockSource;
         }
-        return this::getCharFromTib;
+        return tibSource;
     }
 
     /**
@@ -644,24 +994,12 @@ public class Forth83Engine extends ForthEngine {
     }
 
     /**
-     * Reads a character from the file inputstream if available.
+     * Reads a character from the innermost included file.
      *
-     * @return character read
+     * @return character read or -1
      */
-    protected int getCharFromFileInputStream() {
-        int result = 0;
-        try {
-            result = fis.read();
-        } catch (IOException e) {
-            e.printStackTrace();
-            result = -1;
-        }
-        if (result == -1) {
-            blk = 0;
-            Util.closeSilently(fis);
-            fis = null;
-        }
-        return result;
+    protected int getCharFromFile() {
+        return includes.isEmpty() ? -1 : includes.peek().read();
     }
 
     /**
@@ -685,12 +1023,12 @@ public class Forth83Engine extends ForthEngine {
     protected void _list() {
         scr = stack.iPop();
         print("\n\r");
-        byte[] content = blockBuffer.blockContent(scr);
+        ByteBuffer content = blockBuffer.blockContent(scr);
         for (int row = 0; row < 16; row++) {
             StringBuffer line = new StringBuffer(80);
             line.append(row).append(": ");
             for (int col = 0; col < 64; col++) {
-                byte zch = content[64 * row + col];
+                byte zch = content.get(64 * row + col);
                 line.append(zch == '\0' ? ' ' : (char) zch);
             }
             print(line.append("\n\r").toString());
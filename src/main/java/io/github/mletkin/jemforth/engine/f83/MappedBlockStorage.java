@@ -0,0 +1,102 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine.f83;
+
+import static io.github.mletkin.jemforth.engine.f83.BlockBuffer.BLOCK_SIZE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import io.github.mletkin.jemforth.engine.exception.MassStorageCapacityExceededException;
+import io.github.mletkin.jemforth.engine.exception.MassStorageException;
+
+/**
+ * Block storage in a memory mapped file.
+ * <p>
+ * The whole file is mapped into memory, a loaded block is a view of the
+ * mapping. Nothing is copied, storing a block forces the range of the block to
+ * the file.
+ * <ul>
+ * <li>the file is mapped on first access, a storage that is never used holds
+ * no mapping
+ * <li>the file is extended to the capacity of the storage
+ * <li>changes of a block buffer are visible in the mapping immediately, so
+ * {@code EMPTY-BUFFERS} can not discard them
+ * </ul>
+ */
+public class MappedBlockStorage implements BlockStorage {
+
+    private final String path;
+    private final int capacity;
+    private MappedByteBuffer mapping = null;
+
+    /**
+     * Creates a storage in a file.
+     *
+     * @param path
+     *                     path and filename of mass storage file
+     * @param capacity
+     *                     the number of blocks of the storage
+     */
+    public MappedBlockStorage(String path, int capacity) {
+        this.path = path;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public ByteBuffer load(int blockId) {
+        checkAccess(blockId);
+        return mapping.slice(offset(blockId), BLOCK_SIZE);
+    }
+
+    @Override
+    public void store(int blockId, ByteBuffer content) {
+        checkAccess(blockId);
+        mapping.force(offset(blockId), BLOCK_SIZE);
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Drops the mapping, it is released when the views of the blocks are gone.
+     */
+    @Override
+    public void close() {
+        mapping = null;
+    }
+
+    private void checkAccess(int blockId) {
+        if (blockId < 1 || blockId > capacity) {
+            throw new MassStorageCapacityExceededException();
+        }
+        if (mapping == null) {
+            open();
+        }
+    }
+
+    /**
+     * Maps the file, the file is created if necessary.
+     */
+    private void open() {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * BLOCK_SIZE);
+        } catch (IOException e) {
+            throw new MassStorageException(e);
+        }
+    }
+
+    private static int offset(int blockId) {
+        return (blockId - 1) * BLOCK_SIZE;
+    }
+}
@@ -5,20 +5,92 @@
  */
 package io.github.mletkin.jemforth.engine.f83;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import io.github.mletkin.jemforth.engine.JemEngine;
+import io.github.mletkin.jemforth.engine.exception.ForthTerminatedException;
 
 /**
  * Glue class between a {@code JConsole} and a {@code JemForth} engine using
  * piped I/O streams.
+ * <p>
+ * Input is read in blocks into a buffer, waiting for input blocks the engine
+ * thread. The end of the input stream terminates the engine.<br>
+ * Output is collected in a buffer and written when
+ * <ul>
+ * <li>the buffer is full
+ * <li>the engine waits for input
+ * <li>a line is complete, if the flush policy is {@link Flush#LINE}
+ * <li>the idle delay has passed since the first character was buffered, so
+ * long computations that neither complete a line nor read input show their
+ * output
+ * <li>the engine terminates
+ * <li>{@link #flush()} is called
+ * </ul>
+ * Input and output are encoded in ISO-8859-1, characters without a code in
+ * ISO-8859-1 are written as {@code ?}.
  */
 public class PipedEnvironment extends ConsoleEnvironment {
 
+    /**
+     * Size of the input and the output buffer.
+     */
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * Default time in milliseconds output may wait in the buffer.
+     */
+    public static final long DEFAULT_IDLE_DELAY = 100;
+
+    /**
+     * Writes the output of all environments after the idle delay.
+     */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "jemforth-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * When the output is written in addition to a full buffer and waiting for
+     * input.
+     */
+    public enum Flush {
+        /**
+         * Write after each line feed.
+         */
+        LINE,
+        /**
+         * Write only when the engine waits for input.
+         */
+        INPUT
+    }
+
     private OutputStream output;
     private InputStream input;
+    private Flush flush = Flush.LINE;
+    private long idleDelay = DEFAULT_IDLE_DELAY;
+    private ScheduledFuture<?> idleFlush;
+
+    /**
+     * Guards the input buffer, so waiting for input does not block the output.
+     */
+    private final Object inputLock = new Object();
+
+    private final byte[] inBuffer = new byte[BUFFER_SIZE];
+    private int inPosition;
+    private int inLimit;
+
+    private final byte[] outBuffer = new byte[BUFFER_SIZE];
+    private int outCount;
 
     /**
      * Connects a JemForth engine with Environment.
@@ -30,6 +102,12 @@ public class PipedEnvironment extends ConsoleEnvironment {
         super(engine);
     }
 
+    @Override
+    protected void extendEngine() {
+        super.extendEngine();
+        engine.setTerminateHook(this::flush);
+    }
+
     public void setInput(InputStream input) {
         this.input = input;
     }
@@ -38,52 +116,122 @@ public class PipedEnvironment extends ConsoleEnvironment {
         this.output = output;
     }
 
+    /**
+     * Sets the policy for writing the output.
+     *
+     * @param flush
+     *                  the flush policy, {@link Flush#LINE} by default
+     */
+    public void setFlush(Flush flush) {
+        this.flush = flush;
+    }
+
+    /**
+     * Sets the time output may wait in the buffer.
+     *
+     * @param millis
+     *                   delay in milliseconds, zero turns the timed write off
+     */
+    public void setIdleDelay(long millis) {
+        this.idleDelay = millis;
+    }
+
     @Override
-    protected synchronized char key() throws IOException {
-        while (input.available() == 0) {
-            // just wait for a key
+    protected char key() throws IOException {
+        synchronized (inputLock) {
+            if (inPosition >= inLimit) {
+                flush();
+                int count = input.read(inBuffer);
+                if (count == -1) {
+                    throw new ForthTerminatedException();
+                }
+                inPosition = 0;
+                inLimit = count;
+            }
+            return (char) (inBuffer[inPosition++] & 0xFF);
         }
-        byte b[] = new byte[1];
-        if (input.read(b) == -1) {
-            throw new IllegalStateException();
-        }
-        return (char) b[0];
     }
 
     @Override
     protected boolean isCharAvailable() {
-        try {
-            return input.available() != 0;
-        } catch (IOException e) {
-            e.printStackTrace();
+        synchronized (inputLock) {
+            try {
+                return inPosition < inLimit || input.available() != 0;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return false;
         }
-        return false;
     }
 
     @Override
     protected char readChar() {
         try {
             return key();
-        } catch (IOException | IllegalStateException e) {
+        } catch (IOException e) {
             e.printStackTrace();
             return (char) -1;
         }
     }
 
     @Override
-    public void print(char character) {
-        try {
-            output().write(character);
-            output().flush();
-        } catch (IOException e) {
-            e.printStackTrace();
+    public synchronized void print(char character) {
+        if (outCount == outBuffer.length) {
+            flush();
+        }
+        outBuffer[outCount++] = character <= 0xFF ? (byte) character : (byte) '?';
+        if (character == '\n' && flush == Flush.LINE) {
+            flush();
         }
+        scheduleFlush();
     }
 
     @Override
-    public void print(String str) {
+    public synchronized void print(String str) {
+        byte[] bytes = str.getBytes(ISO_8859_1);
+        if (outCount + bytes.length > outBuffer.length) {
+            flush();
+        }
+        if (bytes.length > outBuffer.length) {
+            write(bytes, bytes.length);
+        } else {
+            System.arraycopy(bytes, 0, outBuffer, outCount, bytes.length);
+            outCount += bytes.length;
+        }
+        if (flush == Flush.LINE && str.indexOf('\n') >= 0) {
+            flush();
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Schedules a write of the buffer when the first character is buffered.
+     */
+    private void scheduleFlush() {
+        if (outCount > 0 && idleFlush == null && idleDelay > 0) {
+            idleFlush = TIMER.schedule(this::idleFlush, idleDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void idleFlush() {
+        idleFlush = null;
+        flush();
+    }
+
+    /**
+     * Writes the collected output to the output stream.
+     */
+    public synchronized void flush() {
+        write(outBuffer, outCount);
+        outCount = 0;
+    }
+
+    private void write(byte[] bytes, int length) {
+        if (length == 0) {
+            return;
+        }
         try {
-            output().write(str.getBytes());
+            output().write(bytes, 0, length);
             output().flush();
         } catch (IOException e) {
             e.printStackTrace();
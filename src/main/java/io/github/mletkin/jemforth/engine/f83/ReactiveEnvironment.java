@@ -7,19 +7,38 @@ package io.github.mletkin.jemforth.engine.f83;
 
 import java.util.concurrent.Flow.Publisher;
 import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.SubmissionPublisher;
 
 import io.github.mletkin.jemforth.engine.JemEngine;
-
-import java.util.concurrent.SubmissionPublisher;
+import io.github.mletkin.jemforth.engine.exception.ForthTerminatedException;
 
 /**
  * Glue class between a {@code JConsole} and a {@code JemForth} engine using
  * reactive streams.
+ * <p>
+ * Waiting for a key blocks the engine thread. When the keyboard channel is
+ * completed or the thread is interrupted, the engine is terminated. An error
+ * of the keyboard channel is passed on as cause of the termination.
+ * <p>
+ * Output is collected and published in chunks. A chunk is published when a
+ * line is complete, when the buffer is full, when the engine waits for a key
+ * and with {@link #flush()}.
  */
 public class ReactiveEnvironment extends ConsoleEnvironment {
 
+    /**
+     * Number of characters collected before the output is published.
+     */
+    private static final int OUTPUT_LIMIT = 1024;
+
     private final BufferedSubscriber<Character> keyboard = new BufferedSubscriber<>();
-    private final SubmissionPublisher<Character> output = new SubmissionPublisher<>();
+    private final SubmissionPublisher<String> output = new SubmissionPublisher<>();
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * Guards the keyboard, so waiting for a key does not block the output.
+     */
+    private final Object inputLock = new Object();
 
     /**
      * Connects a JemForth engine with reactive I/O channels.
@@ -47,17 +66,27 @@ public class ReactiveEnvironment extends ConsoleEnvironment {
      * @param outputChannel
      *                          the subscriber to attach to the output channel
      */
-    public void connectDisplay(Subscriber<Character> outputChannel) {
+    public void connectDisplay(Subscriber<String> outputChannel) {
         output.subscribe(outputChannel);
     }
 
     @Override
-    protected synchronized char key() {
-        keyboard.request(1);
-        while (keyboard.getBuffer().isEmpty()) {
-            ;
+    protected char key() {
+        synchronized (inputLock) {
+            flush();
+            Character key;
+            try {
+                key = keyboard.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ForthTerminatedException();
+            }
+            if (key == null) {
+                Throwable error = keyboard.error();
+                throw error != null ? new ForthTerminatedException(error) : new ForthTerminatedException();
+            }
+            return key;
         }
-        return keyboard.getBuffer().elementAt(0);
     }
 
     @Override
@@ -67,19 +96,33 @@ public class ReactiveEnvironment extends ConsoleEnvironment {
 
     @Override
     protected boolean isCharAvailable() {
-        return !keyboard.getBuffer().isEmpty();
+        return !keyboard.isEmpty();
     }
 
     @Override
-    public void print(String str) {
-        for (int n = 0; n < str.length(); n++) {
-            output.submit(str.charAt(n));
+    public synchronized void print(String str) {
+        buffer.append(str);
+        if (buffer.length() >= OUTPUT_LIMIT || str.indexOf('\n') >= 0) {
+            flush();
         }
     }
 
     @Override
-    public void print(char character) {
-        output.submit(character);
+    public synchronized void print(char character) {
+        buffer.append(character);
+        if (buffer.length() >= OUTPUT_LIMIT || character == '\n') {
+            flush();
+        }
+    }
+
+    /**
+     * Publishes the collected output.
+     */
+    public synchronized void flush() {
+        if (buffer.length() > 0) {
+            output.submit(buffer.toString());
+            buffer.setLength(0);
+        }
     }
 
 }
@@ -0,0 +1,147 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine.f83;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import io.github.mletkin.jemforth.engine.exception.IncludeException;
+
+/**
+ * A source file processed by {@code INCLUDE}.
+ * <p>
+ * The file is read through a file channel in large chunks and decoded once, a
+ * byte is a character. The object keeps the input source specification of the
+ * including source, so it can be restored when the file is processed. The
+ * line numbers are counted for error messages.
+ */
+class SourceFile implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String name;
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private int line = 1;
+    private int wordLine = 1;
+
+    private final int blk;
+    private final int toIn;
+
+    /**
+     * Opens a source file.
+     *
+     * @param path
+     *                 name and path of the file
+     * @param blk
+     *                 value of {@code BLK} of the including source
+     * @param toIn
+     *                 value of {@code >IN} of the including source
+     * @throws IOException
+     *                         if the file cannot be opened
+     */
+    SourceFile(String path, int blk, int toIn) throws IOException {
+        this.name = path;
+        this.reader = Channels.newReader(FileChannel.open(Path.of(path)), ISO_8859_1.newDecoder(), BUFFER_SIZE);
+        this.blk = blk;
+        this.toIn = toIn;
+    }
+
+    /**
+     * Reads the next character.
+     *
+     * @return the character read or -1 at the end of the file
+     */
+    int read() {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        char zch = buffer[position++];
+        if (zch == '\n') {
+            line++;
+        }
+        return zch;
+    }
+
+    /**
+     * Skips whitespace (and \0 characters) up to the start of the next word.
+     *
+     * @return {@code true} iff there is a word left in the file
+     */
+    boolean skipWhitespace() {
+        while (position < limit || fill()) {
+            char zch = buffer[position];
+            if (zch != 0 && !Character.isWhitespace(zch)) {
+                wordLine = line;
+                return true;
+            }
+            if (zch == '\n') {
+                line++;
+            }
+            position++;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the next chunk of the file into the buffer.
+     *
+     * @return {@code true} if there are characters left
+     * @throws IncludeException
+     *                              if the file cannot be read
+     */
+    private boolean fill() {
+        position = 0;
+        try {
+            limit = Math.max(reader.read(buffer), 0);
+        } catch (IOException e) {
+            limit = 0;
+            throw IncludeException.cannotRead(name, e);
+        }
+        return limit > 0;
+    }
+
+    /**
+     * Gets the position of the current word.
+     *
+     * @return file name and line number of the word read last
+     */
+    String location() {
+        return name + ":" + wordLine;
+    }
+
+    /**
+     * Gets the value of {@code BLK} to restore.
+     *
+     * @return the block number of the including source
+     */
+    int blk() {
+        return blk;
+    }
+
+    /**
+     * Gets the value of {@code >IN} to restore.
+     *
+     * @return the input position of the including source
+     */
+    int toIn() {
+        return toIn;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2018 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine.session;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import io.github.mletkin.jemforth.engine.JemEngine;
+import io.github.mletkin.jemforth.engine.exception.ForthTerminatedException;
+import io.github.mletkin.jemforth.engine.exception.JemForthException;
+
+/**
+ * A Forth engine running the {@code QUIT} loop for a single client.
+ * <p>
+ * Input is queued with {@link #send(String)} and read by the engine with
+ * {@code KEY} and {@code EXPECT}, the output is passed to the display given
+ * when the session is opened. The session ends when the engine executes
+ * {@code BYE} or the session is closed, then the engine is closed.
+ */
+public final class Session {
+
+    private final int id;
+    private final SessionEnvironment env;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private Thread thread;
+    private boolean closed;
+
+    /**
+     * Creates a session.
+     *
+     * @param id
+     *                    identification of the session
+     * @param engine
+     *                    the engine to run
+     * @param display
+     *                    receiver of the output
+     */
+    Session(int id, JemEngine engine, Consumer<String> display) {
+        this.id = id;
+        this.env = new SessionEnvironment(engine, display);
+    }
+
+    /**
+     * Returns the identification of the session.
+     *
+     * @return the session id
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * Returns the engine of the session.
+     *
+     * @return the engine
+     */
+    public JemEngine engine() {
+        return env.engine();
+    }
+
+    /**
+     * Queues text as input for the engine.
+     * <p>
+     * Lines must be terminated with a line feed to be interpreted.
+     *
+     * @param text
+     *                 the text to queue
+     */
+    public void send(String text) {
+        env.send(text);
+    }
+
+    /**
+     * Stops the engine.
+     * <p>
+     * An engine waiting for input stops at once, a running engine when it
+     * waits for input the next time.
+     */
+    public synchronized void close() {
+        closed = true;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Checks whether the session has not ended yet.
+     *
+     * @return {@code true} if the engine still runs
+     */
+    public boolean isRunning() {
+        return terminated.getCount() > 0;
+    }
+
+    /**
+     * Waits for the end of the session.
+     *
+     * @param timeout
+     *                    the maximum time to wait
+     * @param unit
+     *                    the unit of the timeout
+     * @return {@code true} if the session has ended
+     * @throws InterruptedException
+     *                                  if the current thread is interrupted
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * Runs the engine until termination.
+     * <ul>
+     * <li>exceptions restart the {@code QUIT} loop with a message, a failing
+     * session does not end
+     * <li>termination (BYE) or an interrupt stops the engine
+     * </ul>
+     */
+    void run() {
+        String cmd;
+        synchronized (this) {
+            thread = Thread.currentThread();
+            cmd = closed ? null : "QUIT";
+        }
+        try {
+            while (cmd != null) {
+                try {
+                    env.engine().process(cmd);
+                    cmd = "QUIT";
+                } catch (ForthTerminatedException e) {
+                    cmd = null;
+                } catch (JemForthException e) {
+                    env.print(e.getMessage());
+                    cmd = "QUIT";
+                } catch (RuntimeException e) {
+                    env.print(e.toString());
+                    cmd = "QUIT";
+                }
+            }
+        } finally {
+            synchronized (this) {
+                thread = null;
+            }
+            Thread.interrupted();
+            env.flush();
+            try {
+                env.engine().close();
+            } finally {
+                terminated.countDown();
+            }
+        }
+    }
+}
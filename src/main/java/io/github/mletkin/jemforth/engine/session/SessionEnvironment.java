@@ -0,0 +1,117 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2018 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine.session;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+import io.github.mletkin.jemforth.Package;
+import io.github.mletkin.jemforth.engine.JemEngine;
+import io.github.mletkin.jemforth.engine.exception.ForthTerminatedException;
+import io.github.mletkin.jemforth.engine.f83.ConsoleEnvironment;
+
+/**
+ * Glue class between a {@link Session} and a {@code JemForth} engine using
+ * in-process channels.
+ * <ul>
+ * <li>Input arrives in chunks of text that are consumed character by
+ * character.
+ * <li>Output is collected and passed to the display when the engine waits for
+ * input, when the buffer is full and when the session ends.
+ * <li>Waiting for input blocks the thread, an interrupt terminates the engine.
+ * </ul>
+ */
+@Package(cause = "used only by Session")
+final class SessionEnvironment extends ConsoleEnvironment {
+
+    /**
+     * Number of characters collected before the output is passed on.
+     */
+    private static final int OUTPUT_LIMIT = 4096;
+
+    private final BlockingQueue<String> input = new LinkedBlockingQueue<>();
+    private final StringBuilder output = new StringBuilder();
+    private final Consumer<String> display;
+    private String chunk = "";
+    private int position;
+
+    /**
+     * Connects a JemForth engine with in-process channels.
+     *
+     * @param engine
+     *                    the Forth engine to connect
+     * @param display
+     *                    receiver of the output
+     */
+    SessionEnvironment(JemEngine engine, Consumer<String> display) {
+        super(engine);
+        this.display = display;
+    }
+
+    /**
+     * Queues text as input for the engine.
+     *
+     * @param text
+     *                 the text to queue
+     */
+    void send(String text) {
+        if (!text.isEmpty()) {
+            input.add(text);
+        }
+    }
+
+    @Override
+    protected char key() {
+        while (position >= chunk.length()) {
+            flush();
+            try {
+                chunk = input.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ForthTerminatedException();
+            }
+            position = 0;
+        }
+        return chunk.charAt(position++);
+    }
+
+    @Override
+    protected char readChar() {
+        return key();
+    }
+
+    @Override
+    protected boolean isCharAvailable() {
+        return position < chunk.length() || !input.isEmpty();
+    }
+
+    @Override
+    protected void print(char character) {
+        output.append(character);
+        if (output.length() >= OUTPUT_LIMIT) {
+            flush();
+        }
+    }
+
+    @Override
+    protected void print(String str) {
+        output.append(str);
+        if (output.length() >= OUTPUT_LIMIT) {
+            flush();
+        }
+    }
+
+    /**
+     * Passes the collected output to the display.
+     */
+    void flush() {
+        if (output.length() > 0) {
+            display.accept(output.toString());
+            output.setLength(0);
+        }
+    }
+}
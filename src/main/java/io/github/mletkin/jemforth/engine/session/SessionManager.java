@@ -0,0 +1,121 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2018 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine.session;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import io.github.mletkin.jemforth.engine.JemEngine;
+import io.github.mletkin.jemforth.engine.f83.Forth83Engine;
+
+/**
+ * Hosts many independent Forth sessions without user interface.
+ * <p>
+ * Each session gets a new engine and runs in a task of the executor. A session
+ * waiting for input blocks its thread, so the executor must provide a thread
+ * for each running session. The default executor creates daemon threads on
+ * demand. On a runtime with virtual threads an executor with a virtual thread
+ * per task can be passed instead, then waiting sessions do not occupy platform
+ * threads.
+ * <p>
+ * The engines of the default factory use the default mass storage file. It is
+ * opened when a session uses a block and closed when the session ends, access
+ * of concurrent sessions is not coordinated. A factory can give each engine
+ * its own storage with {@link Forth83Engine#useBlockBuffer}.
+ */
+public final class SessionManager implements AutoCloseable {
+
+    private final Supplier<? extends JemEngine> engineFactory;
+    private final ExecutorService executor;
+    private final Map<Integer, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Creates a manager for Forth 83 sessions on daemon threads.
+     * <p>
+     * The engines are restored from the shared base image.
+     */
+    public SessionManager() {
+        this(() -> new Forth83Engine(Forth83Engine.baseImage()),
+                Executors.newCachedThreadPool(SessionManager::daemon));
+    }
+
+    /**
+     * Creates a manager.
+     *
+     * @param engineFactory
+     *                          creates the engine for each new session
+     * @param executor
+     *                          runs the sessions, closed with the manager
+     */
+    public SessionManager(Supplier<? extends JemEngine> engineFactory, ExecutorService executor) {
+        this.engineFactory = engineFactory;
+        this.executor = executor;
+    }
+
+    private static Thread daemon(Runnable runnable) {
+        Thread thread = new Thread(runnable, "jemforth-session");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Opens a new session.
+     *
+     * @param display
+     *                    receiver of the output, called by the thread of the
+     *                    session
+     * @return the running session
+     */
+    public Session open(Consumer<String> display) {
+        Session session = new Session(nextId.incrementAndGet(), engineFactory.get(), display);
+        sessions.put(session.id(), session);
+        executor.execute(() -> {
+            try {
+                session.run();
+            } finally {
+                sessions.remove(session.id());
+            }
+        });
+        return session;
+    }
+
+    /**
+     * Finds a running session.
+     *
+     * @param id
+     *               the session id
+     * @return the session or {@code null} if there is no such session
+     */
+    public Session session(int id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Returns the sessions that have not ended yet.
+     *
+     * @return the running sessions
+     */
+    public Collection<Session> sessions() {
+        return List.copyOf(sessions.values());
+    }
+
+    /**
+     * Stops all sessions and the executor.
+     */
+    @Override
+    public void close() {
+        sessions.values().forEach(Session::close);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Headless hosting of many independent Forth sessions.
+ * <p>
+ * Each session owns an engine with its own dictionary and stacks. Input and
+ * output are exchanged through in-process channels.
+ */
+package io.github.mletkin.jemforth.engine.session;
@@ -5,10 +5,10 @@
  */
 package io.github.mletkin.jemforth.engine.words;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
+import io.github.mletkin.jemforth.Package;
 import io.github.mletkin.jemforth.engine.exception.IllegalMemoryAccessException;
 
 /**
@@ -21,7 +21,7 @@ public class CellListWord extends Word {
     /**
      * Keeps the cells stored in this word.
      */
-    private final List<Integer> parameter = new ArrayList<>();
+    private ParameterArea parameter = new ListParameterArea();
 
     /**
      * Creates a new cell list word.
@@ -33,6 +33,37 @@ public class CellListWord extends Word {
         super(name);
     }
 
+    /**
+     * Moves the parameter area to another storage.
+     * <p>
+     * Cells already allocated are copied.
+     *
+     * @param area
+     *                 the new parameter area
+     */
+    @Package(cause = "used only by dictionary")
+    void useParameterArea(ParameterArea area) {
+        parameter.stream().forEach(area::add);
+        parameter = area;
+    }
+
+    /**
+     * Fills the empty parameter area with cells shared with other words.
+     * <p>
+     * The cells are copied with the first change of the word. A word in a
+     * linear heap or with cells allocated gets copies at once.
+     *
+     * @param cells
+     *                  the cells to share, the list must never be changed
+     */
+    public void shareCells(List<Integer> cells) {
+        if (parameter instanceof ListParameterArea && parameter.size() == 0) {
+            parameter = new ListParameterArea(cells);
+        } else {
+            cells.forEach(parameter::add);
+        }
+    }
+
     /**
      * Adds a cell to the parameter area, perform comma/allot.
      *
@@ -84,9 +115,6 @@ public class CellListWord extends Word {
         if (index < 0) {
             throw new IllegalMemoryAccessException();
         }
-        while (index >= parameter.size()) {
-            parameter.add(null);
-        }
         parameter.set(index, value);
     }
 
@@ -5,15 +5,71 @@
  */
 package io.github.mletkin.jemforth.engine.words;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import io.github.mletkin.jemforth.Package;
+import io.github.mletkin.jemforth.engine.Command;
+import io.github.mletkin.jemforth.engine.JemEngine;
+import io.github.mletkin.jemforth.engine.MemoryMapper;
+import io.github.mletkin.jemforth.engine.StackEffect;
+
 /**
  * Representation of a colon definition word.
+ * <p>
+ * Besides the xt cells the word keeps a parallel array of the words the cells
+ * refer to. The words are resolved when a cell is compiled or stored, so the
+ * inner interpreter does not have to look them up on every execution. Cells
+ * that contain no xt (like literals or branch addresses) resolve to
+ * {@code null}. The xt cells remain the master data used by {@code SEE} and
+ * the like.
+ * <p>
+ * The entry for the first cell of a word sequence may be replaced by a fused
+ * superinstruction that executes the whole sequence. Only the threaded entry
+ * is replaced, the cells of the sequence remain untouched. Storing into a cell
+ * covered by a superinstruction restores the original entry.
+ * <p>
+ * The word counts its calls and may hold code compiled by the JIT and the
+ * inferred stack effect. Storing into a cell discards both and resets the
+ * count, adding a cell discards the compiled code.
  */
 public class ColonWord extends CellListWord {
 
     {
-        cfa = c -> c.docol(firstPfaField());
+        cfa = c -> c.enter(this, firstPfaField());
     }
 
+    /**
+     * The words referenced by the cells, indexed like the cells.
+     */
+    private Word[] threaded = new Word[8];
+
+    /**
+     * Number of cells covered by a superinstruction, indexed like the cells.
+     */
+    private int[] fused = new int[8];
+
+    /**
+     * Code compiled by the JIT or {@code null}.
+     */
+    private Command<JemEngine> compiled;
+
+    /**
+     * Number of calls since the last change.
+     */
+    private int invocations;
+
+    /**
+     * The inferred stack effect or {@code null}.
+     */
+    private StackEffect stackEffect;
+
+    /**
+     * Retrieves a word by xt.
+     */
+    private IntFunction<Word> byXt = xt -> null;
+
     /**
      * Creates a new colon word.
      *
@@ -24,4 +80,166 @@ public class ColonWord extends CellListWord {
         super(name);
     }
 
+    /**
+     * Sets the function to resolve the xt cells and resolves the existing cells.
+     *
+     * @param byXt
+     *                 function to retrieve a word by xt
+     */
+    @Package(cause = "used only by dictionary")
+    void useXtResolver(IntFunction<Word> byXt) {
+        this.byXt = byXt;
+        int index = 0;
+        for (Integer value : (Iterable<Integer>) getDataArea()::iterator) {
+            resolve(index++, value);
+        }
+    }
+
+    @Override
+    public void addPfaEntry(Integer value) {
+        super.addPfaEntry(value);
+        resolve(cellCount() - 1, value);
+        compiled(null);
+    }
+
+    @Override
+    public void shareCells(List<Integer> cells) {
+        super.shareCells(cells);
+        for (int index = 0; index < cells.size(); index++) {
+            resolve(index, cells.get(index));
+        }
+        compiled(null);
+    }
+
+    @Override
+    public void store(int pfa, Integer value) {
+        super.store(pfa, value);
+        int index = mm.toCellPosition(pfa) - 1;
+        resolve(index, value);
+        unfuseCovering(index);
+        compiled(null);
+        stackEffect = null;
+    }
+
+    /**
+     * Gets the stack effect inferred for the word.
+     *
+     * @return the stack effect or {@code null} if it is unknown
+     */
+    public StackEffect stackEffect() {
+        return stackEffect;
+    }
+
+    /**
+     * Sets the stack effect inferred for the word.
+     *
+     * @param effect
+     *                   the stack effect, {@code null} if it is unknown
+     */
+    public void stackEffect(StackEffect effect) {
+        stackEffect = effect;
+    }
+
+    /**
+     * Counts a call of the word.
+     *
+     * @return the number of calls since the last change
+     */
+    public int countInvocation() {
+        return ++invocations;
+    }
+
+    /**
+     * Gets the code compiled by the JIT.
+     *
+     * @return the compiled code or {@code null}
+     */
+    public Command<JemEngine> compiled() {
+        return compiled;
+    }
+
+    /**
+     * Sets or discards the code compiled by the JIT.
+     * <p>
+     * Discarding the code resets the call count.
+     *
+     * @param code
+     *                 the compiled code, {@code null} discards the code
+     */
+    public void compiled(Command<JemEngine> code) {
+        compiled = code;
+        if (code == null) {
+            invocations = 0;
+        }
+    }
+
+    /**
+     * Replaces the threaded entry of a cell by a superinstruction.
+     *
+     * @param index
+     *                             index of the first cell of the sequence
+     * @param length
+     *                             number of cells covered by the sequence
+     * @param superinstruction
+     *                             word that executes the whole sequence
+     */
+    public void fuse(int index, int length, Word superinstruction) {
+        threaded[index] = superinstruction;
+        fused[index] = length;
+    }
+
+    /**
+     * Restores the threaded entries of all superinstructions.
+     */
+    public void unfuse() {
+        for (int index = 0; index < fused.length; index++) {
+            if (fused[index] > 0) {
+                resolve(index, fetchCell(index));
+            }
+        }
+    }
+
+    private void unfuseCovering(int index) {
+        for (int start = Math.max(0, index - maxFusedLength()); start <= index; start++) {
+            if (fused[start] > index - start) {
+                resolve(start, fetchCell(start));
+            }
+        }
+        fused[index] = 0;
+    }
+
+    private int maxFusedLength() {
+        int max = 0;
+        for (int length : fused) {
+            max = Math.max(max, length);
+        }
+        return max;
+    }
+
+    private Integer fetchCell(int index) {
+        return fetch(firstPfaField() + index * MemoryMapper.CELL_SIZE);
+    }
+
+    /**
+     * Gets the word resolved for the cell at the given address.
+     *
+     * @param pfa
+     *                absolute address of the cell
+     * @return the word referenced by the cell or {@code null}
+     */
+    public Word threadedWord(int pfa) {
+        int index = mm.toCellPosition(pfa) - 1;
+        return index >= 0 && index < threaded.length ? threaded[index] : null;
+    }
+
+    private void resolve(int index, Integer value) {
+        if (index >= threaded.length) {
+            int size = Math.max(index + 1, threaded.length << 1);
+            threaded = Arrays.copyOf(threaded, size);
+            fused = Arrays.copyOf(fused, size);
+        }
+        threaded[index] = value != null ? byXt.apply(value) : null;
+        fused[index] = 0;
+    }
+
 }
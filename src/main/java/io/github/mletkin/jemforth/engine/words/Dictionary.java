@@ -9,11 +9,8 @@ import static io.github.mletkin.jemforth.engine.MemoryMapper.CELL_SIZE;
 import static io.github.mletkin.jemforth.engine.Util.reverse;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import io.github.mletkin.jemforth.engine.MemoryMapper;
 import io.github.mletkin.jemforth.engine.exception.IllegalMemoryAccessException;
@@ -25,7 +22,7 @@ import io.github.mletkin.jemforth.engine.exception.IllegalMemoryAccessException;
  * engine. A Dictionary may contain multiple vocabularies to organize the words
  * defining a partition of the dictionary.<br>
  * Usually the words are referenced by name but to speed up interpretation the
- * dictionary keeps a map to access words by their execution token.<br>
+ * dictionary keeps a table to access words by their execution token.<br>
  * For the same reason the vocabularies keep a list of the words contained in
  * the vocabulary.
  *
@@ -49,6 +46,10 @@ import io.github.mletkin.jemforth.engine.exception.IllegalMemoryAccessException;
  * {@code fetch}, {@code cFetch}, {@code store} and {@code cStore}. The actual
  * access to the data stored in the words is delegated to the individul words.
  * The address calculation is delegated to the class {@code MemoryMapper}.
+ * <p>
+ * Optionally the parameter fields of all cell list words are kept in one
+ * contiguous {@link LinearMemory} heap. Cell access to those words is then
+ * handled by the dictionary directly without asking the word.
  * <ul>
  * <li>Every Dictionary is bound to a single forth engine.
  * <li>interface for word retrieval
@@ -64,9 +65,10 @@ public class Dictionary {
     private final List<Word> memory = new ArrayList<>();
 
     /**
-     * The word definitions accessible by xt for fast access by the interpreter.
+     * The word definitions indexed by word identifier for fast access by the
+     * interpreter.
      */
-    private final Map<Integer, Word> byExecutionToken = new HashMap<>();
+    private Word[] byIdentifier = new Word[256];
 
     /**
      * The word currently in compilation (aka LAST).
@@ -94,14 +96,33 @@ public class Dictionary {
     private F83VocabularyAccess searchResolver;
 
     /**
-     * Create a new dictionary.
+     * The heap for the parameter areas or {@code null} if words keep their cells.
+     */
+    private final LinearMemory linearMemory;
+
+    /**
+     * Create a new dictionary whose words keep their own cells.
      *
      * @param memoryMapper
      *                         the memory mapper to use
      */
     public Dictionary(MemoryMapper memoryMapper) {
+        this(memoryMapper, false);
+    }
+
+    /**
+     * Create a new dictionary.
+     *
+     * @param memoryMapper
+     *                         the memory mapper to use
+     * @param linear
+     *                         {@code true} keeps the cells of all cell list words
+     *                         in one linear heap
+     */
+    public Dictionary(MemoryMapper memoryMapper, boolean linear) {
         this.memoryMapper = memoryMapper;
         this.searchResolver = new F83VocabularyAccess(this::getByXt);
+        this.linearMemory = linear ? new LinearMemory(memoryMapper) : null;
     }
 
     /**
@@ -113,6 +134,15 @@ public class Dictionary {
         return memoryMapper;
     }
 
+    /**
+     * Returns the linear heap used for the parameter areas.
+     *
+     * @return the heap or {@code null} if the words keep their own cells
+     */
+    public LinearMemory linearMemory() {
+        return linearMemory;
+    }
+
     /**
      * Starts the compilation of a new word definition.
      *
@@ -141,9 +171,15 @@ public class Dictionary {
     public Word add(Word word) {
         word.setXt(nextXt());
         word.useMemoryMapper(memoryMapper);
+        if (linearMemory != null && word instanceof CellListWord cellListWord) {
+            cellListWord.useParameterArea(linearMemory.allocate(word.xt()));
+        }
+        if (word instanceof ColonWord colonWord) {
+            colonWord.useXtResolver(this::getByXt);
+        }
         memory.add(word);
         searchResolver.add(word);
-        byExecutionToken.put(word.xt(), word);
+        register(word);
         return word;
     }
 
@@ -154,7 +190,7 @@ public class Dictionary {
      *                 name of the word wanted
      * @return the {@link Word} or @code null}
      */
-    public Word find(String name) {
+    public Word find(CharSequence name) {
         return searchResolver.find(name);
     }
 
@@ -187,6 +223,30 @@ public class Dictionary {
         return this.currentWord;
     }
 
+    /**
+     * Gets the number of bytes allocated in the last cell of the current word.
+     *
+     * @return number of bytes allocated (0..CELL_SIZE-1)
+     */
+    public int getBytesAllocated() {
+        return bytesAllocated;
+    }
+
+    /**
+     * Continues the compilation of a word that is already in the dictionary.
+     * <p>
+     * Used to restore the compilation state of a dictionary from an image.
+     *
+     * @param word
+     *                           the word to continue or {@code null}
+     * @param bytesAllocated
+     *                           number of bytes allocated in the last cell
+     */
+    public void resume(Word word, int bytesAllocated) {
+        this.currentWord = word;
+        this.bytesAllocated = bytesAllocated;
+    }
+
     /**
      * Retrieves a Word by memory locator (xt).
      *
@@ -195,7 +255,27 @@ public class Dictionary {
      * @return the word with the given xt
      */
     public Word getByXt(int locator) {
-        return byExecutionToken.get(locator);
+        return memoryMapper.toXt(locator) == locator ? byIdentifier(locator) : null;
+    }
+
+    /**
+     * Retrieves the word with the identifier contained in the locator.
+     *
+     * @param locator
+     *                    any locator in the wanted word
+     * @return the word or {@code null}
+     */
+    private Word byIdentifier(int locator) {
+        int id = memoryMapper.toWordIdentifier(locator);
+        return id < byIdentifier.length ? byIdentifier[id] : null;
+    }
+
+    private void register(Word word) {
+        int id = memoryMapper.toWordIdentifier(word.xt());
+        if (id >= byIdentifier.length) {
+            byIdentifier = Arrays.copyOf(byIdentifier, Math.max(id + 1, byIdentifier.length << 1));
+        }
+        byIdentifier[id] = word;
     }
 
     // memory access to the word's parameter area
@@ -208,8 +288,12 @@ public class Dictionary {
      *                    locator of the target address
      * @return the value stored at the address
      */
-    public Integer fetch(int address) {
-        return findWordContainingPfa(address).fetch(address);
+    public int fetch(int address) {
+        if (linearMemory != null && linearMemory.contains(address)) {
+            return linearMemory.fetch(address);
+        }
+        Integer value = findWordContainingPfa(address).fetch(address);
+        return value != null ? value : 0;
     }
 
     /**
@@ -220,6 +304,9 @@ public class Dictionary {
      * @return the value stored at the address
      */
     public int cFetch(int address) {
+        if (linearMemory != null && linearMemory.contains(address)) {
+            return memoryMapper.extractByte(linearMemory.fetch(address), memoryMapper.toByte(address));
+        }
         return findWordContainingPfa(address).cFetch(address);
     }
 
@@ -236,7 +323,12 @@ public class Dictionary {
      *                    value to store at the address
      */
     public void store(int address, Integer value) {
-        findWordContainingPfa(address).store(address, value);
+        Word word = findWordContainingPfa(address);
+        if (linearMemory != null && !(word instanceof ColonWord) && linearMemory.contains(address)) {
+            linearMemory.store(address, value != null ? value : 0);
+            return;
+        }
+        word.store(address, value);
     }
 
     /**
@@ -248,7 +340,13 @@ public class Dictionary {
      *                    value whose lower byte will be stored at the address
      */
     public void cStore(int address, int value) {
-        findWordContainingPfa(address).cStore(address, value & 0xFF);
+        Word word = findWordContainingPfa(address);
+        if (linearMemory != null && !(word instanceof ColonWord) && linearMemory.contains(address)) {
+            int cell = linearMemory.fetch(address);
+            linearMemory.store(address, memoryMapper.setByte(cell, memoryMapper.toByte(address), value));
+            return;
+        }
+        word.cStore(address, value & 0xFF);
     }
 
     /**
@@ -264,8 +362,9 @@ public class Dictionary {
 
     /**
      * Gets the word whose address ist stored in the given pfa-Address.
-     *
-     * Works only for cell aligned word definitions.
+     * <p>
+     * Works only for cell aligned word definitions. Colon words keep the words
+     * resolved at compile time, so this is a plain array access for them.
      *
      * @param pfa
      *                locator containing the word's xt
@@ -273,8 +372,14 @@ public class Dictionary {
      */
     public Word fetchWord(int pfa) {
         Word word = findWordContainingPfa(pfa);
+        if (word instanceof ColonWord colonWord) {
+            Word threaded = colonWord.threadedWord(pfa);
+            if (threaded != null) {
+                return threaded;
+            }
+        }
         if (word instanceof CellListWord) {
-            return byExecutionToken.get(word.fetch(pfa));
+            return getByXt(fetch(pfa));
         }
         throw new IllegalMemoryAccessException("Not a pfa in a cell aligned word [" + pfa + "]");
     }
@@ -287,7 +392,7 @@ public class Dictionary {
      * @return the word found
      */
     public Word findWordContainingPfa(int pfa) {
-        return byExecutionToken.get(memoryMapper.toXt(pfa));
+        return byIdentifier(pfa);
     }
 
     /**
@@ -312,21 +417,24 @@ public class Dictionary {
                 .forEach(this::forgetWord);
 
         memory.removeIf(w -> w.xt() >= border);
-        removeTokenFromList(border);
+        removeFromTable(border);
+        if (linearMemory != null) {
+            linearMemory.trim();
+        }
     }
 
     private void forgetWord(Word word) {
         searchResolver.forgetWord(word);
-        byExecutionToken.remove(word.xt());
+        byIdentifier[memoryMapper.toWordIdentifier(word.xt())] = null;
+        if (linearMemory != null && word instanceof CellListWord) {
+            linearMemory.release(word.xt());
+        }
     }
 
-    private void removeTokenFromList(int border) {
-        Iterator<Entry<Integer, Word>> iterator = byExecutionToken.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Entry<Integer, Word> entry = iterator.next();
-            if (entry.getKey() > border) {
-                iterator.remove();
-            }
+    private void removeFromTable(int border) {
+        int first = memoryMapper.toWordIdentifier(border);
+        if (first < byIdentifier.length) {
+            Arrays.fill(byIdentifier, first, byIdentifier.length, null);
         }
     }
 
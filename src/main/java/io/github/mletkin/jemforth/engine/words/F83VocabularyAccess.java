@@ -131,7 +131,7 @@ public class F83VocabularyAccess implements Resolver {
      * @return the {@link Word}-Object or @code null}
      */
     @Override
-    public Word find(String name) {
+    public Word find(CharSequence name) {
         Word word = context.find(name);
         if (word == null && context != defaultVocabulary) {
             word = defaultVocabulary.find(name);
@@ -0,0 +1,229 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine.words;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import io.github.mletkin.jemforth.engine.MemoryMapper;
+
+/**
+ * One contiguous cell heap for the parameter areas of all cell list words.
+ * <p>
+ * Every {@link CellListWord} owns a segment of the heap. The segment of a word
+ * is found by the word identifier of a locator, so a cell access is an array
+ * lookup and some bit manipulation. No map lookup and no boxing is needed.
+ * <ul>
+ * <li>new segments are allocated at the top of the heap
+ * <li>a segment grows in place if it is the topmost segment
+ * <li>otherwise it is moved to the top, leaving a hole
+ * <li>forgotten segments at the top are released, holes are not compacted
+ * <li>cells have no {@code null} state, unused cells contain zero
+ * </ul>
+ */
+public class LinearMemory {
+
+    /**
+     * Marks a word identifier without segment.
+     */
+    private static final int NO_SEGMENT = -1;
+
+    /**
+     * The cells of all segments.
+     */
+    private int[] heap = new int[4096];
+
+    /**
+     * Index of the first unused cell of the heap.
+     */
+    private int top = 0;
+
+    /**
+     * Heap index of the first cell of a segment by word identifier.
+     */
+    private int[] base = new int[256];
+
+    /**
+     * Number of cells of a segment by word identifier.
+     */
+    private int[] length = new int[256];
+
+    /**
+     * Maps locators to word identifiers and cell positions.
+     */
+    private final MemoryMapper mm;
+
+    {
+        Arrays.fill(base, NO_SEGMENT);
+    }
+
+    /**
+     * Creates an empty heap.
+     *
+     * @param mm
+     *               the memory mapper used by the dictionary
+     */
+    public LinearMemory(MemoryMapper mm) {
+        this.mm = mm;
+    }
+
+    /**
+     * Creates an empty segment at the top of the heap.
+     *
+     * @param xt
+     *               execution token of the word owning the segment
+     * @return the parameter area representing the segment
+     */
+    ParameterArea allocate(int xt) {
+        int id = mm.toWordIdentifier(xt);
+        if (id >= base.length) {
+            int size = Math.max(id + 1, base.length << 1);
+            int oldSize = base.length;
+            base = Arrays.copyOf(base, size);
+            length = Arrays.copyOf(length, size);
+            Arrays.fill(base, oldSize, size, NO_SEGMENT);
+        }
+        base[id] = top;
+        length[id] = 0;
+        return new Segment(id);
+    }
+
+    /**
+     * Releases the segment of a word.
+     *
+     * @param xt
+     *               execution token of the word owning the segment
+     */
+    void release(int xt) {
+        int id = mm.toWordIdentifier(xt);
+        if (id < base.length) {
+            base[id] = NO_SEGMENT;
+            length[id] = 0;
+        }
+    }
+
+    /**
+     * Sets the top of the heap to the end of the topmost segment in use.
+     */
+    void trim() {
+        int newTop = 0;
+        for (int id = 0; id < base.length; id++) {
+            if (base[id] != NO_SEGMENT) {
+                newTop = Math.max(newTop, base[id] + length[id]);
+            }
+        }
+        top = newTop;
+    }
+
+    /**
+     * Checks whether the cell addressed by the locator is an allocated heap cell.
+     *
+     * @param locator
+     *                    locator of a cell or a byte in a cell
+     * @return {@code true} iff the cell is allocated
+     */
+    public boolean contains(int locator) {
+        int id = mm.toWordIdentifier(locator);
+        int index = mm.toCellPosition(locator) - 1;
+        return id < base.length && base[id] != NO_SEGMENT && index >= 0 && index < length[id];
+    }
+
+    /**
+     * Reads an allocated cell.
+     *
+     * @param locator
+     *                    locator of the cell, must satisfy {@link #contains}
+     * @return the cell content
+     */
+    public int fetch(int locator) {
+        return heap[base[mm.toWordIdentifier(locator)] + mm.toCellPosition(locator) - 1];
+    }
+
+    /**
+     * Writes an allocated cell.
+     *
+     * @param locator
+     *                    locator of the cell, must satisfy {@link #contains}
+     * @param value
+     *                    value to store
+     */
+    public void store(int locator, int value) {
+        heap[base[mm.toWordIdentifier(locator)] + mm.toCellPosition(locator) - 1] = value;
+    }
+
+    /**
+     * Gets the number of heap cells in use, including holes.
+     *
+     * @return the heap size in cells
+     */
+    public int size() {
+        return top;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > heap.length) {
+            heap = Arrays.copyOf(heap, Math.max(size, heap.length << 1));
+        }
+    }
+
+    /**
+     * The parameter area of a single word.
+     */
+    private class Segment implements ParameterArea {
+
+        /**
+         * Word identifier of the owning word.
+         */
+        private final int id;
+
+        Segment(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public void add(Integer value) {
+            if (base[id] + length[id] != top) {
+                moveToTop();
+            }
+            ensureCapacity(top + 1);
+            heap[top++] = value != null ? value : 0;
+            length[id]++;
+        }
+
+        private void moveToTop() {
+            ensureCapacity(top + length[id]);
+            System.arraycopy(heap, base[id], heap, top, length[id]);
+            base[id] = top;
+            top += length[id];
+        }
+
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || index >= length[id]) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return heap[base[id] + index];
+        }
+
+        @Override
+        public void set(int index, Integer value) {
+            while (index >= length[id]) {
+                add(0);
+            }
+            heap[base[id] + index] = value != null ? value : 0;
+        }
+
+        @Override
+        public int size() {
+            return length[id];
+        }
+
+        @Override
+        public Stream<Integer> stream() {
+            return Arrays.stream(heap, base[id], base[id] + length[id]).boxed();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine.words;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Parameter area that keeps the cells in a list owned by the word.
+ * <p>
+ * Cells that are allocated by a store beyond the last cell are {@code null}.
+ * The list might be shared with other words until the first change, then the
+ * cells are copied into a list of its own.
+ */
+class ListParameterArea implements ParameterArea {
+
+    /**
+     * Keeps the cells stored in this word.
+     */
+    private List<Integer> parameter;
+
+    /**
+     * {@code true} while the list is shared and must not be changed.
+     */
+    private boolean shared;
+
+    /**
+     * Creates an empty parameter area.
+     */
+    ListParameterArea() {
+        this.parameter = new ArrayList<>();
+    }
+
+    /**
+     * Creates a parameter area sharing its cells until the first change.
+     *
+     * @param cells
+     *                  the cells to share, they are never changed
+     */
+    ListParameterArea(List<Integer> cells) {
+        this.parameter = cells;
+        this.shared = true;
+    }
+
+    /**
+     * Gets the list to change, copying shared cells first.
+     */
+    private List<Integer> own() {
+        if (shared) {
+            parameter = new ArrayList<>(parameter);
+            shared = false;
+        }
+        return parameter;
+    }
+
+    @Override
+    public void add(Integer value) {
+        own().add(value);
+    }
+
+    @Override
+    public Integer get(int index) {
+        return parameter.get(index);
+    }
+
+    @Override
+    public void set(int index, Integer value) {
+        List<Integer> cells = own();
+        while (index >= cells.size()) {
+            cells.add(null);
+        }
+        cells.set(index, value);
+    }
+
+    @Override
+    public int size() {
+        return parameter.size();
+    }
+
+    @Override
+    public Stream<Integer> stream() {
+        return parameter.stream();
+    }
+}
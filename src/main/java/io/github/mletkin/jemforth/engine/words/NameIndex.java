@@ -0,0 +1,125 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine.words;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash table of word chains by name.
+ * <p>
+ * Unlike a {@code HashMap} with {@code String} keys the table can be searched
+ * with any {@link CharSequence}, so the interpreter looks up a token in place
+ * without creating a string. The hash function is the one of {@link String}.
+ */
+class NameIndex {
+
+    /**
+     * A name and the chain of its definitions, oldest first.
+     */
+    private static class Entry {
+        private final String name;
+        private final int hash;
+        private final List<Word> chain = new ArrayList<>(1);
+        private Entry next;
+
+        Entry(String name, int hash, Entry next) {
+            this.name = name;
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    private Entry[] table = new Entry[64];
+    private int size;
+
+    /**
+     * Gets the chain of definitions of a name.
+     *
+     * @param name
+     *                 the name searched
+     * @return the chain or {@code null}
+     */
+    List<Word> get(CharSequence name) {
+        int hash = hash(name);
+        for (Entry entry = table[hash & (table.length - 1)]; entry != null; entry = entry.next) {
+            if (entry.hash == hash && entry.name.contentEquals(name)) {
+                return entry.chain;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the chain of definitions of a name, creates an empty chain if
+     * necessary.
+     *
+     * @param name
+     *                 the name of the chain
+     * @return the chain
+     */
+    List<Word> chain(String name) {
+        List<Word> chain = get(name);
+        if (chain != null) {
+            return chain;
+        }
+        if (++size > table.length * 3 / 4) {
+            resize();
+        }
+        int hash = name.hashCode();
+        int bucket = hash & (table.length - 1);
+        table[bucket] = new Entry(name, hash, table[bucket]);
+        return table[bucket].chain;
+    }
+
+    /**
+     * Removes the chain of a name.
+     *
+     * @param name
+     *                 the name of the chain
+     */
+    void remove(String name) {
+        int hash = name.hashCode();
+        int bucket = hash & (table.length - 1);
+        Entry previous = null;
+        for (Entry entry = table[bucket]; entry != null; previous = entry, entry = entry.next) {
+            if (entry.hash == hash && entry.name.equals(name)) {
+                if (previous == null) {
+                    table[bucket] = entry.next;
+                } else {
+                    previous.next = entry.next;
+                }
+                size--;
+                return;
+            }
+        }
+    }
+
+    private void resize() {
+        Entry[] old = table;
+        table = new Entry[old.length << 1];
+        for (Entry head : old) {
+            for (Entry entry = head; entry != null;) {
+                Entry next = entry.next;
+                int bucket = entry.hash & (table.length - 1);
+                entry.next = table[bucket];
+                table[bucket] = entry;
+                entry = next;
+            }
+        }
+    }
+
+    private static int hash(CharSequence name) {
+        if (name instanceof String string) {
+            return string.hashCode();
+        }
+        int hash = 0;
+        for (int n = 0; n < name.length(); n++) {
+            hash = 31 * hash + name.charAt(n);
+        }
+        return hash;
+    }
+}
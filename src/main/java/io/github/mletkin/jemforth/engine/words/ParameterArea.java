@@ -0,0 +1,57 @@
+/**
+ * The JemForth project
+ *
+ * (C) 2017 by the Big Shedder
+ */
+package io.github.mletkin.jemforth.engine.words;
+
+import java.util.stream.Stream;
+
+/**
+ * Storage for the cells of a {@link CellListWord}.
+ * <p>
+ * The cells are indexed from zero, the first cell is the first pfa.
+ */
+interface ParameterArea {
+
+    /**
+     * Appends a cell.
+     *
+     * @param value
+     *                  value of the new cell
+     */
+    void add(Integer value);
+
+    /**
+     * Reads a cell.
+     *
+     * @param index
+     *                  index of the cell
+     * @return the cell content
+     */
+    Integer get(int index);
+
+    /**
+     * Writes a cell, allocates the cells up to index if necessary.
+     *
+     * @param index
+     *                  index of the cell
+     * @param value
+     *                  value to store
+     */
+    void set(int index, Integer value);
+
+    /**
+     * Gets the number of allocated cells.
+     *
+     * @return the number of cells
+     */
+    int size();
+
+    /**
+     * Gets the cells as stream.
+     *
+     * @return the content of the parameter area
+     */
+    Stream<Integer> stream();
+}
@@ -55,7 +55,7 @@ public interface Resolver {
      *                 name of the wanted word
      * @return the {@link Word}-Object or @code null}
      */
-    Word find(String name);
+    Word find(CharSequence name);
 
     /**
      * Removes a word.
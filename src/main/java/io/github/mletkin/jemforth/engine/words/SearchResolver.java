@@ -6,7 +6,6 @@
 package io.github.mletkin.jemforth.engine.words;
 
 import static io.github.mletkin.jemforth.engine.Util.reverse;
-import static java.util.Optional.ofNullable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -221,12 +220,14 @@ public class SearchResolver implements Resolver {
      * @return the {@link Word}-Object or @code null}
      */
     @Override
-    public Word find(String name) {
-        return getOrder() //
-                .map(wib -> vocabularies[wib]) //
-                .map(v -> this.find(v, name)) //
-                .filter(Objects::nonNull) //
-                .findFirst().orElse(null);
+    public Word find(CharSequence name) {
+        for (int n = searchOrder.size() - 1; n >= 0; n--) {
+            Word word = find(vocabularies[searchOrder.get(n)], name);
+            if (word != null) {
+                return word;
+            }
+        }
+        return null;
     }
 
     /**
@@ -238,10 +239,8 @@ public class SearchResolver implements Resolver {
      *                 the name of teh word wanted
      * @return the {@code Word} object found or {@code null}.
      */
-    private Word find(VocabularyWord voc, String name) {
-        return ofNullable(voc) //
-                .map(v -> v.find(name)) //
-                .orElse(null);
+    private Word find(VocabularyWord voc, CharSequence name) {
+        return voc != null ? voc.find(name) : null;
     }
 
 }
@@ -5,6 +5,8 @@
  */
 package io.github.mletkin.jemforth.engine.words;
 
+import java.util.Arrays;
+
 import io.github.mletkin.jemforth.engine.MemoryMapper;
 import io.github.mletkin.jemforth.engine.exception.IllegalStringLengthException;
 
@@ -27,10 +29,25 @@ public class StringWord extends Word {
     private static final char FILL = ' ';
 
     /**
-     * The string data contained in the word.
+     * The characters of the string, only the first {@code length} are used.
+     */
+    private char[] chars = new char[16];
+
+    /**
+     * The number of characters of the string.
+     */
+    private int length;
+
+    /**
+     * The content as Java string, created on demand.
      */
     private String data = "";
 
+    /**
+     * Read only view of the content, e.g. for dictionary lookup.
+     */
+    private final CharSequence content = new Content();
+
     {
         // runtime action: push address of length byte
         cfa = c -> c.push(xt + 1);
@@ -50,6 +67,7 @@ public class StringWord extends Word {
      * Sets the string word's content to "empty".
      */
     public void clear() {
+        length = 0;
         data = "";
     }
 
@@ -69,7 +87,7 @@ public class StringWord extends Word {
             return this.length();
         }
         int position = mm.toBytePosition(byteLocator) - 2;
-        return data != null && position < data.length() ? data.charAt(position) : 0;
+        return position >= 0 && position < length ? chars[position] : 0;
     }
 
     /**
@@ -84,31 +102,28 @@ public class StringWord extends Word {
             return;
         }
         int position = mm.toBytePosition(byteLocator) - 2;
-        data = data == null ? "" : data;
-        StringBuffer buf = new StringBuffer("");
-        for (int n = 0; n < position; n++) {
-            buf.append(n < data.length() ? data.charAt(n) : FILL);
-        }
-        buf.append((char) (value & 0xFF));
-        for (int n = position + 1; n < data.length(); n++) {
-            buf.append(data.charAt(n));
+        if (position >= length) {
+            setLength(position + 1);
         }
-        data = buf.toString();
+        chars[position] = (char) (value & 0xFF);
+        data = null;
     }
 
     private void setLength(int value) {
         if (value < 0 || value >= 1 << 16) {
             throw new IllegalStringLengthException(value);
         }
-        int diff = value - length();
-        if (diff > 0) {
-            StringBuffer buf = new StringBuffer(data);
-            for (int n = 0; n < diff; n++) {
-                buf.append(FILL);
-            }
-            data = buf.toString();
-        } else {
-            data = data.substring(0, value);
+        ensureCapacity(value);
+        if (value > length) {
+            Arrays.fill(chars, length, value, FILL);
+        }
+        length = value;
+        data = null;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(capacity, chars.length << 1));
         }
     }
 
@@ -118,7 +133,7 @@ public class StringWord extends Word {
      * @return the length of the contained string
      */
     public int length() {
-        return data == null ? 0 : data.length();
+        return length;
     }
 
     @Override
@@ -141,9 +156,7 @@ public class StringWord extends Word {
      */
     public void allot(int n) {
         if (n > 0) {
-            for (int i = 0; i < n; i++) {
-                data += FILL;
-            }
+            setLength(length + n);
         }
     }
 
@@ -153,9 +166,23 @@ public class StringWord extends Word {
      * @return the stored String
      */
     public String data() {
+        if (data == null) {
+            data = new String(chars, 0, length);
+        }
         return data;
     }
 
+    /**
+     * Returns a read only view of the stored content.
+     * <p>
+     * The view reflects later changes and needs no copy of the content.
+     *
+     * @return the content as {@code CharSequence}
+     */
+    public CharSequence content() {
+        return content;
+    }
+
     /**
      * Replaces the stored content with a Java string.
      *
@@ -163,9 +190,45 @@ public class StringWord extends Word {
      *                 the new content
      */
     public void setData(String data) {
+        if (data == null) {
+            clear();
+            return;
+        }
+        ensureCapacity(data.length());
+        data.getChars(0, data.length(), chars, 0);
+        length = data.length();
         this.data = data;
     }
 
+    /**
+     * Replaces the stored content with a part of a string word's content.
+     *
+     * @param source
+     *                   the word to copy from
+     * @param start
+     *                   index of the first character to copy
+     * @param count
+     *                   number of characters to copy
+     */
+    public void setData(StringWord source, int start, int count) {
+        ensureCapacity(count);
+        System.arraycopy(source.chars, start, chars, 0, count);
+        length = count;
+        data = null;
+    }
+
+    /**
+     * Appends a character.
+     *
+     * @param character
+     *                      the character to append
+     */
+    public void append(char character) {
+        ensureCapacity(length + 1);
+        chars[length++] = character;
+        data = null;
+    }
+
     /**
      * Converts the integer to a character and add it to the String.
      * <p>
@@ -175,7 +238,10 @@ public class StringWord extends Word {
      *                      integer representation of a character
      */
     public void prepend(int character) {
-        data = (char) (character & 0xFF) + data;
+        ensureCapacity(length + 1);
+        System.arraycopy(chars, 0, chars, 1, length++);
+        chars[0] = (char) (character & 0xFF);
+        data = null;
     }
 
     /**
@@ -186,12 +252,41 @@ public class StringWord extends Word {
      * @return the character at the position
      */
     public char charAt(int index) {
-        return data.charAt(index);
+        if (index < 0 || index >= length) {
+            throw new StringIndexOutOfBoundsException(index);
+        }
+        return chars[index];
     }
 
     @Override
     public String toString() {
-        return data + "[" + xt + "]";
+        return data() + "[" + xt + "]";
+    }
+
+    /**
+     * Read only {@code CharSequence} view of the content.
+     */
+    private class Content implements CharSequence {
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return StringWord.this.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return data().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return data();
+        }
     }
 
 }
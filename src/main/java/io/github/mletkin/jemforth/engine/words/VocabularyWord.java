@@ -5,9 +5,6 @@
  */
 package io.github.mletkin.jemforth.engine.words;
 
-import static io.github.mletkin.jemforth.engine.Util.reverse;
-
-import java.util.ArrayList;
 import java.util.List;
 
 import io.github.mletkin.jemforth.Package;
@@ -16,6 +13,10 @@ import io.github.mletkin.jemforth.Package;
  * Word that defines a Vocabulary.
  *
  * Execution sets the context.
+ * <p>
+ * The words are indexed by name. Each name maps to the chain of its
+ * definitions, the latest definition shadows the earlier ones. Forgetting a
+ * definition makes the one it shadowed visible again.
  */
 public class VocabularyWord extends Word {
 
@@ -25,9 +26,9 @@ public class VocabularyWord extends Word {
     private Integer wid = null;
 
     /**
-     * The words contained in this vocabulary in the order of definition.
+     * The definitions contained in this vocabulary by name, oldest first.
      */
-    private final List<Word> memory = new ArrayList<>();
+    private final NameIndex index = new NameIndex();
 
     /**
      * Creates a new vocabulary word.
@@ -69,7 +70,7 @@ public class VocabularyWord extends Word {
     @Package(cause = "used only by the search resolver")
     void add(Word word) {
         word.vocabulary = xt();
-        memory.add(word);
+        index.chain(word.name()).add(word);
     }
 
     /**
@@ -80,7 +81,17 @@ public class VocabularyWord extends Word {
      */
     @Package(cause = "used only by dictionary")
     void forget(Word word) {
-        memory.remove(word);
+        List<Word> chain = index.get(word.name());
+        if (chain == null) {
+            return;
+        }
+        int position = chain.lastIndexOf(word);
+        if (position >= 0) {
+            chain.remove(position);
+        }
+        if (chain.isEmpty()) {
+            index.remove(word.name());
+        }
     }
 
     /**
@@ -91,10 +102,9 @@ public class VocabularyWord extends Word {
      * @return the Word found or {@code null}
      */
     @Package(cause = "used only by dictionary")
-    Word find(String name) {
-        return reverse(memory) //
-                .filter(word -> name.equals(word.name())) //
-                .findFirst().orElse(null);
+    Word find(CharSequence name) {
+        List<Word> chain = index.get(name);
+        return chain != null ? chain.get(chain.size() - 1) : null;
     }
 
     @Override
@@ -82,6 +82,11 @@ public class Word {
      */
     protected MemoryMapper mm;
 
+    /**
+     * Address of the DOES&gt; section executed by the word or {@code null}.
+     */
+    private Integer doesAddress;
+
     /**
      * Creates a new word.
      *
@@ -187,7 +192,9 @@ public class Word {
      * @return the word instance under construction
      */
     public Word comment(String... commentList) {
-        comment = Util.stream(commentList).collect(Const.crSeparatedList());
+        comment = commentList != null && commentList.length == 1 && commentList[0] != null //
+                ? commentList[0]
+                : Util.stream(commentList).collect(Const.crSeparatedList());
         return this;
     }
 
@@ -265,6 +272,29 @@ public class Word {
         return Stream.empty();
     }
 
+    /**
+     * Makes the word execute a DOES&gt; section.
+     * <p>
+     * The word pushes the address of its first parameter field and executes the
+     * cell list starting at the given address.
+     *
+     * @param runtimeAddress
+     *                           address of the first cell of the DOES&gt; section
+     */
+    public void doesTo(int runtimeAddress) {
+        doesAddress = runtimeAddress;
+        cfa = c -> c.doDoesTo(firstPfaField(), runtimeAddress);
+    }
+
+    /**
+     * Gets the address of the DOES&gt; section executed by the word.
+     *
+     * @return the address or {@code null} if the word has no DOES&gt; section
+     */
+    public Integer doesAddress() {
+        return doesAddress;
+    }
+
     /**
      * Gets the word's access token.
      *
@@ -11,7 +11,7 @@ import io.github.mletkin.jemforth.gui.ForthGui.State;
 public class ThreadControl {
 
     private final Callback wait = e -> this.suspendExecution();
-    private final Callback run = e -> {};
+    private final Callback run = Callback.NOP;
     private final Callback stop = e -> e.reset(true);
     private final ForthGui forthGui;
     private final Inspectable engine;
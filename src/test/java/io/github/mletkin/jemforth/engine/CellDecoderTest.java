@@ -0,0 +1,67 @@
+package io.github.mletkin.jemforth.engine;
+
+import static io.github.mletkin.jemforth.engine.MemoryMapper.CELL_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.mletkin.jemforth.engine.f83.Forth83Engine;
+import io.github.mletkin.jemforth.engine.words.ColonWord;
+
+public class CellDecoderTest {
+
+    private final Forth83Engine engine = new Forth83Engine();
+    private final CellDecoder.Decoder decoder = CellDecoder.standard().resolve(engine.getDictionary());
+
+    private int xt(String name) {
+        return engine.getDictionary().find(name).xt();
+    }
+
+    @Test
+    public void operandCellsAreCounted() {
+        assertThat(decoder.operands(xt("(LITERAL)"))).isOne();
+        assertThat(decoder.operands(xt("?BRANCH"))).isOne();
+        assertThat(decoder.operands(xt("(+LOOP)"))).isOne();
+        assertThat(decoder.operands(xt("DUP"))).isZero();
+    }
+
+    @Test
+    public void balancedReturnStackIsFollowed() {
+        int[] cells = { xt(">R"), xt("R@"), xt("DROP"), xt("R>") };
+        assertThat(decoder.returnDepth(cells, cells.length)).isZero();
+        assertThat(decoder.returnDepth(cells, 2)).isOne();
+    }
+
+    @Test
+    public void cellsNotPushedAreDetected() {
+        int[] cells = { xt("R>"), xt("DROP") };
+        assertThat(decoder.returnDepth(cells, cells.length)).isEqualTo(-1);
+    }
+
+    @Test
+    public void operandIsNotReadAsXt() {
+        int[] cells = { xt("(LITERAL)"), xt("R>"), xt("DROP") };
+        assertThat(decoder.returnDepth(cells, cells.length)).isZero();
+    }
+
+    @Test
+    public void unknownNamesAreIgnored() {
+        CellDecoder.Decoder custom = new CellDecoder().operand("UNKNOWN", 1).resolve(engine.getDictionary());
+        assertThat(custom.operands(xt("(LITERAL)"))).isZero();
+        assertThat(custom.xts(List.of("DUP", "UNKNOWN"))).containsExactly(xt("DUP"));
+    }
+
+    @Test
+    public void cellsAreReadAndAddressesMapped() {
+        engine.process(": T DUP DROP ;");
+        ColonWord word = (ColonWord) engine.getDictionary().find("T");
+        assertThat(decoder.cells(word)).containsExactly(xt("DUP"), xt("DROP"), xt("EXIT"));
+        assertThat(decoder.index(word, word.xt() + CELL_SIZE)).isZero();
+        assertThat(decoder.index(word, word.xt() + 3 * CELL_SIZE)).isEqualTo(2);
+        assertThat(decoder.index(word, word.xt() + 4 * CELL_SIZE)).isEqualTo(-1);
+        assertThat(decoder.index(word, word.xt() + CELL_SIZE + 1)).isEqualTo(-1);
+        assertThat(decoder.index(word, word.xt())).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.mletkin.jemforth.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.mletkin.jemforth.engine.f83.Forth83Engine;
+
+public class InnerInterpreterTest {
+
+    private JemEngine engine = new Forth83Engine();
+    private AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void removedCallbackIsNotCalled() {
+        engine.process(": foo 1 2 + ;");
+        engine.setDebugCallback(e -> calls.incrementAndGet());
+        engine.setDebugCallback(Callback.NOP);
+        engine.process("foo");
+
+        assertThat(calls.get()).isZero();
+        assertThat(engine.getDataStack()).containsExactly(3);
+    }
+
+    @Test
+    public void callbackIsCalledForEveryCommand() {
+        engine.process(": foo 1 2 + ;");
+        engine.setDebugCallback(e -> calls.incrementAndGet());
+        engine.process("foo");
+
+        assertThat(calls.get()).isPositive();
+        assertThat(engine.getDataStack()).containsExactly(3);
+    }
+
+    @Test
+    public void removingTheCallbackDuringExecutionSwitchesToTheFastLoop() {
+        engine.process(": foo 1 2 + ;");
+        engine.setDebugCallback(e -> {
+            calls.incrementAndGet();
+            e.setDebugCallback(null);
+        });
+        engine.process("foo");
+
+        assertThat(calls.get()).isOne();
+        assertThat(engine.getDebugCallback()).isSameAs(Callback.NOP);
+        assertThat(engine.getDataStack()).containsExactly(3);
+    }
+
+    @Test
+    public void settingTheCallbackDuringExecutionSwitchesToTheInstrumentedLoop() {
+        engine.process(": foo 1 2 + ;");
+        engine.add("DEBUG", (JemEngine e) -> e.setDebugCallback(x -> calls.incrementAndGet()));
+        engine.process(": bar DEBUG foo ;");
+        engine.process("bar");
+
+        assertThat(calls.get()).isPositive();
+        assertThat(engine.getDataStack()).containsExactly(3);
+    }
+}
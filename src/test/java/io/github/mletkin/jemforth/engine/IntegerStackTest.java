@@ -198,4 +198,31 @@ public class IntegerStackTest {
         assertThat(stack.depth()).isEqualTo(1);
         assertThat(stack.uPop()).isEqualTo(value);
     }
+
+    @Test
+    void stackGrowsBeyondInitialCapacity() {
+        for (int n = 0; n < 1000; n++) {
+            stack.push(n);
+        }
+        assertThat(stack.depth()).isEqualTo(1000);
+        assertThat(stack.iPeek(0)).isEqualTo(999);
+        assertThat(stack.iPeek(999)).isEqualTo(0);
+    }
+
+    @Test
+    void listViewIsOrderedFromBottomToTop() {
+        stack.push(1);
+        stack.push(2);
+        stack.push(3);
+        assertThat(stack).containsExactly(1, 2, 3);
+        assertThat(stack.get(2)).isEqualTo(3);
+    }
+
+    @Test
+    void clearEmptiesTheStack() {
+        stack.push(1);
+        stack.push(2);
+        stack.clear();
+        assertThat(stack).isEmpty();
+    }
 }
@@ -0,0 +1,61 @@
+package io.github.mletkin.jemforth.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class NumberParserTest {
+
+    private NumberParser parser = new NumberParser();
+
+    @ParameterizedTest
+    @CsvSource(quoteCharacter = '"', value = { //
+            "4711, 10, 4711", //
+            "-4711, 10, -4711", //
+            "+12, 10, 12", //
+            "ff, 16, 255", //
+            "FF, 16, 255", //
+            "101, 2, 5", //
+            "#99, 16, 99", //
+            "$10, 10, 16", //
+            "%11, 10, 3", //
+            "$-10, 10, -16", //
+            "'@', 10, 64", //
+            "2147483647, 10, 2147483647", //
+            "-2147483648, 10, -2147483648" })
+    public void singleNumberIsRecognized(String token, int base, long value) {
+        assertThat(parser.parse(token, base)).isTrue();
+        assertThat(parser.value()).isEqualTo(value);
+        assertThat(parser.isDouble()).isFalse();
+    }
+
+    @ParameterizedTest
+    @CsvSource({ //
+            "1., 10, 1", //
+            "1.000.000, 10, 1000000", //
+            "-1.5, 10, -15", //
+            "$F.F, 10, 255", //
+            "2147483648., 10, 2147483648", //
+            "-9223372036854775808., 10, -9223372036854775808" })
+    public void doubleNumberIsRecognized(String token, int base, long value) {
+        assertThat(parser.parse(token, base)).isTrue();
+        assertThat(parser.value()).isEqualTo(value);
+        assertThat(parser.isDouble()).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "-", "$", "pipapo", "12a", "'xy'", "''", "2147483648", "9223372036854775808.",
+            "1-2", "--1" })
+    public void otherTokenIsNoNumber(String token) {
+        assertThat(parser.parse(token, 10)).isFalse();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 1, 37 })
+    public void illegalBaseRecognizesNoNumber(int base) {
+        assertThat(parser.parse("1", base)).isFalse();
+        assertThat(parser.parse("#1", base)).isTrue();
+    }
+}
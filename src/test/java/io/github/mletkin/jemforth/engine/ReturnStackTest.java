@@ -96,4 +96,24 @@ class ReturnStackTest {
         assertThat(one).isSameAs(two);
     }
 
+    @Test
+    void contentReflectsTheStack() {
+        List<Integer> content = stack.content();
+        stack.push(1);
+        stack.push(2);
+        assertThat(content).containsExactly(1, 2);
+        stack.pop();
+        assertThat(content).containsExactly(1);
+    }
+
+    @Test
+    void stackGrowsBeyondInitialCapacity() {
+        for (int n = 0; n < 1000; n++) {
+            stack.push(n);
+        }
+        assertThat(stack.depth()).isEqualTo(1000);
+        assertThat(stack.peek(1)).isEqualTo(999);
+        assertThat(stack.peek(1000)).isZero();
+    }
+
 }
@@ -0,0 +1,144 @@
+package io.github.mletkin.jemforth.engine;
+
+import static io.github.mletkin.jemforth.engine.harness.Fixture.fixture;
+import static io.github.mletkin.jemforth.engine.harness.Line.line;
+import static io.github.mletkin.jemforth.engine.harness.Program.program;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.mletkin.jemforth.engine.f83.Forth83Engine;
+import io.github.mletkin.jemforth.engine.words.ColonWord;
+
+public class StackCheckerTest {
+
+    private static Forth83Engine engine() {
+        Forth83Engine engine = new Forth83Engine();
+        engine.useStackChecker(StackChecker.standard());
+        return engine;
+    }
+
+    private static StackEffect effect(Forth83Engine engine, String name) {
+        return ((ColonWord) engine.getDictionary().find(name)).stackEffect();
+    }
+
+    @Test
+    public void checkIsOffByDefault() {
+        Forth83Engine engine = new Forth83Engine();
+        assertThat(engine.isCheckingStack()).isFalse();
+        fixture(engine).test(program("off").add(line(": X IF 1 THEN ;").output("")));
+        assertThat(effect(engine, "X")).isNull();
+    }
+
+    @Test
+    public void effectOfDictionaryIsInferred() {
+        Forth83Engine engine = engine();
+        assertThat(engine.isCheckingStack()).isTrue();
+        assertThat(effect(engine, "2DUP")).isEqualTo(new StackEffect(2, 4, 0, 0));
+    }
+
+    @Test
+    public void effectIsInferredAtSemicolon() {
+        Forth83Engine engine = engine();
+        fixture(engine).test(program("infer") //
+                .add(line(": X ( n1 n2 -- n3 n4 ) 2DUP + >R * R> ;").output("")) //
+                .add(line("2 3 X").stack(6, 5)));
+        assertThat(effect(engine, "X")).isEqualTo(new StackEffect(2, 2, 0, 0));
+    }
+
+    @Test
+    public void balancedBranchesAndLoopsAreInferred() {
+        Forth83Engine engine = engine();
+        fixture(engine).test(program("control") //
+                .add(line(": X 0 SWAP 0 DO I + LOOP ;").output("")) //
+                .add(line(": Y IF 1 ELSE 2 THEN ;").output("")));
+        assertThat(effect(engine, "X")).isEqualTo(new StackEffect(1, 1, 0, 0));
+        assertThat(effect(engine, "Y")).isEqualTo(new StackEffect(1, 1, 0, 0));
+    }
+
+    @Test
+    public void unbalancedBranchIsReported() {
+        Forth83Engine engine = engine();
+        fixture(engine).test(program("IF") //
+                .add(line(": X IF 1 THEN ;").output("X: branches leave different stack depths\n")));
+        assertThat(effect(engine, "X")).isNull();
+    }
+
+    @Test
+    public void loopChangingTheDepthIsReported() {
+        fixture(engine()).test(program("DO") //
+                .add(line(": X 10 0 DO I LOOP ;").output("X: loop body changes the stack depth\n")));
+    }
+
+    @Test
+    public void unbalancedReturnStackIsReported() {
+        fixture(engine()).test(program("R") //
+                .add(line(": X >R ;").output("X: return stack is not balanced at EXIT\n")) //
+                .add(line(": Y R> DROP ;").output("Y: R> takes cells from the return stack that were not pushed\n")));
+    }
+
+    @Test
+    public void wrongCommentIsReported() {
+        Forth83Engine engine = new Forth83Engine();
+        fixture(engine).execute(": X DUP ;");
+        ColonWord word = (ColonWord) engine.getDictionary().find("X");
+        word.comment("( n -- )");
+        assertThat(StackChecker.standard().resolve(engine.getDictionary()).check(word))
+                .containsExactly("stack effect ( 1 -- 2 ) differs from comment ( 1 -- 0 )");
+    }
+
+    @Test
+    public void definitionsMatchTheirComments() {
+        Forth83Engine engine = new Forth83Engine();
+        StackChecker.Verifier verifier = StackChecker.standard().resolve(engine.getDictionary());
+        assertThat(engine.getDictionary().memory().stream() //
+                .filter(ColonWord.class::isInstance) //
+                .map(ColonWord.class::cast) //
+                .flatMap(word -> verifier.check(word).stream().map(w -> word.name() + ": " + w)) //
+                .filter(w -> w.contains("differs"))).isEmpty();
+    }
+
+    @Test
+    public void unknownEffectIsNotReported() {
+        Forth83Engine engine = engine();
+        fixture(engine).test(program("?DUP").add(line(": X ?DUP ;").output("")));
+        assertThat(effect(engine, "X")).isNull();
+    }
+
+    @Test
+    public void dataDependentWordsAreUnknown() {
+        Forth83Engine engine = engine();
+        fixture(engine).test(program("data") //
+                .add(line(": P 1 2 3 2 ROLL ;").output("")) //
+                .add(line(": Q 1 2 3 2 PICK ;").output("")) //
+                .add(line(": L2 ' EXECUTE ;").output("")));
+        assertThat(effect(engine, "P")).isNull();
+        assertThat(effect(engine, "Q")).isNull();
+        assertThat(effect(engine, "L2")).isNull();
+    }
+
+    @Test
+    public void effectCanBeDeclaredUnknown() {
+        Forth83Engine engine = new Forth83Engine();
+        engine.useStackChecker(StackChecker.standard().unknown("DUP"));
+        fixture(engine).execute(": X DUP ;");
+        assertThat(effect(engine, "X")).isNull();
+    }
+
+    @Test
+    public void storeDiscardsTheEffect() {
+        Forth83Engine engine = engine();
+        fixture(engine).test(program("store") //
+                .add(line(": X 1 ;")) //
+                .add(line("2 ' X >BODY !")));
+        assertThat(effect(engine, "X")).isNull();
+    }
+
+    @Test
+    public void checkCanBeTurnedOff() {
+        Forth83Engine engine = engine();
+        engine.useStackChecker(null);
+        assertThat(engine.isCheckingStack()).isFalse();
+        assertThat(effect(engine, "2DUP")).isNull();
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.mletkin.jemforth.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class StackEffectTest {
+
+    @Test
+    public void cellsAreCounted() {
+        assertThat(StackEffect.parse("( n1 n2 -- n3 )")).isEqualTo(new StackEffect(2, 1, 0, 0));
+    }
+
+    @Test
+    public void doublesCountTwoCells() {
+        assertThat(StackEffect.parse("( n1 n2 -- d )")).isEqualTo(new StackEffect(2, 2, 0, 0));
+        assertThat(StackEffect.parse("( ud1 u -- ud2 )")).isEqualTo(new StackEffect(3, 2, 0, 0));
+    }
+
+    @Test
+    public void returnStackIsParsed() {
+        assertThat(StackEffect.parse("( x -- ) ( R: -- x )")).isEqualTo(new StackEffect(1, 0, 0, 1));
+        assertThat(StackEffect.parse("( R: loop-sys -- )")).isEqualTo(new StackEffect(0, 0, 3, 0));
+    }
+
+    @Test
+    public void parsedInputIsNoCell() {
+        assertThat(StackEffect.parse("( <name> -- )")).isEqualTo(new StackEffect(0, 0, 0, 0));
+        assertThat(StackEffect.parse("( u \"<name>\" -- )")).isEqualTo(new StackEffect(1, 0, 0, 0));
+    }
+
+    @Test
+    public void runtimeEffectOfDefiningWordIsIgnored() {
+        assertThat(StackEffect.parse("( x -- ; -- addr )")).isEqualTo(new StackEffect(1, 0, 0, 0));
+    }
+
+    @Test
+    public void equalAlternativesAreKnown() {
+        assertThat(StackEffect.parse("( x -- 0 | 1 )")).isEqualTo(new StackEffect(1, 1, 0, 0));
+    }
+
+    @Test
+    public void onlyTheFirstLineIsParsed() {
+        assertThat(StackEffect.parse("( x -- )\n( n1 n2 -- )")).isEqualTo(new StackEffect(1, 0, 0, 0));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "( n -- 0 | n n )", "( x1 .. xn n -- )", "no comment", "( -x- )", "" })
+    public void unknownEffectIsNull(String comment) {
+        assertThat(StackEffect.parse(comment)).isNull();
+    }
+
+    @Test
+    public void nullCommentIsNull() {
+        assertThat(StackEffect.parse(null)).isNull();
+    }
+
+    @Test
+    public void effectIsPrinted() {
+        assertThat(new StackEffect(2, 1, 0, 0)).hasToString("( 2 -- 1 )");
+        assertThat(new StackEffect(1, 0, 0, 1)).hasToString("( 1 -- 0 ) ( R: 0 -- 1 )");
+    }
+}
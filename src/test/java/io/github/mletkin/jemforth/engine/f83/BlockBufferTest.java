@@ -0,0 +1,137 @@
+package io.github.mletkin.jemforth.engine.f83;
+
+import static io.github.mletkin.jemforth.engine.f83.BlockBuffer.BLOCK_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import io.github.mletkin.jemforth.engine.exception.MassStorageCapacityExceededException;
+
+class BlockBufferTest {
+
+    @TempDir
+    Path dir;
+
+    static Stream<Arguments> storages() {
+        BiFunction<String, Integer, BlockStorage> file = FileBlockStorage::new;
+        BiFunction<String, Integer, BlockStorage> mapped = MappedBlockStorage::new;
+        return Stream.of(Arguments.of("file", file), Arguments.of("mapped", mapped));
+    }
+
+    private BlockBuffer buffer(BiFunction<String, Integer, BlockStorage> storage) {
+        return new BlockBuffer(storage.apply(dir.resolve("blocks").toString(), 8));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("storages")
+    void savedBlockIsPersistent(String name, BiFunction<String, Integer, BlockStorage> storage) {
+        BlockBuffer buffer = buffer(storage);
+        int adr = buffer.block(3) * BLOCK_SIZE;
+        buffer.cStore(adr + 5, 'x');
+        buffer.update();
+        buffer.flushBuffers();
+
+        BlockBuffer other = buffer(storage);
+        assertThat(other.cfetch(3, 5)).isEqualTo('x');
+        assertThat(other.cfetch(2, 5)).isZero();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("storages")
+    void blockBeyondCapacityIsRejected(String name, BiFunction<String, Integer, BlockStorage> storage) {
+        BlockBuffer buffer = buffer(storage);
+        assertThatThrownBy(() -> buffer.block(9)).isInstanceOf(MassStorageCapacityExceededException.class);
+        assertThatThrownBy(() -> buffer.block(0)).isInstanceOf(MassStorageCapacityExceededException.class);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("storages")
+    void engineLoadsBlock(String name, BiFunction<String, Integer, BlockStorage> storage) throws IOException {
+        byte[] content = new byte[2 * BLOCK_SIZE];
+        Arrays.fill(content, (byte) ' ');
+        byte[] program = "3 4 +".getBytes();
+        System.arraycopy(program, 0, content, BLOCK_SIZE, program.length);
+        Files.write(dir.resolve("blocks"), content);
+
+        Forth83Engine engine = new Forth83Engine();
+        engine.useBlockBuffer(buffer(storage));
+        engine.process("2 LOAD");
+
+        assertThat(engine.getDataStack()).startsWith(7);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("storages")
+    void leastRecentlyUsedBufferIsReassigned(String name, BiFunction<String, Integer, BlockStorage> storage) {
+        BlockBuffer buffer = new BlockBuffer(storage.apply(dir.resolve("blocks").toString(), 8), 2);
+        int one = buffer.block(1);
+        int two = buffer.block(2);
+        buffer.block(1);
+
+        assertThat(buffer.block(3)).isEqualTo(two);
+        assertThat(buffer.block(1)).isEqualTo(one);
+        assertThat(buffer.hits()).isEqualTo(2);
+        assertThat(buffer.misses()).isEqualTo(3);
+        assertThat(buffer.evictions()).isEqualTo(1);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("storages")
+    void updatedBufferIsWrittenBackOnEviction(String name, BiFunction<String, Integer, BlockStorage> storage) {
+        BlockBuffer buffer = new BlockBuffer(storage.apply(dir.resolve("blocks").toString(), 8), 1);
+        buffer.cStore(buffer.block(1) * BLOCK_SIZE, 'a');
+        buffer.update();
+        buffer.block(2);
+        buffer.emptyBuffers();
+
+        assertThat(buffer.cfetch(1, 0)).isEqualTo('a');
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("storages")
+    void illegalBufferCountIsRejected(String name, BiFunction<String, Integer, BlockStorage> storage) {
+        BlockStorage blocks = storage.apply(dir.resolve("blocks").toString(), 8);
+        assertThatThrownBy(() -> new BlockBuffer(blocks, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BlockBuffer(blocks, BlockBuffer.MAX_BUFFER + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("storages")
+    void countersAreForthWords(String name, BiFunction<String, Integer, BlockStorage> storage) {
+        Forth83Engine engine = new Forth83Engine();
+        engine.useBlockBuffer(new BlockBuffer(storage.apply(dir.resolve("blocks").toString(), 8), 2));
+        engine.process("1 BLOCK 2 BLOCK 1 BLOCK 3 BLOCK 2DROP 2DROP");
+        engine.process("#BUFFERS BLOCK-HITS BLOCK-MISSES BLOCK-EVICTIONS");
+        assertThat(engine.getDataStack()).containsExactly(2, 1, 3, 1);
+
+        engine.process("2DROP 2DROP RESET-BLOCK-STATISTICS BLOCK-HITS BLOCK-MISSES BLOCK-EVICTIONS");
+        assertThat(engine.getDataStack()).containsExactly(0, 0, 0);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("storages")
+    void storageIsOpenedOnFirstUse(String name, BiFunction<String, Integer, BlockStorage> storage) {
+        Path file = dir.resolve("blocks");
+        BlockBuffer buffer = buffer(storage);
+        assertThat(file).doesNotExist();
+
+        buffer.cStore(buffer.block(1) * BLOCK_SIZE, 'a');
+        buffer.update();
+        assertThat(file).exists();
+
+        buffer.close();
+        assertThat(buffer.cfetch(1, 0)).isEqualTo('a');
+    }
+}
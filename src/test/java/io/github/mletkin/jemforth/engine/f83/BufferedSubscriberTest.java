@@ -0,0 +1,101 @@
+package io.github.mletkin.jemforth.engine.f83;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class BufferedSubscriberTest {
+
+    /**
+     * Subscription recording the requests.
+     */
+    private static class Requests implements Subscription {
+        private final List<Long> requests = new ArrayList<>();
+
+        @Override
+        public void request(long n) {
+            requests.add(n);
+        }
+
+        @Override
+        public void cancel() {
+            // nothing to cancel
+        }
+    }
+
+    @Test
+    public void itemsAreTakenInOrder() throws InterruptedException {
+        BufferedSubscriber<Character> subscriber = new BufferedSubscriber<>();
+        try (SubmissionPublisher<Character> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(subscriber);
+            publisher.submit('a');
+            publisher.submit('b');
+            assertThat(subscriber.take()).isEqualTo('a');
+            assertThat(subscriber.take()).isEqualTo('b');
+        }
+    }
+
+    @Test
+    public void demandIsRequestedInBatches() throws InterruptedException {
+        BufferedSubscriber<Integer> subscriber = new BufferedSubscriber<>(4);
+        Requests subscription = new Requests();
+        subscriber.onSubscribe(subscription);
+        for (int n = 0; n < 4; n++) {
+            subscriber.onNext(n);
+        }
+        assertThat(subscription.requests).containsExactly(4L);
+        subscriber.take();
+        assertThat(subscription.requests).containsExactly(4L);
+        subscriber.take();
+        assertThat(subscription.requests).containsExactly(4L, 2L);
+    }
+
+    @Test
+    public void takeWaitsForTheNextItem() throws InterruptedException {
+        BufferedSubscriber<Integer> subscriber = new BufferedSubscriber<>();
+        subscriber.onSubscribe(new Requests());
+        new Thread(() -> {
+            sleep();
+            subscriber.onNext(42);
+        }).start();
+        assertThat(subscriber.isEmpty()).isTrue();
+        assertThat(subscriber.take()).isEqualTo(42);
+    }
+
+    @Test
+    public void completionEndsWaiting() throws InterruptedException {
+        BufferedSubscriber<Integer> subscriber = new BufferedSubscriber<>();
+        subscriber.onSubscribe(new Requests());
+        subscriber.onNext(1);
+        new Thread(() -> {
+            sleep();
+            subscriber.onComplete();
+        }).start();
+        assertThat(subscriber.take()).isEqualTo(1);
+        assertThat(subscriber.take()).isNull();
+    }
+
+    @Test
+    public void errorIsKept() throws InterruptedException {
+        BufferedSubscriber<Integer> subscriber = new BufferedSubscriber<>();
+        subscriber.onSubscribe(new Requests());
+        IllegalStateException error = new IllegalStateException("keyboard lost");
+        subscriber.onError(error);
+        assertThat(subscriber.take()).isNull();
+        assertThat(subscriber.error()).isSameAs(error);
+    }
+
+    private static void sleep() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.mletkin.jemforth.engine.f83;
+
+import static io.github.mletkin.jemforth.engine.harness.Fixture.fixture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import io.github.mletkin.jemforth.engine.EngineImage;
+import io.github.mletkin.jemforth.engine.JemEngine;
+import io.github.mletkin.jemforth.engine.MemoryMapper;
+import io.github.mletkin.jemforth.engine.exception.IllegalImageException;
+import io.github.mletkin.jemforth.engine.harness.Program;
+import io.github.mletkin.jemforth.engine.testcases.Corpus;
+import io.github.mletkin.jemforth.engine.testcases.Word;
+import io.github.mletkin.jemforth.engine.words.Dictionary;
+
+/**
+ * Runs some of the test cases with engines restored from an image.
+ */
+public class EngineImageTest {
+
+    private static EngineImage image(JemEngine engine) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EngineImage.save(engine, out);
+        return EngineImage.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static Forth83Engine restored() throws IOException {
+        return new Forth83Engine(image(new Forth83Engine()));
+    }
+
+    @ParameterizedTest(name = "{index}: {0}")
+    @MethodSource
+    public void restoredEngineTest(Program prg) throws IOException {
+        fixture(restored()).test(prg);
+    }
+
+    public static Stream<Program> restoredEngineTest() {
+        return Corpus.allTestCases();
+    }
+
+    @Test
+    public void restoredDictionaryEqualsTheOriginal() throws IOException {
+        Forth83Engine original = new Forth83Engine();
+        Forth83Engine engine = new Forth83Engine(image(original));
+
+        assertThat(engine.getDictionary().memory()).hasSameSizeAs(original.getDictionary().memory());
+        for (int n = 0; n < original.getDictionary().memory().size(); n++) {
+            var expected = original.getDictionary().memory().get(n);
+            var actual = engine.getDictionary().memory().get(n);
+            assertThat(actual.name()).isEqualTo(expected.name());
+            assertThat(actual.xt()).isEqualTo(expected.xt());
+            assertThat(actual.getDataArea()).containsExactlyElementsOf(expected.getDataArea().toList());
+            assertThat(actual.isImmediate()).isEqualTo(expected.isImmediate());
+            assertThat(actual.getComment()).isEqualTo(expected.getComment());
+        }
+    }
+
+    @Test
+    public void sessionDefinitionsAreRestored() throws IOException {
+        Forth83Engine original = new Forth83Engine();
+        original.process(": SQ DUP * ; VARIABLE V 7 V ! 3 CONSTANT THREE");
+        original.process(": CONST CREATE , DOES> @ ; 42 CONST ANSWER");
+        original.process("VOCABULARY TOOLS TOOLS DEFINITIONS : HIDDEN-SQ SQ ; FORTH DEFINITIONS");
+        original.process("HEX");
+
+        Forth83Engine engine = new Forth83Engine(image(original));
+        engine.process("DECIMAL THREE SQ V @ ANSWER");
+        assertThat(engine.getDataStack()).containsExactly(9, 7, 42);
+
+        engine.process("HIDDEN-SQ");
+        assertThat(engine.getDataStack()).containsExactly(9, 7, 42);
+        engine.process("TOOLS 2 HIDDEN-SQ");
+        assertThat(engine.getDataStack()).containsExactly(9, 7, 42, 4);
+    }
+
+    @Test
+    public void engineVariablesAreRestored() throws IOException {
+        Forth83Engine original = new Forth83Engine();
+        original.process("HEX");
+
+        Forth83Engine engine = new Forth83Engine(image(original));
+        engine.process("10");
+        assertThat(engine.getDataStack()).containsExactly(16);
+    }
+
+    @Test
+    public void restoredEngineCanBeSavedAgain() throws IOException {
+        Forth83Engine original = new Forth83Engine();
+        original.process(": SQ DUP * ;");
+
+        Forth83Engine engine = new Forth83Engine(image(new Forth83Engine(image(original))));
+        engine.process("3 SQ");
+        assertThat(engine.getDataStack()).containsExactly(9);
+    }
+
+    @Test
+    public void linearMemoryDictionaryCanBeRestored() throws IOException {
+        Forth83Engine original = new Forth83Engine();
+        original.process("CREATE buf 2 CELLS ALLOT 4711 buf CELL+ !");
+
+        Forth83Engine engine = new Forth83Engine(new Dictionary(new MemoryMapper(), true), image(original));
+        engine.process("buf CELL+ @");
+        assertThat(engine.getDataStack()).containsExactly(4711);
+    }
+
+    @Test
+    public void imageWithUnknownJavaWordIsRejected() throws IOException {
+        Forth83Engine original = new Forth83Engine();
+        original.add("EXTRA", (JemEngine e) -> e.push(1));
+
+        EngineImage image = image(original);
+        assertThatThrownBy(() -> new Forth83Engine(image)).isInstanceOf(IllegalImageException.class);
+    }
+
+    @Test
+    public void imageIsRejectedByOtherMemoryLayout() throws IOException {
+        EngineImage image = image(new Forth83Engine());
+        assertThatThrownBy(() -> new Forth83Engine(new Dictionary(new MemoryMapper(10)), image))
+                .isInstanceOf(IllegalImageException.class);
+    }
+
+    @Test
+    public void imageCanBeRestoredTwice() throws IOException {
+        Forth83Engine original = new Forth83Engine();
+        original.process(": SQ DUP * ; VARIABLE V 7 V !");
+        EngineImage image = image(original);
+
+        Forth83Engine first = new Forth83Engine(image);
+        Forth83Engine second = new Forth83Engine(image);
+        first.process("8 V ! : SQ 0 ;");
+        second.process("3 SQ V @");
+        assertThat(second.getDataStack()).containsExactly(9, 7);
+    }
+
+    @Test
+    public void changedBaseWordIsCopied() {
+        Forth83Engine first = new Forth83Engine(Forth83Engine.baseImage());
+        Forth83Engine second = new Forth83Engine(Forth83Engine.baseImage());
+        first.process("' EXIT ' 2DUP >BODY !");
+        first.process("1 2 2DUP");
+        second.process("1 2 2DUP");
+        assertThat(first.getDataStack()).containsExactly(1, 2);
+        assertThat(second.getDataStack()).containsExactly(1, 2, 1, 2);
+    }
+
+    @Test
+    public void baseImageIsShared() {
+        assertThat(Forth83Engine.baseImage()).isSameAs(Forth83Engine.baseImage());
+        fixture(new Forth83Engine(Forth83Engine.baseImage())).test(Word.testCases().findFirst().get());
+    }
+}
@@ -39,6 +39,18 @@ public class FindTest {
         fixture.test(prg);
     }
 
+    @Test
+    public void forgetRevealsShadowedDefinition() {
+        Program prg = program("forgetting a redefinition finds the earlier one") //
+                .add(line(": x 1 ;")) //
+                .add(line(": y ;")) //
+                .add(line(": x 2 ;")) //
+                .add(line("x").stack(2)) //
+                .add(line("DROP FORGET y")) //
+                .add(line("x").stack(1));
+        fixture.test(prg);
+    }
+
     // Program prg = program("") //
     // .add(Line.of(": x ;")) //
     //
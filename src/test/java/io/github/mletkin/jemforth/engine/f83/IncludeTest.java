@@ -0,0 +1,87 @@
+package io.github.mletkin.jemforth.engine.f83;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.mletkin.jemforth.engine.exception.IncludeException;
+
+public class IncludeTest {
+
+    @TempDir
+    Path dir;
+
+    private Forth83Engine engine = new Forth83Engine();
+
+    private String file(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content).toString();
+    }
+
+    @Test
+    public void includedFileIsProcessed() throws IOException {
+        String path = file("square.fth", ": SQ DUP * ;\n3 SQ\n");
+        engine.process("INCLUDE " + path);
+        assertThat(engine.getDataStack()).containsExactly(9);
+    }
+
+    @Test
+    public void inputIsRestoredAfterInclude() throws IOException {
+        String path = file("one.fth", "1");
+        engine.process("INCLUDE " + path + " 2 3");
+        assertThat(engine.getDataStack()).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    public void includesCanBeNested() throws IOException {
+        String inner = file("inner.fth", "2\n");
+        String outer = file("outer.fth", "1 INCLUDE " + inner + "\n3\n");
+        engine.process("INCLUDE " + outer + " 4");
+        assertThat(engine.getDataStack()).containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    public void errorReportsFileAndLine() throws IOException {
+        String path = file("error.fth", "1\n\nDROP DROP\n");
+        assertThatThrownBy(() -> engine.process("INCLUDE " + path)) //
+                .isInstanceOf(IncludeException.class) //
+                .hasMessageStartingWith(path + ":3: ");
+
+        engine.process("5");
+        assertThat(engine.getDataStack()).containsExactly(5);
+    }
+
+    @Test
+    public void javaExceptionClosesTheFile() throws IOException {
+        String path = file("divide.fth", "5 0 0 /\n7\n");
+        assertThatThrownBy(() -> engine.process("INCLUDE " + path)) //
+                .isInstanceOf(ArithmeticException.class);
+
+        engine.process("6");
+        assertThat(engine.getDataStack()).containsExactly(5, 6);
+    }
+
+    @Test
+    public void missingFileIsReported() {
+        String path = dir.resolve("missing.fth").toString();
+        assertThatThrownBy(() -> engine.process("INCLUDE " + path)) //
+                .isInstanceOf(IncludeException.class) //
+                .hasMessage("cannot open " + path);
+    }
+
+    @Test
+    public void readErrorIsReported() throws IOException {
+        String path = Files.createDirectory(dir.resolve("folder.fth")).toString();
+        assertThatThrownBy(() -> engine.process("INCLUDE " + path)) //
+                .isInstanceOf(IncludeException.class) //
+                .hasMessageEndingWith(" " + path);
+
+        engine.process("5");
+        assertThat(engine.getDataStack()).containsExactly(5);
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.mletkin.jemforth.engine.f83;
+
+import static io.github.mletkin.jemforth.engine.harness.Fixture.fixture;
+import static io.github.mletkin.jemforth.engine.harness.Line.line;
+import static io.github.mletkin.jemforth.engine.harness.Program.program;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.mletkin.jemforth.engine.Inliner;
+import io.github.mletkin.jemforth.engine.harness.Program;
+
+public class InlinerTest {
+
+    private static List<String> body(Forth83Engine engine, String name) {
+        return engine.getDictionary().find(name).getDataArea() //
+                .map(xt -> engine.getDictionary().getByXt(xt)) //
+                .map(w -> w != null ? w.name() : "#") //
+                .toList();
+    }
+
+    private static Forth83Engine engine(Inliner inliner) {
+        Forth83Engine engine = new Forth83Engine();
+        engine.useInliner(inliner);
+        return engine;
+    }
+
+    @Test
+    public void inliningIsOffByDefault() {
+        Forth83Engine engine = new Forth83Engine();
+        assertThat(engine.isInlining()).isFalse();
+        fixture(engine).execute(": X 1+ ;");
+        assertThat(body(engine, "X")).containsExactly("1+", "EXIT");
+    }
+
+    @Test
+    public void storeIntoBodyIsSeenByDefault() {
+        Program prg = program("vector") //
+                .add(line(": V DUP ;")) //
+                .add(line(": USE V ;")) //
+                .add(line(": NEW DROP 42 ;")) //
+                .add(line("7 ' NEW ' V >BODY ! USE").stack(42));
+        fixture(new Forth83Engine()).test(prg);
+    }
+
+    @Test
+    public void storedExitIsSeenByDefault() {
+        Program prg = program("exit") //
+                .add(line(": T 65 EMIT ;")) //
+                .add(line(": U T T ;")) //
+                .add(line("' EXIT ' T >BODY ! U").output(""));
+        fixture(new Forth83Engine()).test(prg);
+    }
+
+    @Test
+    public void shortColonWordIsSpliced() {
+        Forth83Engine engine = engine(Inliner.standard());
+        assertThat(engine.isInlining()).isTrue();
+        fixture(engine).test(program("1+").add(line(": X 1+ 2DUP ;")).add(line("1 2 X").stack(1, 3, 1, 3)));
+        assertThat(body(engine, "X")).containsExactly("(LITERAL)", "#", "+", "OVER", "OVER", "EXIT");
+    }
+
+    @Test
+    public void inliningCanBeTurnedOff() {
+        Forth83Engine engine = engine(null);
+        assertThat(engine.isInlining()).isFalse();
+        fixture(engine).execute(": X 1+ ;");
+        assertThat(body(engine, "X")).containsExactly("1+", "EXIT");
+    }
+
+    @Test
+    public void longWordIsCalled() {
+        Forth83Engine engine = engine(Inliner.standard(1));
+        fixture(engine).execute(": X 2DUP ;");
+        assertThat(body(engine, "X")).containsExactly("2DUP", "EXIT");
+    }
+
+    @Test
+    public void wordWithBranchIsCalled() {
+        Forth83Engine engine = engine(Inliner.standard());
+        Program prg = program("IF") //
+                .add(line(": Y IF 1 THEN ;")) //
+                .add(line(": X Y ;")) //
+                .add(line("0 X -1 X").stack(1));
+        fixture(engine).test(prg);
+        assertThat(body(engine, "X")).containsExactly("Y", "EXIT");
+    }
+
+    @Test
+    public void unbalancedReturnStackIsCalled() {
+        Forth83Engine engine = engine(Inliner.standard());
+        fixture(engine).execute(": Y R> DROP ;");
+        fixture(engine).execute(": X Y ;");
+        assertThat(body(engine, "X")).containsExactly("Y", "EXIT");
+    }
+
+    @Test
+    public void balancedReturnStackIsSpliced() {
+        Forth83Engine engine = engine(Inliner.standard());
+        Program prg = program(">R R>") //
+                .add(line(": Y >R DUP R> ;")) //
+                .add(line(": X Y ;")) //
+                .add(line("1 2 X").stack(1, 1, 2));
+        fixture(engine).test(prg);
+        assertThat(body(engine, "X")).containsExactly(">R", "DUP", "R>", "EXIT");
+    }
+
+    @Test
+    public void earlyExitIsCalled() {
+        Forth83Engine engine = engine(Inliner.standard());
+        fixture(engine).execute(": Y 1 EXIT 2 ;");
+        fixture(engine).execute(": X Y 3 ;");
+        assertThat(body(engine, "X").get(0)).isEqualTo("Y");
+    }
+
+    @Test
+    public void redefinitionDoesNotChangeCallers() {
+        Program prg = program("redefine") //
+                .add(line(": A 1 ;")) //
+                .add(line(": B A ;")) //
+                .add(line(": A 2 ;")) //
+                .add(line("B A").stack(1, 2));
+        fixture(engine(Inliner.standard())).test(prg);
+    }
+
+    @Test
+    public void postponedWordIsNotSpliced() {
+        Forth83Engine engine = engine(Inliner.standard());
+        fixture(engine).execute(": Y [COMPILE] 1+ ; IMMEDIATE");
+        assertThat(body(engine, "Y")).containsExactly("1+", "EXIT");
+    }
+}
@@ -0,0 +1,169 @@
+package io.github.mletkin.jemforth.engine.f83;
+
+import static io.github.mletkin.jemforth.engine.MemoryMapper.CELL_SIZE;
+import static io.github.mletkin.jemforth.engine.harness.Fixture.fixture;
+import static io.github.mletkin.jemforth.engine.harness.Line.line;
+import static io.github.mletkin.jemforth.engine.harness.Program.program;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import io.github.mletkin.jemforth.engine.Jit;
+import io.github.mletkin.jemforth.engine.harness.Program;
+import io.github.mletkin.jemforth.engine.testcases.Corpus;
+import io.github.mletkin.jemforth.engine.words.ColonWord;
+
+/**
+ * The JIT is off by default, the test cases run with every colon definition
+ * compiled on its first call in both modes and together with the native outer
+ * interpreter.
+ */
+public class JitTest {
+
+    private static Forth83Engine jitEngine(int threshold) {
+        Forth83Engine engine = new Forth83Engine();
+        engine.useJit(Jit.standard(threshold));
+        return engine;
+    }
+
+    private static boolean isCompiled(Forth83Engine engine, String name) {
+        return ((ColonWord) engine.getDictionary().find(name)).compiled() != null;
+    }
+
+    private static Forth83Engine handleEngine(int threshold) {
+        Forth83Engine engine = new Forth83Engine();
+        engine.useJit(Jit.standard(threshold).mode(Jit.Mode.METHOD_HANDLES));
+        return engine;
+    }
+
+    @ParameterizedTest(name = "{index}: {0}")
+    @MethodSource
+    public void compiledOnFirstCall(Program prg) {
+        fixture(jitEngine(1)).test(prg);
+    }
+
+    @ParameterizedTest(name = "{index}: {0}")
+    @MethodSource("compiledOnFirstCall")
+    public void composedOnFirstCall(Program prg) {
+        fixture(handleEngine(1)).test(prg);
+    }
+
+    @ParameterizedTest(name = "{index}: {0}")
+    @MethodSource("compiledOnFirstCall")
+    public void compiledWithNativeInterpreter(Program prg) {
+        Forth83Engine engine = jitEngine(1);
+        engine.useNativeInterpreter(true);
+        fixture(engine).test(prg);
+    }
+
+    public static Stream<Program> compiledOnFirstCall() {
+        return Corpus.allTestCases();
+    }
+
+    @Test
+    public void jitIsOffByDefault() {
+        Forth83Engine engine = new Forth83Engine();
+        assertThat(engine.isUsingJit()).isFalse();
+        engine.useJit(Jit.standard());
+        assertThat(engine.isUsingJit()).isTrue();
+    }
+
+    @Test
+    public void wordIsCompiledAtTheThreshold() {
+        Forth83Engine engine = jitEngine(3);
+        Program prg = program("threshold") //
+                .add(line(": X 0 100 0 DO I + 7 +LOOP ;")) //
+                .add(line("X X").stack(735, 735));
+        fixture(engine).test(prg);
+        assertThat(isCompiled(engine, "X")).isFalse();
+        fixture(engine).execute("X");
+        assertThat(isCompiled(engine, "X")).isTrue();
+        assertThat(engine.getDataStack()).containsExactly(735, 735, 735);
+    }
+
+    @Test
+    public void nestedLoopsWithLeave() {
+        Forth83Engine engine = jitEngine(1);
+        Program prg = program("J LEAVE") //
+                .add(line(": X 3 0 DO 5 0 DO I 2 = IF LEAVE THEN J 10 * I + . LOOP LOOP ;")) //
+                .add(line("X").output("0 1 10 11 20 21 "));
+        fixture(engine).test(prg);
+        assertThat(isCompiled(engine, "X")).isTrue();
+    }
+
+    @Test
+    public void storeDiscardsCompiledCode() {
+        Forth83Engine engine = jitEngine(1);
+        Program prg = program("replace + by -") //
+                .add(line(": X 5 + ;")) //
+                .add(line("10 X").stack(15)) //
+                .add(line("' - ' X 3 CELLS + !").stack(15)) //
+                .add(line("X").stack(10));
+        fixture(engine).test(prg);
+        assertThat(isCompiled(engine, "X")).isTrue();
+    }
+
+    @Test
+    public void unbalancedCalleeIsNotCompiled() {
+        Forth83Engine engine = jitEngine(1);
+        Program prg = program("R> DROP") //
+                .add(line(": X R> DROP ;")) //
+                .add(line(": Y 1 X 2 ;")) //
+                .add(line("Y").stack(1));
+        fixture(engine).test(prg);
+        assertThat(isCompiled(engine, "X")).isFalse();
+        assertThat(isCompiled(engine, "Y")).isFalse();
+    }
+
+    @Test
+    public void recursiveWordIsNotCompiled() {
+        Forth83Engine engine = jitEngine(1);
+        Program prg = program("RECURSE") //
+                .add(line(": X DUP IF 1- RECURSE THEN ;")) //
+                .add(line("3 X").stack(0));
+        fixture(engine).test(prg);
+        assertThat(isCompiled(engine, "X")).isFalse();
+    }
+
+    @Test
+    public void debuggerUsesTheInnerInterpreter() {
+        Forth83Engine engine = jitEngine(1);
+        fixture(engine).execute(": X 1 2 + ;");
+        fixture(engine).execute("X");
+        int start = engine.getDictionary().find("X").xt();
+        int end = start + 5 * CELL_SIZE;
+        boolean[] stepped = { false };
+        engine.setDebugCallback(c -> stepped[0] |= c.getIp() > start && c.getIp() < end);
+        fixture(engine).execute("X");
+        assertThat(stepped[0]).isTrue();
+        assertThat(engine.getDataStack()).containsExactly(3, 3);
+    }
+
+    @Test
+    public void straightLineWordIsComposed() {
+        Forth83Engine engine = handleEngine(1);
+        Program prg = program("composed") //
+                .add(line(": X 3 4 + DUP * 5 - ;")) //
+                .add(line(": Y 2 X SWAP DUP IF THEN ;")) //
+                .add(line(": Z EXECUTE DUP ;")) //
+                .add(line("' Y Z").stack(44, 2, 2));
+        fixture(engine).test(prg);
+        assertThat(isCompiled(engine, "X")).isTrue();
+        assertThat(isCompiled(engine, "Y")).isFalse();
+        assertThat(isCompiled(engine, "Z")).isTrue();
+    }
+
+    @Test
+    public void branchIsNotComposed() {
+        Forth83Engine engine = handleEngine(1);
+        Program prg = program("IF") //
+                .add(line(": X DUP 0< IF NEGATE THEN ;")) //
+                .add(line("-5 X 7 X").stack(5, 7));
+        fixture(engine).test(prg);
+        assertThat(isCompiled(engine, "X")).isFalse();
+    }
+}
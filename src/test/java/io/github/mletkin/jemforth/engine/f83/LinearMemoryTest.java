@@ -0,0 +1,50 @@
+package io.github.mletkin.jemforth.engine.f83;
+
+import static io.github.mletkin.jemforth.engine.harness.Fixture.fixture;
+import static io.github.mletkin.jemforth.engine.harness.Fixture.testCaseList;
+import static io.github.mletkin.jemforth.engine.harness.Line.line;
+import static io.github.mletkin.jemforth.engine.harness.Program.program;
+
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import io.github.mletkin.jemforth.engine.MemoryMapper;
+import io.github.mletkin.jemforth.engine.harness.Program;
+import io.github.mletkin.jemforth.engine.testcases.Corpus;
+import io.github.mletkin.jemforth.engine.words.Dictionary;
+
+/**
+ * Runs some of the test cases with a dictionary that uses linear memory.
+ */
+public class LinearMemoryTest {
+
+    @ParameterizedTest(name = "{index}: {0}")
+    @MethodSource
+    public void linearMemoryTest(Program prg) {
+        fixture(new Forth83Engine(new Dictionary(new MemoryMapper(), true))).test(prg);
+    }
+
+    public static Stream<Program> linearMemoryTest() {
+        return Stream.concat(Corpus.allTestCases(), memoryTestCases());
+    }
+
+    private static Stream<Program> memoryTestCases() {
+        return testCaseList( //
+                program("cell and byte access in created buffer") //
+                        .add(line("CREATE buf 3 CELLS ALLOT")) //
+                        .add(line("4711 buf CELL+ ! buf CELL+ @").stack(4711)) //
+                        .add(line("DROP 65 buf 2 + C! buf 2 + C@").stack(65)), //
+
+                program("words grow while a string is defined") //
+                        .add(line(": greet C\" hello\" COUNT TYPE 7 ;")) //
+                        .add(line("greet").stack(7).output("hello")), //
+
+                program("forget releases the heap") //
+                        .add(line(": foo 1 2 + ;")) //
+                        .add(line("FORGET foo")) //
+                        .add(line(": bar 3 4 + ; bar").stack(7)) //
+        );
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.mletkin.jemforth.engine.f83;
+
+import static io.github.mletkin.jemforth.engine.harness.Fixture.fixture;
+import static io.github.mletkin.jemforth.engine.harness.Line.line;
+import static io.github.mletkin.jemforth.engine.harness.Program.program;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import io.github.mletkin.jemforth.engine.harness.Program;
+import io.github.mletkin.jemforth.engine.testcases.Corpus;
+
+/**
+ * Runs some of the test cases with the native outer interpreter.
+ */
+public class NativeInterpreterTest {
+
+    private static Forth83Engine nativeEngine() {
+        Forth83Engine engine = new Forth83Engine();
+        engine.useNativeInterpreter(true);
+        return engine;
+    }
+
+    @ParameterizedTest(name = "{index}: {0}")
+    @MethodSource
+    public void nativeInterpreterTest(Program prg) {
+        fixture(nativeEngine()).test(prg);
+    }
+
+    public static Stream<Program> nativeInterpreterTest() {
+        return Corpus.allTestCases();
+    }
+
+    @Test
+    public void interpreterCanBeSwitched() {
+        Forth83Engine engine = new Forth83Engine();
+        assertThat(engine.isNativeInterpreter()).isFalse();
+        engine.useNativeInterpreter(true);
+        assertThat(engine.isNativeInterpreter()).isTrue();
+        engine.useNativeInterpreter(false);
+        assertThat(engine.isNativeInterpreter()).isFalse();
+    }
+
+    @Test
+    public void nestedInterpreterReturnsToCaller() {
+        Program prg = program("INTERPRET called from a colon definition") //
+                .add(line(": X 1 INTERPRET 3 ;")) //
+                .add(line("X 2").stack(1, 2, 3));
+        fixture(nativeEngine()).test(prg);
+    }
+}
@@ -0,0 +1,152 @@
+package io.github.mletkin.jemforth.engine.f83;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.mletkin.jemforth.engine.exception.ForthTerminatedException;
+
+public class PipedEnvironmentTest {
+
+    /**
+     * Output stream counting the writes.
+     */
+    private static class Output extends ByteArrayOutputStream {
+        private int writes;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes++;
+            super.write(b, off, len);
+        }
+    }
+
+    private final Output output = new Output();
+
+    private PipedEnvironment environment(String input) {
+        PipedEnvironment env = new PipedEnvironment(new Forth83Engine());
+        env.setInput(new ByteArrayInputStream(input.getBytes()));
+        env.setOutput(output);
+        return env;
+    }
+
+    @Test
+    public void keysAreReadFromTheInput() {
+        PipedEnvironment env = environment("AB");
+        env.engine().process("KEY? KEY KEY");
+        assertThat(env.engine().getDataStack()).containsExactly(-1, 65, 66);
+    }
+
+    @Test
+    public void endOfInputTerminates() {
+        PipedEnvironment env = environment("");
+        assertThatThrownBy(() -> env.engine().process("KEY")).isInstanceOf(ForthTerminatedException.class);
+    }
+
+    @Test
+    public void outputIsWrittenByLine() {
+        PipedEnvironment env = environment("");
+        env.setIdleDelay(0);
+        env.engine().process("65 EMIT 66 EMIT #10 EMIT 67 EMIT");
+        assertThat(output.toString()).isEqualTo("AB\n");
+        assertThat(output.writes).isEqualTo(1);
+        env.flush();
+        assertThat(output.toString()).isEqualTo("AB\nC");
+    }
+
+    @Test
+    public void outputIsWrittenBeforeWaitingForInput() {
+        PipedEnvironment env = environment("X");
+        env.setFlush(PipedEnvironment.Flush.INPUT);
+        env.setIdleDelay(0);
+        env.engine().process("65 EMIT #10 EMIT 66 EMIT");
+        assertThat(output.writes).isZero();
+        env.engine().process("KEY");
+        assertThat(output.toString()).isEqualTo("A\nB");
+        assertThat(output.writes).isEqualTo(1);
+    }
+
+    @Test
+    public void waitingOutputIsWrittenAfterTheIdleDelay() throws InterruptedException {
+        PipedEnvironment env = environment("");
+        env.setFlush(PipedEnvironment.Flush.INPUT);
+        env.setIdleDelay(10);
+        env.engine().process("65 EMIT");
+        for (int n = 0; n < 500 && output.size() == 0; n++) {
+            Thread.sleep(10);
+        }
+        assertThat(output.toString()).isEqualTo("A");
+        assertThat(output.writes).isEqualTo(1);
+    }
+
+    @Test
+    public void waitingForInputDoesNotBlockTheOutputOfOtherEnvironments() throws IOException, InterruptedException {
+        PipedOutputStream keyboard = new PipedOutputStream();
+        PipedEnvironment waiting = new PipedEnvironment(new Forth83Engine());
+        waiting.setInput(new PipedInputStream(keyboard));
+        waiting.setOutput(new Output());
+        waiting.setFlush(PipedEnvironment.Flush.INPUT);
+        waiting.setIdleDelay(10);
+        Thread thread = new Thread(() -> waiting.engine().process("65 EMIT KEY"));
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            Thread.sleep(100);
+            PipedEnvironment env = environment("");
+            env.setFlush(PipedEnvironment.Flush.INPUT);
+            env.setIdleDelay(10);
+            env.engine().process("66 EMIT");
+            for (int n = 0; n < 500 && output.size() == 0; n++) {
+                Thread.sleep(10);
+            }
+            assertThat(output.toString()).isEqualTo("B");
+        } finally {
+            keyboard.close();
+            thread.join(1000);
+        }
+    }
+
+    @Test
+    public void outputIsWrittenOnTermination() {
+        PipedEnvironment env = environment("");
+        env.setFlush(PipedEnvironment.Flush.INPUT);
+        assertThatThrownBy(() -> env.engine().process(".\" done\" BYE")).isInstanceOf(ForthTerminatedException.class);
+        assertThat(output.toString()).isEqualTo("done");
+    }
+
+    @Test
+    public void partialLineIsWrittenOnTermination() {
+        PipedEnvironment env = environment("");
+        env.engine().process(": X .\" done\" BYE ;");
+        assertThatThrownBy(() -> env.engine().process("X")).isInstanceOf(ForthTerminatedException.class);
+        assertThat(output.toString()).isEqualTo("done");
+    }
+
+    @Test
+    public void fullBufferIsWritten() {
+        PipedEnvironment env = environment("");
+        env.setFlush(PipedEnvironment.Flush.INPUT);
+        env.setIdleDelay(0);
+        env.engine().process(": X 5000 0 DO 65 EMIT LOOP ; X");
+        assertThat(output.size()).isEqualTo(4096);
+    }
+
+    @Test
+    public void charactersAndStringsAreEncodedAlike() {
+        PipedEnvironment env = environment("");
+        env.setIdleDelay(0);
+        env.print('\u00e9');
+        env.print("\u00e9");
+        env.print('\u20ac');
+        env.print("\u20ac");
+        env.flush();
+        assertThat(output.toByteArray()).containsExactly(0xE9, 0xE9, '?', '?');
+    }
+}
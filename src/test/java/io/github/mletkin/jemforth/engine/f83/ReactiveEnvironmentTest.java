@@ -0,0 +1,118 @@
+package io.github.mletkin.jemforth.engine.f83;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.mletkin.jemforth.engine.exception.ForthTerminatedException;
+
+public class ReactiveEnvironmentTest {
+
+    private final ReactiveEnvironment env = new ReactiveEnvironment(new Forth83Engine());
+    private final BlockingQueue<String> display = new LinkedBlockingQueue<>();
+
+    /**
+     * Subscriber collecting the published chunks.
+     */
+    private class Display implements Subscriber<String> {
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String chunk) {
+            display.add(chunk);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // not expected
+        }
+
+        @Override
+        public void onComplete() {
+            // not expected
+        }
+    }
+
+    private String chunk() throws InterruptedException {
+        return display.poll(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void keyWaitsForTheKeyboard() {
+        try (SubmissionPublisher<Character> keyboard = new SubmissionPublisher<>()) {
+            env.connectKeyboard(keyboard);
+            new Thread(() -> {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                keyboard.submit('A');
+                keyboard.submit('B');
+            }).start();
+            env.engine().process("KEY KEY");
+            assertThat(env.engine().getDataStack()).containsExactly(65, 66);
+        }
+    }
+
+    @Test
+    public void keyboardErrorTerminatesWithCause() {
+        SubmissionPublisher<Character> keyboard = new SubmissionPublisher<>();
+        env.connectKeyboard(keyboard);
+        IllegalStateException error = new IllegalStateException("keyboard lost");
+        keyboard.closeExceptionally(error);
+        assertThatThrownBy(() -> env.engine().process("KEY")) //
+                .isInstanceOf(ForthTerminatedException.class) //
+                .hasCause(error);
+    }
+
+    @Test
+    public void outputIsPublishedByLine() throws InterruptedException {
+        env.connectDisplay(new Display());
+        env.engine().process(".( hello) 65 EMIT #10 EMIT .( world)");
+        assertThat(chunk()).isEqualTo("helloA\n");
+        assertThat(display).isEmpty();
+        env.flush();
+        assertThat(chunk()).isEqualTo("world");
+    }
+
+    @Test
+    public void typePublishesTheWholeString() throws InterruptedException {
+        env.connectDisplay(new Display());
+        env.engine().process("CREATE TEXT 3000 ALLOT TEXT 3000 65 FILL TEXT 3000 TYPE");
+        assertThat(chunk()).hasSize(3000);
+    }
+
+    @Test
+    public void waitingForAKeyDoesNotBlockTheOutput() throws InterruptedException {
+        env.connectDisplay(new Display());
+        try (SubmissionPublisher<Character> keyboard = new SubmissionPublisher<>()) {
+            env.connectKeyboard(keyboard);
+            Thread reader = new Thread(() -> env.engine().process("KEY"));
+            reader.setDaemon(true);
+            reader.start();
+            TimeUnit.MILLISECONDS.sleep(50);
+
+            Thread writer = new Thread(() -> env.print("out\n"));
+            writer.start();
+            writer.join(5000);
+            assertThat(writer.isAlive()).isFalse();
+            assertThat(chunk()).isEqualTo("out\n");
+
+            keyboard.submit('A');
+            reader.join(5000);
+        }
+    }
+}
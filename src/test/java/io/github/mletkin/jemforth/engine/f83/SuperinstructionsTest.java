@@ -0,0 +1,121 @@
+package io.github.mletkin.jemforth.engine.f83;
+
+import static io.github.mletkin.jemforth.engine.MemoryMapper.CELL_SIZE;
+import static io.github.mletkin.jemforth.engine.harness.Fixture.fixture;
+import static io.github.mletkin.jemforth.engine.harness.Line.line;
+import static io.github.mletkin.jemforth.engine.harness.Program.program;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import io.github.mletkin.jemforth.engine.CellDecoder;
+import io.github.mletkin.jemforth.engine.Superinstructions;
+import io.github.mletkin.jemforth.engine.harness.Fixture;
+import io.github.mletkin.jemforth.engine.harness.Program;
+import io.github.mletkin.jemforth.engine.testcases.Corpus;
+import io.github.mletkin.jemforth.engine.words.ColonWord;
+
+/**
+ * Superinstructions are used by default, the test cases run without them.
+ */
+public class SuperinstructionsTest {
+
+    private static Forth83Engine plainEngine() {
+        Forth83Engine engine = new Forth83Engine();
+        engine.useSuperinstructions(null);
+        return engine;
+    }
+
+    @ParameterizedTest(name = "{index}: {0}")
+    @MethodSource
+    public void withoutSuperinstructions(Program prg) {
+        fixture(plainEngine()).test(prg);
+    }
+
+    public static Stream<Program> withoutSuperinstructions() {
+        return Corpus.allTestCases();
+    }
+
+    private static String firstThreadedWord(Forth83Engine engine, String name) {
+        ColonWord word = (ColonWord) engine.getDictionary().find(name);
+        return word.threadedWord(word.xt() + CELL_SIZE).name();
+    }
+
+    @Test
+    public void literalAdditionIsFused() {
+        Fixture<Forth83Engine> fixture = fixture(new Forth83Engine());
+        fixture.test(program("fused").add(line(": X 5 + ;")).add(line("1 X").stack(6)));
+        assertThat(firstThreadedWord(fixture.engine(), "X")).isEqualTo("(LITERAL) _ +");
+    }
+
+    @Test
+    public void fusionCanBeTurnedOff() {
+        Forth83Engine engine = new Forth83Engine();
+        assertThat(engine.isUsingSuperinstructions()).isTrue();
+        fixture(engine).execute(": X 5 + ;");
+        engine.useSuperinstructions(null);
+        assertThat(engine.isUsingSuperinstructions()).isFalse();
+        assertThat(firstThreadedWord(engine, "X")).isEqualTo("(LITERAL)");
+    }
+
+    @Test
+    public void seeShowsTheOriginalWords() {
+        String definition = ": X 0 10 0 DO I + LOOP DUP @ SWAP DROP 3 - ;";
+        Fixture<Forth83Engine> fused = fixture(new Forth83Engine());
+        Fixture<Forth83Engine> plain = fixture(plainEngine());
+        fused.execute(definition);
+        plain.execute(definition);
+
+        assertThat(fused.execute("SEE X")).isEqualTo(plain.execute("SEE X")).contains("DUP @ SWAP DROP");
+    }
+
+    @Test
+    public void storeIntoSequenceRestoresTheOriginalWord() {
+        Program prg = program("replace + by -") //
+                .add(line(": X 5 + ;")) //
+                .add(line("' - ' X 3 CELLS + !")) //
+                .add(line("10 X").stack(5));
+        Fixture<Forth83Engine> fixture = fixture(new Forth83Engine());
+        fixture.test(prg);
+        assertThat(firstThreadedWord(fixture.engine(), "X")).isEqualTo("(LITERAL)");
+    }
+
+    @Test
+    public void patternWithoutCommandExecutesTheWords() {
+        Forth83Engine engine = new Forth83Engine();
+        engine.useSuperinstructions(new Superinstructions().add("SWAP DUP ROT"));
+        Program prg = program("composed") //
+                .add(line(": X SWAP DUP ROT ;")) //
+                .add(line("1 2 X").stack(1, 1, 2));
+        fixture(engine).test(prg);
+        assertThat(firstThreadedWord(engine, "X")).isEqualTo("SWAP DUP ROT");
+    }
+
+    @Test
+    public void patternWithUnknownWordIsIgnored() {
+        Forth83Engine engine = new Forth83Engine();
+        engine.useSuperinstructions(new Superinstructions().add("SWAP UNKNOWN", c -> {}));
+        fixture(engine).test(program("unknown").add(line(": X SWAP DROP ;")).add(line("1 2 X").stack(2)));
+        assertThat(firstThreadedWord(engine, "X")).isEqualTo("SWAP");
+    }
+
+    @Test
+    public void sequenceDoesNotStartWithAnOperand() {
+        Forth83Engine engine = new Forth83Engine();
+        engine.useSuperinstructions(new Superinstructions() //
+                .decoder(CellDecoder.standard()) //
+                .add("SWAP COMPILE", c -> {
+                    throw new IllegalStateException();
+                }));
+        Program prg = program("COMPILE operand") //
+                .add(line(": NIP' COMPILE SWAP COMPILE DROP ; IMMEDIATE")) //
+                .add(line(": X NIP' ;")) //
+                .add(line("1 2 X").stack(2));
+        fixture(engine).test(prg);
+        assertThat(firstThreadedWord(engine, "NIP'")).isEqualTo("COMPILE");
+    }
+}
@@ -0,0 +1,130 @@
+package io.github.mletkin.jemforth.engine.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.mletkin.jemforth.engine.exception.JemForthException;
+import io.github.mletkin.jemforth.engine.f83.BlockBuffer;
+import io.github.mletkin.jemforth.engine.f83.BlockStorage;
+import io.github.mletkin.jemforth.engine.f83.Forth83Engine;
+
+public class SessionManagerTest {
+
+    private final SessionManager manager = new SessionManager();
+
+    @AfterEach
+    public void close() {
+        manager.close();
+    }
+
+    private static void awaitEnd(Session session) throws InterruptedException {
+        assertThat(session.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void inputIsInterpreted() throws InterruptedException {
+        StringBuffer display = new StringBuffer();
+        Session session = manager.open(display::append);
+        session.send("1 2 + .\n");
+        session.send("BYE\n");
+        awaitEnd(session);
+        assertThat(display.toString()).isEqualTo("\r\n>1 2 + . 3 OK\r\n>BYE ");
+        assertThat(session.isRunning()).isFalse();
+    }
+
+    @Test
+    public void sessionsAreIsolated() throws InterruptedException {
+        StringBuffer first = new StringBuffer();
+        StringBuffer second = new StringBuffer();
+        Session a = manager.open(first::append);
+        Session b = manager.open(second::append);
+        a.send(": X 7 ; X .\nBYE\n");
+        awaitEnd(a);
+        b.send("X\nBYE\n");
+        awaitEnd(b);
+        assertThat(a.engine()).isNotSameAs(b.engine());
+        assertThat(first.toString()).contains("7 OK");
+        assertThat(second.toString()).doesNotContain("7 OK");
+    }
+
+    @Test
+    public void errorRestartsTheSession() throws InterruptedException {
+        StringBuffer display = new StringBuffer();
+        Session session = manager.open(display::append);
+        session.send("0 0 /\n5 .\nBYE\n");
+        awaitEnd(session);
+        assertThat(display.toString()).contains("5 OK");
+    }
+
+    @Test
+    public void errorMessageIsNotInterpreted() throws InterruptedException {
+        Forth83Engine engine = new Forth83Engine(Forth83Engine.baseImage());
+        engine.add("FAIL", c -> {
+            throw new JemForthException("failed) 7 .");
+        });
+        StringBuffer display = new StringBuffer();
+        try (SessionManager single = new SessionManager(() -> engine, Executors.newSingleThreadExecutor())) {
+            Session session = single.open(display::append);
+            session.send("FAIL\nBYE\n");
+            awaitEnd(session);
+        }
+        assertThat(display.toString()).isEqualTo("\r\n>FAIL failed) 7 .\r\n>BYE ");
+    }
+
+    @Test
+    public void closeStopsWaitingSession() throws InterruptedException {
+        Session session = manager.open(s -> {});
+        assertThat(manager.session(session.id())).isSameAs(session);
+        session.close();
+        awaitEnd(session);
+        assertThat(session.isRunning()).isFalse();
+    }
+
+    @Test
+    public void managerClosesAllSessions() throws InterruptedException {
+        Session a = manager.open(s -> {});
+        Session b = manager.open(s -> {});
+        manager.close();
+        awaitEnd(a);
+        awaitEnd(b);
+    }
+
+    @Test
+    public void endedSessionClosesTheMassStorage() throws InterruptedException {
+        AtomicBoolean closed = new AtomicBoolean();
+        Forth83Engine engine = new Forth83Engine(Forth83Engine.baseImage());
+        engine.useBlockBuffer(new BlockBuffer(new BlockStorage() {
+            @Override
+            public ByteBuffer load(int blockId) {
+                return ByteBuffer.allocate(BlockBuffer.BLOCK_SIZE);
+            }
+
+            @Override
+            public void store(int blockId, ByteBuffer content) {
+            }
+
+            @Override
+            public int capacity() {
+                return BlockBuffer.MAX_BLOCK;
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        }));
+        try (SessionManager single = new SessionManager(() -> engine, Executors.newSingleThreadExecutor())) {
+            Session session = single.open(s -> {});
+            session.send("1 BLOCK DROP\nBYE\n");
+            awaitEnd(session);
+        }
+        assertThat(closed).isTrue();
+    }
+}
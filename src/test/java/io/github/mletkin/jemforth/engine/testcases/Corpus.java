@@ -0,0 +1,25 @@
+package io.github.mletkin.jemforth.engine.testcases;
+
+import java.util.stream.Stream;
+
+import io.github.mletkin.jemforth.engine.harness.Program;
+
+/**
+ * The test cases replayed with the different configurations of the engine.
+ */
+public class Corpus {
+
+    public static Stream<Program> allTestCases() {
+        return Stream.of( //
+                Word.testCases(), //
+                Compile.testCases(), //
+                IfThen.testCases(), //
+                IfThen.testCasesLoop(), //
+                Interpreter.testCases(), //
+                Literals.testCases(), //
+                String.testCases(), //
+                Stack.testCasesReturnStack()) //
+                .flatMap(s -> s);
+    }
+
+}
@@ -51,7 +51,28 @@ public class IfThen {
     
                 program("DO +LOOP down") //
                         .add(line(": COUNTDOWN 0 100 DO I . -10 +LOOP ;")) //
-                        .add(line("COUNTDOWN").output("100 90 80 70 60 50 40 30 20 10 ")),
+                        .add(line("COUNTDOWN").output("100 90 80 70 60 50 40 30 20 10 0 ")),
+
+                program("DO +LOOP crosses the limit") //
+                        .add(line(": STEPS 10 0 DO I . 3 +LOOP ;")) //
+                        .add(line("STEPS").output("0 3 6 9 ")),
+
+                program("?DO skips an empty loop") //
+                        .add(line(": SKIP 0 SWAP 0 ?DO 1+ LOOP ;")) //
+                        .add(line("0 SKIP").stack(0)) //
+                        .add(line("3 SKIP").stack(0, 3)),
+
+                program("nested DO LOOP with J") //
+                        .add(line(": NEST 3 1 DO 3 1 DO J 10 * I + . LOOP LOOP ;")) //
+                        .add(line("NEST").output("11 12 21 22 ")),
+
+                program("DO LOOP with LEAVE") //
+                        .add(line(": FIRST 100 0 DO I 5 = IF I LEAVE THEN LOOP 7 ;")) //
+                        .add(line("FIRST").stack(5, 7)),
+
+                program("UNLOOP before EXIT") //
+                        .add(line(": FIND3 10 0 DO I 3 = IF I UNLOOP EXIT THEN LOOP -1 ;")) //
+                        .add(line("FIND3").stack(3)),
     
                 program("DO LOOP with I") //
                         .add(line(": sum 0 16 0 DO I + LOOP ;")) //
@@ -17,7 +17,10 @@ public class Literals {
                 program("character").add(line("DECIMAL BASE @ '@'").stack(10, 64)), //
                 program("decimal number").add(line("HEX BASE @ #4711").stack(16, 4711)), //
                 program("tick with more than one character").add(line("'xy'").output("'xy'?")), //
-                program("not a number").add(line("pipapo").output("pipapo?"))//
+                program("not a number").add(line("pipapo").output("pipapo?")), //
+                program("negative number").add(line("DECIMAL -12 $-A").stack(-12, -10)), //
+                program("double number").add(line("DECIMAL 1.000").stack(1000, 0)), //
+                program("negative double number").add(line("DECIMAL -1.").stack(-1, -1))//
         );
     }
 
@@ -19,12 +19,12 @@ public class Stack {
                         .add(line("n").stack(10).outputEndsWith("10")),
     
                 program("R@") //
-                        .add(line(": n 10 >R R@ .RSTACK R> ;")) //
-                        .add(line("n").stack(10, 10).outputEndsWith(" 10")),
+                        .add(line(": n 5 >R 10 >R R@ .RSTACK R> R> DROP ;")) //
+                        .add(line("n").stack(10, 10).outputEndsWith("5 10")),
     
                 program("RDROP") //
-                        .add(line(": n 10 20 >R >R RDROP .RSTACK R> ;")) //
-                        .add(line("n").stack(20).outputEndsWith(" 20")));
+                        .add(line(": n 5 >R 10 20 >R >R RDROP .RSTACK R> R> DROP ;")) //
+                        .add(line("n").stack(20).outputEndsWith("5 20")));
     }
 
     public static Stream<Line> testCasesDataStack() {
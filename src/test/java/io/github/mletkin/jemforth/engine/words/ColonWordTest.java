@@ -0,0 +1,58 @@
+package io.github.mletkin.jemforth.engine.words;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.mletkin.jemforth.engine.MemoryMapper;
+
+class ColonWordTest {
+
+    private Dictionary dictionary = new Dictionary(new MemoryMapper(10));
+
+    {
+        dictionary.add(new VocabularyWord("FORTH"));
+    }
+
+    private InternalWord mkInternal(String name) {
+        InternalWord word = new InternalWord(name, c -> {});
+        dictionary.add(word);
+        return word;
+    }
+
+    @Test
+    void compiledCellsAreResolved() {
+        InternalWord dup = mkInternal("DUP");
+        ColonWord word = new ColonWord("foo");
+        dictionary.add(word);
+        word.addPfaEntry(dup.xt());
+        word.addPfaEntry(4711);
+
+        assertThat(dictionary.fetchWord(word.xt() + 4)).isSameAs(dup);
+        assertThat(word.threadedWord(word.xt() + 8)).isNull();
+    }
+
+    @Test
+    void cellsCompiledBeforeAddingAreResolved() {
+        InternalWord dup = mkInternal("DUP");
+        ColonWord word = new ColonWord("foo");
+        word.addPfaEntry(dup.xt());
+        dictionary.add(word);
+
+        assertThat(word.threadedWord(word.xt() + 4)).isSameAs(dup);
+    }
+
+    @Test
+    void storedCellIsResolvedAgain() {
+        InternalWord dup = mkInternal("DUP");
+        InternalWord drop = mkInternal("DROP");
+        ColonWord word = new ColonWord("foo");
+        dictionary.add(word);
+        word.addPfaEntry(dup.xt());
+
+        dictionary.store(word.xt() + 4, drop.xt());
+
+        assertThat(dictionary.fetchWord(word.xt() + 4)).isSameAs(drop);
+        assertThat(word.fetch(word.xt() + 4)).isEqualTo(drop.xt());
+    }
+}
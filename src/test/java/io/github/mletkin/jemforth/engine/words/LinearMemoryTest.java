@@ -0,0 +1,88 @@
+package io.github.mletkin.jemforth.engine.words;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.mletkin.jemforth.engine.MemoryMapper;
+
+class LinearMemoryTest {
+
+    private Dictionary dictionary = new Dictionary(new MemoryMapper(10), true);
+
+    {
+        dictionary.add(new VocabularyWord("FORTH"));
+    }
+
+    private CellListWord mkWord(String name) {
+        CellListWord word = new CellListWord(name);
+        dictionary.create(word);
+        return word;
+    }
+
+    @Test
+    void cellsAreStoredInTheHeap() {
+        CellListWord word = mkWord("foo");
+        word.addPfaEntry(4711);
+        word.addPfaEntry(4712);
+
+        assertThat(dictionary.linearMemory().size()).isEqualTo(2);
+        assertThat(dictionary.fetch(word.xt() + 8)).isEqualTo(4712);
+    }
+
+    @Test
+    void cellsAddedBeforeAddingToTheDictionaryAreMoved() {
+        CellListWord word = new CellListWord("foo");
+        word.addPfaEntry(4711);
+        dictionary.add(word);
+
+        assertThat(dictionary.fetch(word.xt() + 4)).isEqualTo(4711);
+    }
+
+    @Test
+    void growingSegmentIsMovedToTheTop() {
+        CellListWord one = mkWord("one");
+        one.addPfaEntry(1);
+        CellListWord two = mkWord("two");
+        two.addPfaEntry(2);
+        one.addPfaEntry(3);
+
+        assertThat(one.getDataArea()).containsExactly(1, 3);
+        assertThat(two.getDataArea()).containsExactly(2);
+        assertThat(dictionary.linearMemory().size()).isEqualTo(4);
+    }
+
+    @Test
+    void storeBeyondTheLastCellAllocatesZeroCells() {
+        CellListWord word = mkWord("foo");
+        word.addPfaEntry(4711);
+
+        word.store(word.xt() + 16, 5555);
+
+        assertThat(word.getDataArea()).containsExactly(4711, 0, 0, 5555);
+    }
+
+    @Test
+    void byteAccessUsesTheHeap() {
+        CellListWord word = mkWord("foo");
+        word.addPfaEntry(0);
+
+        dictionary.cStore(word.xt() + 5, 12);
+
+        assertThat(dictionary.cFetch(word.xt() + 5)).isEqualTo(12);
+        assertThat(word.fetch(word.xt() + 4)).isEqualTo(12 << 8);
+    }
+
+    @Test
+    void forgetReleasesTheHeap() {
+        CellListWord one = mkWord("one");
+        one.addPfaEntry(1);
+        CellListWord two = mkWord("two");
+        two.addPfaEntry(2);
+
+        dictionary.forget(two);
+
+        assertThat(dictionary.linearMemory().size()).isEqualTo(1);
+        assertThat(dictionary.linearMemory().contains(two.xt() + 4)).isFalse();
+    }
+}
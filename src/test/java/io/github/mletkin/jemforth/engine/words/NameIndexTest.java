@@ -0,0 +1,39 @@
+package io.github.mletkin.jemforth.engine.words;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class NameIndexTest {
+
+    private NameIndex index = new NameIndex();
+
+    @Test
+    void chainIsFoundByCharSequence() {
+        Word word = new InternalWord("DUP", c -> {});
+        index.chain("DUP").add(word);
+
+        assertThat(index.get(new StringBuilder("DUP"))).containsExactly(word);
+        assertThat(index.get(new StringBuilder("DUPE"))).isNull();
+    }
+
+    @Test
+    void chainSurvivesResize() {
+        for (int n = 0; n < 1000; n++) {
+            index.chain("w" + n).add(new InternalWord("w" + n, c -> {}));
+        }
+        for (int n = 0; n < 1000; n++) {
+            assertThat(index.get("w" + n)).extracting(Word::name).containsExactly("w" + n);
+        }
+    }
+
+    @Test
+    void removedChainIsNotFound() {
+        index.chain("a").add(new InternalWord("a", c -> {}));
+        index.chain("b").add(new InternalWord("b", c -> {}));
+        index.remove("a");
+
+        assertThat(index.get("a")).isNull();
+        assertThat(index.get("b")).isNotNull();
+    }
+}
@@ -159,4 +159,22 @@ public class StringWordTest {
         assertThatNoException().isThrownBy(() -> word.addPfaEntry(4711));
     }
 
+    @Test
+    void contentReflectsChanges() {
+        CharSequence content = word.content();
+        word.setData("foo");
+        word.append('d');
+        word.cStore(word.xt() + 4, 'o');
+        assertThat(content).hasToString("food");
+        assertThat(content.length()).isEqualTo(4);
+    }
+
+    @Test
+    void spanIsCopiedFromOtherWord() {
+        StringWord source = new StringWord("");
+        source.setData("BL WORD FIND");
+        word.setData(source, 3, 4);
+        assertThat(word.data()).isEqualTo("WORD");
+    }
+
 }
@@ -35,6 +35,35 @@ class VocabularyWordTest {
         assertThat(voc.find("foobar")).isNull();
     }
 
+    @Test
+    void latestDefinitionShadowsEarlierOnes() {
+        Word first = new Word("foobar");
+        Word second = new Word("foobar");
+        voc.add(first);
+        voc.add(second);
+        assertThat(voc.find("foobar")).isSameAs(second);
+    }
+
+    @Test
+    void forgettingAdefinitionRevealsTheShadowedOne() {
+        Word first = new Word("foobar");
+        Word second = new Word("foobar");
+        voc.add(first);
+        voc.add(second);
+        voc.forget(second);
+        assertThat(voc.find("foobar")).isSameAs(first);
+    }
+
+    @Test
+    void forgettingAshadowedDefinitionKeepsTheLatest() {
+        Word first = new Word("foobar");
+        Word second = new Word("foobar");
+        voc.add(first);
+        voc.add(second);
+        voc.forget(first);
+        assertThat(voc.find("foobar")).isSameAs(second);
+    }
+
     @Test
     void toStringContainsWid() {
         assertThat(voc.toString()).isEqualTo("myVoc[" + voc.xt() + ":" + voc.getWordListIdentifier() + "]");